@@ -36,7 +36,6 @@ public class RestaurantRepository implements Container {
 
 
         private static final int PER_PAGE_LIMITS = 12;
-        private static final int TOTAL_DATA = 3503;
 
         /**
          * Checks if there is more data in next page.
@@ -45,14 +44,15 @@ public class RestaurantRepository implements Container {
          */
         @Override
         public boolean hasNext() {
-            return curPage * PER_PAGE_LIMITS <= TOTAL_DATA;
+            return curPage * PER_PAGE_LIMITS < instance.size();
         }
 
         /**
          * Retrieves the next page of restaurants from the AVL tree.
          * <p>
-         * If there is more data, it returns the next 12 restaurants and
-         * increments the current page counter. Otherwise, it returns null.
+         * If there is more data, it returns the next 12 restaurants (fewer on the last page)
+         * and increments the current page counter. Otherwise, it returns null.
+         * The page is read by rank from the AVL tree, so the cost does not grow with the catalog.
          *
          * @return a list of Restaurants for the next page or null if no more data
          */
@@ -60,7 +60,8 @@ public class RestaurantRepository implements Container {
         public List<Restaurant> next() {
             List<Restaurant> nextPageRes;
             if (this.hasNext()) {
-                nextPageRes = instance.toList().subList(curPage * PER_PAGE_LIMITS, ++curPage * PER_PAGE_LIMITS);
+                nextPageRes = instance.range(curPage * PER_PAGE_LIMITS, PER_PAGE_LIMITS);
+                curPage++;
             } else {
                 nextPageRes = null;
             }
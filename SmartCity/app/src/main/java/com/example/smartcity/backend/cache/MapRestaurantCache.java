@@ -1,39 +1,289 @@
 package com.example.smartcity.backend.cache;
 
+import android.content.ComponentCallbacks2;
+
+import com.example.smartcity.backend.dataStructure.Geohash;
 import com.example.smartcity.backend.entity.Restaurant;
-import com.google.android.gms.maps.model.MarkerOptions;
-import android.util.Pair;
-import java.util.HashMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
 
 /**
  * This cache class is used for the subsequent loading of restaurants near the current location.
- * It stores cached restaurant data associated with specific location keys.
+ * It stores the restaurants of fixed map tiles, keyed by their geohash, so a small movement of
+ * the location still hits the same tiles, and overlapping areas share their tiles instead of
+ * being stored again. A lookup is covered by several tiles and only the missing ones are fetched.
+ * A tile keeps a compact array of its restaurants, which are the objects of the catalog rather
+ * than copies or map markers. Restaurant ids are not unique, so tiles do not share a table by id,
+ * and evicting a tile never affects another one. The cache is bounded by a number of tiles and by an estimate of the bytes it retains:
+ * beyond either budget the least recently used tiles are evicted, and tiles older than the time
+ * to live are fetched again. When restaurants are added to the catalog, only the tiles they fall
+ * in are dropped. It is trimmed when the system runs low on memory.
+ * It is thread-safe, and counts hits, misses and evictions.
  *
  */
 public class MapRestaurantCache {
+    // tiles of about 1.2 km by 0.6 km
+    public static final int TILE_PRECISION = 6;
+    public static final int DEFAULT_MAX_TILES = 256;
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+    public static final long DEFAULT_TTL_MILLIS = 30 * 60 * 1000;
+    // the estimated bytes retained by a tile, and by each restaurant of a tile, counting the
+    // restaurant itself as tiles filled from Firebase are the only references to it: its fields,
+    // boxed price level and slot in the tile, then each string and the list of types on top
+    static final int TILE_BYTES = 112;
+    static final int RESTAURANT_BYTES = 96;
+    static final int STRING_BYTES = 40;
+    static final int LIST_BYTES = 40;
+
     private static MapRestaurantCache instance;
-    private HashMap<String, List<Pair<MarkerOptions, Restaurant>>> cachedRestaurants;
+    private final int maxTiles;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final long maxBytes;
+    // access order, so iteration starts at the least recently used tile
+    private final LinkedHashMap<String, Tile> cachedTiles = new LinkedHashMap<>(16, 0.75f, true);
+    private long byteCount;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    // the restaurants of a tile, when it was stored, and the bytes it was estimated to retain
+    private static final class Tile {
+        final Restaurant[] restaurants;
+        final long storedAt;
+        final long bytes;
+
+        Tile(Restaurant[] restaurants, long storedAt) {
+            this.restaurants = restaurants;
+            this.storedAt = storedAt;
+            long bytes = TILE_BYTES;
+            for (Restaurant restaurant : restaurants) {
+                bytes += estimateBytes(restaurant);
+            }
+            this.bytes = bytes;
+        }
+    }
 
-    private MapRestaurantCache() {
-        cachedRestaurants = new HashMap<>();
+    /**
+     * Constructor for MapRestaurantCache class.
+     *
+     * @param maxTiles  The largest number of tiles
+     * @param maxBytes  The largest estimated number of bytes retained by the tiles
+     * @param ttlMillis How long a tile stays valid
+     * @param clock     Returns the current time in milliseconds
+     */
+    public MapRestaurantCache(int maxTiles, long maxBytes, long ttlMillis, LongSupplier clock) {
+        this.maxTiles = maxTiles;
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
     }
 
-    public static MapRestaurantCache getInstance() {
+    public static synchronized MapRestaurantCache getInstance() {
         if (instance == null) {
-            instance = new MapRestaurantCache();
+            instance = new MapRestaurantCache(DEFAULT_MAX_TILES, DEFAULT_MAX_BYTES, DEFAULT_TTL_MILLIS,
+                    System::currentTimeMillis);
         }
         return instance;
     }
 
     /**
-     * Retrieves the cached restaurants.
+     * Returns the tiles that are not cached yet, or whose time to live has passed.
+     * Every cached tile counts as a hit and every missing tile as a miss.
+     *
+     * @param tiles The geohashes of the tiles
+     * @return The geohashes of the tiles that must be fetched, in the given order
+     */
+    public synchronized List<String> getMissingTiles(List<String> tiles) {
+        List<String> missing = new ArrayList<>();
+        long now = clock.getAsLong();
+        for (String tile : tiles) {
+            Tile cached = cachedTiles.get(tile);
+            if (cached != null && now - cached.storedAt > ttlMillis) {
+                remove(tile);
+                cached = null;
+            }
+            if (cached == null) {
+                missCount++;
+                missing.add(tile);
+            } else {
+                hitCount++;
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Caches the restaurants of a tile. A tile without restaurants is cached as empty,
+     * so it is not fetched again. The least recently used tiles are evicted if the cache
+     * is over its budget.
+     *
+     * @param tile        The geohash of the tile
+     * @param restaurants All the restaurants in the tile
+     */
+    public synchronized void putTile(String tile, List<Restaurant> restaurants) {
+        remove(tile);
+        Tile cached = new Tile(restaurants.toArray(new Restaurant[0]), clock.getAsLong());
+        cachedTiles.put(tile, cached);
+        byteCount += cached.bytes;
+        trimTo(maxTiles, maxBytes);
+    }
+
+    /**
+     * Returns the cached restaurants of a tile.
+     *
+     * @param tile The geohash of the tile
+     * @return The restaurants in the tile, or null if the tile is not cached
+     */
+    public synchronized List<Restaurant> getTile(String tile) {
+        Tile cached = cachedTiles.get(tile);
+        return cached == null ? null : resolve(cached, new ArrayList<>());
+    }
+
+    /**
+     * Assembles the cached restaurants of several tiles. Tiles that are not cached are skipped.
      *
-     * @return A HashMap where the keys are location identifiers and the values are lists of
-     *         pairs containing MarkerOptions and Restaurant objects.
+     * @param tiles The geohashes of the tiles
+     * @return The restaurants in the tiles
      */
-    public HashMap<String, List<Pair<MarkerOptions, Restaurant>>> getCachedRestaurants() {
-        return cachedRestaurants;
+    public synchronized List<Restaurant> getRestaurants(List<String> tiles) {
+        List<Restaurant> results = new ArrayList<>();
+        for (String tile : tiles) {
+            Tile cached = cachedTiles.get(tile);
+            if (cached != null) {
+                resolve(cached, results);
+            }
+        }
+        return results;
     }
 
-}
\ No newline at end of file
+    /**
+     * Releases memory when the system asks for it: part of the cache while the app is running
+     * low on memory or hidden, and all of it once the app is in the background or memory is
+     * critically low.
+     *
+     * @param level The level passed to ComponentCallbacks2.onTrimMemory
+     */
+    public synchronized void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimTo(0, 0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimTo(cachedTiles.size() / 2, byteCount / 2);
+        }
+    }
+
+    /**
+     * Removes the given tiles, e.g. because restaurants were added in them.
+     * Tiles that are not cached are ignored.
+     *
+     * @param tiles The geohashes of the tiles
+     */
+    public synchronized void invalidate(Collection<String> tiles) {
+        for (String tile : tiles) {
+            remove(tile);
+        }
+    }
+
+    /**
+     * Returns the tiles the restaurants fall in. Restaurants without a location are left out.
+     *
+     * @param restaurants The restaurants
+     * @return The geohashes of their tiles
+     */
+    public static Set<String> tilesOf(Collection<Restaurant> restaurants) {
+        Set<String> tiles = new HashSet<>();
+        for (Restaurant restaurant : restaurants) {
+            if (restaurant.getLatitude() != 0 || restaurant.getLongitude() != 0) {
+                tiles.add(Geohash.encode(restaurant.getLatitude(), restaurant.getLongitude(), TILE_PRECISION));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Removes all the cached tiles.
+     */
+    public synchronized void clear() {
+        cachedTiles.clear();
+        byteCount = 0;
+    }
+
+    public synchronized int size() {
+        return cachedTiles.size();
+    }
+
+    /**
+     * @return The estimated number of bytes retained by the cached tiles
+     */
+    public synchronized long getByteCount() {
+        return byteCount;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    // evicts the least recently used tiles until both budgets are met
+    private void trimTo(int tiles, long bytes) {
+        Iterator<Tile> eldest = cachedTiles.values().iterator();
+        while ((cachedTiles.size() > tiles || byteCount > bytes) && eldest.hasNext()) {
+            Tile tile = eldest.next();
+            eldest.remove();
+            release(tile);
+            evictionCount++;
+        }
+    }
+
+    private void remove(String tile) {
+        Tile cached = cachedTiles.remove(tile);
+        if (cached != null) {
+            release(cached);
+        }
+    }
+
+    // accounts for a tile that is no longer cached
+    private void release(Tile tile) {
+        byteCount -= tile.bytes;
+    }
+
+    // estimates the bytes retained by a restaurant, counting two bytes per character
+    private static long estimateBytes(Restaurant restaurant) {
+        long bytes = RESTAURANT_BYTES + estimateBytes(restaurant.getName())
+                + estimateBytes(restaurant.getAddress()) + estimateBytes(restaurant.getPhoto_url())
+                + estimateBytes(restaurant.getEstimated_price());
+        List<String> types = restaurant.getTypes();
+        if (types != null) {
+            bytes += LIST_BYTES;
+            for (String type : types) {
+                bytes += 4 + estimateBytes(type);
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(String string) {
+        return string == null ? 0 : STRING_BYTES + 2L * string.length();
+    }
+
+    private static List<Restaurant> resolve(Tile tile, List<Restaurant> results) {
+        Collections.addAll(results, tile.restaurants);
+        return results;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.smartcity.backend.cache;
+
+import com.example.smartcity.backend.entity.Restaurant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This cache class is used for the results of recent searches.
+ * It keeps the most recently used results, keyed by the normalized query, the filter type
+ * and the sort option, and evicts the least recently used ones beyond its capacity.
+ * Every entry belongs to the version of the restaurant tree it was computed from, which is
+ * part of its key, so a lookup never returns results of another version of the catalog.
+ * Managers searching different versions (e.g. while the catalog is loading) share the cache
+ * without clearing each other's entries, and the entries of old versions are evicted as
+ * they fall out of use.
+ * It also counts hits and misses.
+ *
+ */
+public class SearchCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static SearchCache instance;
+    private final LinkedHashMap<String, List<Restaurant>> cachedResults;
+    private long hitCount;
+    private long missCount;
+
+    public SearchCache(int capacity) {
+        // access order, so iteration starts at the least recently used entry
+        cachedResults = new LinkedHashMap<String, List<Restaurant>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<Restaurant>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static synchronized SearchCache getInstance() {
+        if (instance == null) {
+            instance = new SearchCache(DEFAULT_CAPACITY);
+        }
+        return instance;
+    }
+
+    /**
+     * Retrieves the cached results of a search.
+     *
+     * @param key     The key of the search
+     * @param version The version of the restaurant tree the search runs on
+     * @return The cached results, or null if the search is not cached for this version
+     */
+    public synchronized List<Restaurant> get(String key, long version) {
+        List<Restaurant> results = cachedResults.get(versionedKey(key, version));
+        if (results == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return new ArrayList<>(results);
+    }
+
+    /**
+     * Stores the results of a search.
+     *
+     * @param key     The key of the search
+     * @param version The version of the restaurant tree the search ran on
+     * @param results The results of the search
+     */
+    public synchronized void put(String key, long version, List<Restaurant> results) {
+        cachedResults.put(versionedKey(key, version), Collections.unmodifiableList(new ArrayList<>(results)));
+    }
+
+    /**
+     * Builds the key of a search.
+     *
+     * @param tokens     The normalized tokens of the query
+     * @param filterType The filter type
+     * @param sortBy     The sort option
+     * @param limit      The largest number of results
+     * @return The key of the search
+     */
+    public static String key(List<String> tokens, String filterType, String sortBy, int limit) {
+        StringBuilder key = new StringBuilder();
+        for (String token : tokens) {
+            key.append(token).append('\u0001');
+        }
+        // the separators do not occur in queries, so different searches never share a key
+        return key.append('\u0000').append(filterType)
+                .append('\u0000').append(sortBy)
+                .append('\u0000').append(limit)
+                .toString();
+    }
+
+    public synchronized void clear() {
+        cachedResults.clear();
+    }
+
+    public synchronized int size() {
+        return cachedResults.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    // the key of an entry, the separator does not occur in search keys
+    private static String versionedKey(String key, long version) {
+        return version + "\u0002" + key;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.smartcity.backend.dao;
+
+import com.example.smartcity.backend.entity.Restaurant;
+import com.example.smartcity.util.DataCallback;
+
+import java.util.List;
+
+/**
+ * CatalogDao reads the restaurant catalog one page at a time, in key order,
+ * so the catalog can be searched before all of it has been downloaded.
+ */
+public interface CatalogDao {
+
+    /**
+     * A page of the catalog and the key to continue from.
+     */
+    final class Page {
+        private final List<Restaurant> restaurants;
+        private final String lastKey;
+        private final int childCount;
+
+        /**
+         * @param restaurants the restaurants of the page that could be read
+         * @param lastKey     the key of the last child of the page, or null if the page is empty
+         * @param childCount  the number of children in the page, including those that could not be read
+         */
+        public Page(List<Restaurant> restaurants, String lastKey, int childCount) {
+            this.restaurants = restaurants;
+            this.lastKey = lastKey;
+            this.childCount = childCount;
+        }
+
+        public List<Restaurant> getRestaurants() {
+            return restaurants;
+        }
+
+        /**
+         * @return the key of the last restaurant of the page, or null if the page is empty
+         */
+        public String getLastKey() {
+            return lastKey;
+        }
+
+        /**
+         * @return the number of children in the page, which is less than the page size only on the last page
+         */
+        public int getChildCount() {
+            return childCount;
+        }
+    }
+
+    /**
+     * This method used to load the next page of restaurants
+     * @param afterKey the key of the last restaurant of the previous page, or null for the first page
+     * @param pageSize the largest number of restaurants in the page
+     * @param callback The callback will return the page on success
+     *                 or an error message on failure.
+     */
+    void loadPage(String afterKey, int pageSize, DataCallback<Page> callback);
+}
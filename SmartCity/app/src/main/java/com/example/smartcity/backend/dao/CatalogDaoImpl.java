@@ -0,0 +1,62 @@
+package com.example.smartcity.backend.dao;
+
+import androidx.annotation.NonNull;
+
+import com.example.smartcity.backend.entity.Restaurant;
+import com.example.smartcity.util.DataCallback;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.Query;
+import com.google.firebase.database.ValueEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implementation of the CatalogDao interface to read the restaurants from Firebase in pages.
+ */
+public class CatalogDaoImpl implements CatalogDao {
+
+    private final DatabaseReference restaurantRef;
+
+    public CatalogDaoImpl() {
+        restaurantRef = FirebaseDatabase.getInstance().getReference().child("restaurants");
+    }
+
+    /**
+     * Load the restaurants after the given key, ordered by key
+     * @param afterKey the key of the last restaurant of the previous page, or null for the first page
+     * @param pageSize the largest number of restaurants in the page
+     * @param callback The callback will return the page on success
+     *                 or an error message on failure.
+     */
+    @Override
+    public void loadPage(String afterKey, int pageSize, DataCallback<Page> callback) {
+        Query query = restaurantRef.orderByKey();
+        if (afterKey != null) {
+            query = query.startAfter(afterKey);
+        }
+        query.limitToFirst(pageSize).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
+                List<Restaurant> restaurants = new ArrayList<>((int) dataSnapshot.getChildrenCount());
+                String lastKey = null;
+                for (DataSnapshot child : dataSnapshot.getChildren()) {
+                    lastKey = child.getKey();
+                    Restaurant restaurant = child.getValue(Restaurant.class);
+                    if (restaurant != null) {
+                        restaurants.add(restaurant);
+                    }
+                }
+                callback.onSuccess(new Page(restaurants, lastKey, (int) dataSnapshot.getChildrenCount()));
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onFailure(error.getMessage());
+            }
+        });
+    }
+}
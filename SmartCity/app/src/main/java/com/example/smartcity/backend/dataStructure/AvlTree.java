@@ -2,27 +2,59 @@ package com.example.smartcity.backend.dataStructure;
 
 import com.example.smartcity.backend.entity.Restaurant;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * AvlTree is a generic AVL tree implementation.
- * It supports insertion, searching, and traversal operations.
+ * It supports insertion, deletion, update, searching, and traversal operations,
+ * and applies batches of mutations with one rebalancing pass per affected path.
+ * Every node also records the size of its subtree, so the tree supports order-statistic
+ * queries (select by rank, rank of a key and range by rank) in O(log n).
+ * It can be walked lazily in order with an iterator, or streamed (also in parallel) through a
+ * spliterator that splits at subtree boundaries, without copying the elements into a list.
+ * <p>
+ * The tree is persistent: nodes are never modified after they are built. An insert copies
+ * only the nodes on the path from the root to the new leaf (plus any rotated nodes) and
+ * publishes the new root together with its version through an atomic reference, so a reader
+ * never sees a root with the version of another root. Every read works on the root it saw
+ * when it started, so readers get a consistent snapshot without taking a lock while
+ * background loaders keep writing.
  * It is used to store and manage data in a balanced binary search tree.
  * It supports generic data types that implement the Comparable interface by default.
  *
  * @param <T> the type of data to be stored in the AVL tree
  */
-public class AvlTree<T extends Comparable<T>> {
+public class AvlTree<T extends Comparable<T>> implements Iterable<T> {
     public static class Node<T> {
-        private T data;
-        private Node<T> left;
-        private Node<T> right;
-        private int height;
+        private final T data;
+        private final Node<T> left;
+        private final Node<T> right;
+        private final int height;
+        private final int size;
 
         public Node(T data) {
+            this(data, null, null);
+        }
+
+        private Node(T data, Node<T> left, Node<T> right) {
             this.data = data;
-            this.height = 1;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(left == null ? 0 : left.height, right == null ? 0 : right.height);
+            this.size = 1 + (left == null ? 0 : left.size) + (right == null ? 0 : right.size);
         }
 
         public T getData() {
@@ -41,37 +73,381 @@ public class AvlTree<T extends Comparable<T>> {
             return height;
         }
 
+        public int getSize() {
+            return size;
+        }
+
         public String toString() {
             return data.toString();
         }
     }
 
-    private Node<T> root;
+    // every change of any tree takes the next version, so versions are unique across trees
+    private static final AtomicLong NEXT_VERSION = new AtomicLong();
+
+    // a root and the version of the contents it holds, always published together
+    private static final class State<T> {
+        private final Node<T> root;
+        private final long version;
+
+        private State(Node<T> root, long version) {
+            this.root = root;
+            this.version = version;
+        }
+
+        // the state holding a changed root, with the next version
+        private static <T> State<T> of(Node<T> root) {
+            return new State<>(root, NEXT_VERSION.incrementAndGet());
+        }
+    }
+
+    private final AtomicReference<State<T>> state;
+
+    public AvlTree() {
+        this.state = new AtomicReference<>(State.of(null));
+    }
+
+    private AvlTree(State<T> state) {
+        this.state = new AtomicReference<>(state);
+    }
+
+    /**
+     * Returns the version of the contents of the tree.
+     * The version changes whenever the tree is changed, and a snapshot has the version of
+     * the tree it was taken from, so results derived from a tree can be cached under its version.
+     *
+     * @return the version of the tree
+     */
+    public long getVersion() {
+        return state.get().version;
+    }
+
+    // the current root
+    private Node<T> root() {
+        return state.get().root;
+    }
+
+    // publishes a new root with the next version, if the state has not changed since it was read
+    private boolean publish(State<T> oldState, Node<T> newRoot) {
+        return state.compareAndSet(oldState, State.of(newRoot));
+    }
+
+    /**
+     * Returns an independent tree holding the current contents of this tree.
+     * This is O(1) as the snapshot shares all its nodes with this tree, and later
+     * changes to either tree are not visible in the other one.
+     *
+     * @return a snapshot of the tree
+     */
+    public AvlTree<T> snapshot() {
+        return new AvlTree<>(state.get());
+    }
 
     // Insert data into the AVL tree
     public void insert(T data) {
-        root = insert(root, data);
+        State<T> oldState;
+        Node<T> oldRoot;
+        Node<T> newRoot;
+        do {
+            oldState = state.get();
+            oldRoot = oldState.root;
+            newRoot = insert(oldRoot, data);
+            if (newRoot == oldRoot) {
+                return;
+            }
+        } while (!publish(oldState, newRoot));
     }
 
+    // Return the root of a copy of the subtree with the data inserted
     private Node<T> insert(Node<T> node, T data) {
         if (node == null) {
             return new Node<>(data);
         }
         int cmp = data.compareTo(node.data);
         if (cmp < 0) {
-            node.left = insert(node.left, data);
+            Node<T> left = insert(node.left, data);
+            return left == node.left ? node : balance(left, node.data, node.right);
         } else if (cmp > 0) {
-            node.right = insert(node.right, data);
+            Node<T> right = insert(node.right, data);
+            return right == node.right ? node : balance(node.left, node.data, right);
         } else {
             return node;
         }
-        node.height = 1 + Math.max(height(node.left), height(node.right));
-        return balance(node);
+    }
+
+    /**
+     * Deletes the element equal to the given key from the tree in O(log n).
+     *
+     * @param key the key of the element to delete
+     * @return true if an element was deleted, false if there was no such element
+     */
+    public boolean delete(T key) {
+        State<T> oldState;
+        Node<T> oldRoot;
+        Node<T> newRoot;
+        do {
+            oldState = state.get();
+            oldRoot = oldState.root;
+            newRoot = delete(oldRoot, key);
+            if (newRoot == oldRoot) {
+                return false;
+            }
+        } while (!publish(oldState, newRoot));
+        return true;
+    }
+
+    // Return the root of a copy of the subtree with the key deleted
+    private Node<T> delete(Node<T> node, T key) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = key.compareTo(node.data);
+        if (cmp < 0) {
+            Node<T> left = delete(node.left, key);
+            return left == node.left ? node : balance(left, node.data, node.right);
+        } else if (cmp > 0) {
+            Node<T> right = delete(node.right, key);
+            return right == node.right ? node : balance(node.left, node.data, right);
+        } else {
+            return join(node.left, node.right);
+        }
+    }
+
+    /**
+     * Replaces the element equal to the given key with the result of the mutator in O(log n).
+     * If the new element has the same key it replaces the old one in place, if it has a
+     * different key (e.g. the restaurant was renamed) it is moved to its new position,
+     * and if the mutator returns null the element is deleted. If the new key already belongs
+     * to another element, the tree is left unchanged rather than losing one of the two.
+     * <p>
+     * As the tree is persistent and shared with snapshots, the mutator should return a new
+     * object instead of changing the one it is given, and it may be called more than once
+     * if another thread changes the tree at the same time.
+     *
+     * @param key     the key of the element to update
+     * @param mutator the function computing the new element from the old one
+     * @return true if an element was found and updated, false if there was no such element
+     * or its new key belongs to another element
+     */
+    public boolean update(T key, UnaryOperator<T> mutator) {
+        State<T> oldState;
+        Node<T> oldRoot;
+        Node<T> newRoot;
+        do {
+            oldState = state.get();
+            oldRoot = oldState.root;
+            T oldData = find(oldRoot, key);
+            if (oldData == null) {
+                return false;
+            }
+            T newData = mutator.apply(oldData);
+            if (newData == null) {
+                newRoot = delete(oldRoot, key);
+            } else if (newData.compareTo(oldData) == 0) {
+                newRoot = replace(oldRoot, newData);
+            } else if (find(oldRoot, newData) != null) {
+                return false;
+            } else {
+                newRoot = insert(delete(oldRoot, key), newData);
+            }
+        } while (!publish(oldState, newRoot));
+        return true;
+    }
+
+    // Find the element equal to the key in the subtree
+    private T find(Node<T> node, T key) {
+        while (node != null) {
+            int cmp = key.compareTo(node.data);
+            if (cmp == 0) {
+                return node.data;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    // Return a copy of the subtree with the element equal to data replaced by data, the shape does not change
+    private Node<T> replace(Node<T> node, T data) {
+        int cmp = data.compareTo(node.data);
+        if (cmp < 0) {
+            return new Node<>(node.data, replace(node.left, data), node.right);
+        } else if (cmp > 0) {
+            return new Node<>(node.data, node.left, replace(node.right, data));
+        } else {
+            return new Node<>(data, node.left, node.right);
+        }
+    }
+
+    /**
+     * Applies a batch of insert, delete and update mutations as one atomic change.
+     * The mutations are sorted by key and pushed down the tree together, so each node on an
+     * affected path is copied and rebalanced once for the whole batch (by joining its new
+     * subtrees) instead of once per mutation. Mutations on the same key are applied in the
+     * order they appear in the list. Updates that change the key of an element are inserted
+     * at their new position after the batch, or kept at their old one if the new key belongs
+     * to another element.
+     *
+     * @param mutations the mutations to apply
+     */
+    public void applyAll(List<Mutation<T>> mutations) {
+        List<Mutation<T>> sorted = new ArrayList<>(mutations);
+        // stable sort, so mutations on the same key keep their order
+        sorted.sort((m1, m2) -> m1.key.compareTo(m2.key));
+
+        State<T> oldState;
+        Node<T> oldRoot;
+        Node<T> newRoot;
+        do {
+            oldState = state.get();
+            oldRoot = oldState.root;
+            List<Move<T>> moved = new ArrayList<>();
+            newRoot = applyAll(oldRoot, sorted, 0, sorted.size(), moved);
+            for (Move<T> move : moved) {
+                newRoot = insert(newRoot, find(newRoot, move.to) == null ? move.to : move.from);
+            }
+        } while (!publish(oldState, newRoot));
+    }
+
+    // Apply the sorted mutations in [from, to), which all belong to the subtree
+    private Node<T> applyAll(Node<T> node, List<Mutation<T>> mutations, int from, int to, List<Move<T>> moved) {
+        if (from >= to) {
+            return node;
+        }
+        if (node == null) {
+            // only inserts can add anything to an empty subtree, build it in one go
+            List<T> inserted = new ArrayList<>();
+            int groupStart = from;
+            while (groupStart < to) {
+                int groupEnd = upperBound(mutations, groupStart, to, mutations.get(groupStart).key);
+                T data = applyGroup(null, mutations, groupStart, groupEnd, moved);
+                if (data != null) {
+                    inserted.add(data);
+                }
+                groupStart = groupEnd;
+            }
+            return buildFromSorted(inserted, 0, inserted.size() - 1);
+        }
+
+        int lo = lowerBound(mutations, from, to, node.data);
+        int hi = upperBound(mutations, lo, to, node.data);
+        Node<T> left = applyAll(node.left, mutations, from, lo, moved);
+        Node<T> right = applyAll(node.right, mutations, hi, to, moved);
+        T data = applyGroup(node.data, mutations, lo, hi, moved);
+
+        if (data == null) {
+            return join(left, right);
+        } else if (left == node.left && right == node.right && data == node.data) {
+            return node;
+        }
+        return join(left, data, right);
+    }
+
+    // Apply the mutations in [from, to), which all have the same key, to the element with that key
+    private T applyGroup(T data, List<Mutation<T>> mutations, int from, int to, List<Move<T>> moved) {
+        for (int i = from; i < to; i++) {
+            Mutation<T> mutation = mutations.get(i);
+            switch (mutation.kind) {
+                case INSERT:
+                    if (data == null) {
+                        data = mutation.key;
+                    }
+                    break;
+                case DELETE:
+                    data = null;
+                    break;
+                case UPDATE:
+                    if (data != null) {
+                        T newData = mutation.mutator.apply(data);
+                        if (newData != null && newData.compareTo(data) != 0) {
+                            moved.add(new Move<>(data, newData));
+                            newData = null;
+                        }
+                        data = newData;
+                    }
+                    break;
+            }
+        }
+        return data;
+    }
+
+    // Index of the first mutation in [from, to) whose key is not smaller than the given key
+    private int lowerBound(List<Mutation<T>> mutations, int from, int to, T key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (mutations.get(mid).key.compareTo(key) < 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    // Index of the first mutation in [from, to) whose key is greater than the given key
+    private int upperBound(List<Mutation<T>> mutations, int from, int to, T key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (mutations.get(mid).key.compareTo(key) <= 0) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * Replaces the contents of the tree with the given data, which must already be sorted
+     * in ascending order without duplicates.
+     * The tree is built bottom-up by always choosing the middle element as the subtree root,
+     * so the result is perfectly balanced and built in O(n) time without any rotations.
+     *
+     * @param sortedData the data to build the tree from, sorted in ascending order
+     * @throws IllegalArgumentException if the data is not strictly ascending
+     */
+    public void buildFromSorted(List<T> sortedData) {
+        for (int i = 1; i < sortedData.size(); i++) {
+            if (sortedData.get(i - 1).compareTo(sortedData.get(i)) >= 0) {
+                throw new IllegalArgumentException("Data is not strictly ascending at index " + i);
+            }
+        }
+        state.set(State.of(buildFromSorted(sortedData, 0, sortedData.size() - 1)));
+    }
+
+    /**
+     * Replaces the contents of the tree with the given data in any order.
+     * The data is sorted first and equal elements are dropped, keeping the first one,
+     * which matches the behaviour of calling insert for each element.
+     *
+     * @param data the data to build the tree from
+     */
+    public void buildFrom(Collection<T> data) {
+        List<T> sorted = new ArrayList<>(data);
+        // stable sort, so the first of several equal elements stays in front
+        sorted.sort(null);
+
+        List<T> distinct = new ArrayList<>(sorted.size());
+        for (T item : sorted) {
+            if (distinct.isEmpty() || distinct.get(distinct.size() - 1).compareTo(item) != 0) {
+                distinct.add(item);
+            }
+        }
+        state.set(State.of(buildFromSorted(distinct, 0, distinct.size() - 1)));
+    }
+
+    private Node<T> buildFromSorted(List<T> sortedData, int from, int to) {
+        if (from > to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        Node<T> left = buildFromSorted(sortedData, from, mid - 1);
+        Node<T> right = buildFromSorted(sortedData, mid + 1, to);
+        return new Node<>(sortedData.get(mid), left, right);
     }
 
     // Search for an exact match by name
     public T searchExact(String name) {
-        return searchExact(root, name);
+        return searchExact(root(), name);
     }
 
     public T searchExact(Node<T> node, String name) {
@@ -92,7 +468,7 @@ public class AvlTree<T extends Comparable<T>> {
     // Search for nodes whose names contain the given prefix
     public List<T> searchByContains(String prefix) {
         List<T> list = new ArrayList<>();
-        searchByContains(root, prefix, list);
+        searchByContains(root(), prefix, list);
         return list;
     }
 
@@ -108,9 +484,45 @@ public class AvlTree<T extends Comparable<T>> {
         searchByContains(node.right, prefix, list);
     }
 
+    /**
+     * Searches for nodes whose names start with the given prefix.
+     * As the tree is ordered by name, all matches are adjacent in order. It seeks to the
+     * first name that is not smaller than the prefix and walks forward only while the names
+     * still start with it, so the cost is O(log n + k) for k matches.
+     *
+     * @param prefix the prefix to search for
+     * @return the matching elements in ascending order
+     */
+    public List<T> searchByPrefix(String prefix) {
+        return searchByPrefix(prefix, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches for at most limit nodes whose names start with the given prefix.
+     *
+     * @param prefix the prefix to search for
+     * @param limit  the maximum number of matches to return
+     * @return the first matching elements in ascending order
+     */
+    public List<T> searchByPrefix(String prefix, int limit) {
+        List<T> list = new ArrayList<>();
+        InOrderIterator iterator = new InOrderIterator(root());
+        iterator.seekName(prefix);
+        while (list.size() < limit && iterator.hasNext()) {
+            T data = iterator.next();
+            Restaurant restaurant = (Restaurant) data;
+            if (!restaurant.getName().startsWith(prefix)) {
+                break;
+            }
+            list.add(data);
+        }
+        return list;
+    }
+
     // Convert the AVL tree to a list in order
     public List<T> toList() {
-        List<T> list = new ArrayList<>();
+        Node<T> root = root();
+        List<T> list = new ArrayList<>(size(root));
         inOrderTraversal(root, list);
         return list;
     }
@@ -123,62 +535,533 @@ public class AvlTree<T extends Comparable<T>> {
         }
     }
 
-    // Balance the AVL tree
-    private Node<T> balance(Node<T> node) {
-        if (node == null) return null;
+    /**
+     * Returns a lazy iterator over the elements in ascending order.
+     * It keeps only the path to the next element on a stack, so creating it is O(log n)
+     * and the walk can stop early without visiting the rest of the tree.
+     *
+     * @return an iterator positioned at the smallest element
+     */
+    @Override
+    public InOrderIterator iterator() {
+        InOrderIterator iterator = new InOrderIterator(root());
+        iterator.pushLeftPath(iterator.root);
+        return iterator;
+    }
+
+    /**
+     * Returns a lazy iterator over the elements in ascending order,
+     * starting at the smallest element that is greater than or equal to fromKey.
+     *
+     * @param fromKey the key to start from
+     * @return an iterator positioned at the ceiling of fromKey
+     */
+    public InOrderIterator iterator(T fromKey) {
+        InOrderIterator iterator = new InOrderIterator(root());
+        iterator.seek(fromKey);
+        return iterator;
+    }
+
+    /**
+     * Returns a spliterator over the elements in ascending order.
+     * It splits at subtree boundaries using the stored subtree sizes, so both halves
+     * report their exact size and parallel streams divide the work evenly.
+     *
+     * @return a spliterator over the tree
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new TreeSpliterator<>(root());
+    }
+
+    /**
+     * Returns a sequential stream over the elements in ascending order.
+     *
+     * @return a stream over the tree
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns a parallel stream over the elements.
+     *
+     * @return a parallel stream over the tree
+     */
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * A stack-based in-order iterator over the AVL tree.
+     * The stack holds the nodes on the path to the next element whose own element
+     * and right subtree have not been visited yet.
+     * It walks the snapshot of the tree taken when it was created.
+     */
+    public class InOrderIterator implements Iterator<T> {
+        private final Node<T> root;
+        private final ArrayDeque<Node<T>> stack = new ArrayDeque<>();
+
+        private InOrderIterator(Node<T> root) {
+            this.root = root;
+        }
+
+        /**
+         * Moves the iterator to the smallest element that is greater than or equal to fromKey.
+         *
+         * @param fromKey the key to move to
+         */
+        public void seek(T fromKey) {
+            stack.clear();
+            Node<T> node = root;
+            while (node != null) {
+                if (fromKey.compareTo(node.data) <= 0) {
+                    stack.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        // Move the iterator to the first element whose name is not smaller than the given name
+        private void seekName(String name) {
+            stack.clear();
+            Node<T> node = root;
+            while (node != null) {
+                Restaurant restaurant = (Restaurant) node.data;
+                if (name.compareTo(restaurant.getName()) <= 0) {
+                    stack.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<T> node = stack.pop();
+            pushLeftPath(node.right);
+            return node.data;
+        }
+
+        private void pushLeftPath(Node<T> node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+    }
+
+    /**
+     * A spliterator over a sequence of pieces of the tree, in order.
+     * A piece is either a whole subtree or a single node without its children.
+     * Splitting hands the first half of the pieces to a new spliterator, and expands
+     * a subtree into (left subtree, node, right subtree) when it is too large to hand out whole.
+     */
+    private static final class TreeSpliterator<T> implements Spliterator<T> {
+        private final ArrayDeque<Piece<T>> pieces;
+        private long remaining;
+
+        TreeSpliterator(Node<T> root) {
+            this.pieces = new ArrayDeque<>();
+            if (root != null) {
+                pieces.add(new Piece<>(root, true));
+                remaining = root.size;
+            }
+        }
+
+        private TreeSpliterator(ArrayDeque<Piece<T>> pieces, long remaining) {
+            this.pieces = pieces;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (!pieces.isEmpty()) {
+                Piece<T> piece = pieces.pollFirst();
+                if (piece.whole) {
+                    expandFirst(piece);
+                } else {
+                    remaining--;
+                    action.accept(piece.node.data);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (!pieces.isEmpty()) {
+                Piece<T> piece = pieces.pollFirst();
+                if (piece.whole) {
+                    forEachInOrder(piece.node, action);
+                } else {
+                    action.accept(piece.node.data);
+                }
+            }
+            remaining = 0;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            // expand a subtree that holds more than half of the elements so that it can be shared
+            while (!pieces.isEmpty()) {
+                Piece<T> first = pieces.peekFirst();
+                Piece<T> last = pieces.peekLast();
+                if (first.whole && first.node.size > 1 && first.node.size * 2L > remaining) {
+                    expandFirst(pieces.pollFirst());
+                } else if (last.whole && last.node.size > 1 && last.node.size * 2L > remaining) {
+                    expandLast(pieces.pollLast());
+                } else {
+                    break;
+                }
+            }
+            if (pieces.size() < 2) {
+                return null;
+            }
+
+            ArrayDeque<Piece<T>> prefix = new ArrayDeque<>();
+            long prefixSize = 0;
+            while (pieces.size() > 1 && prefixSize < remaining / 2) {
+                Piece<T> piece = pieces.pollFirst();
+                prefix.addLast(piece);
+                prefixSize += piece.size();
+            }
+            remaining -= prefixSize;
+            return new TreeSpliterator<>(prefix, prefixSize);
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            // the elements are in their natural order
+            return null;
+        }
+
+        private void expandFirst(Piece<T> piece) {
+            Node<T> node = piece.node;
+            if (node.right != null) {
+                pieces.addFirst(new Piece<>(node.right, true));
+            }
+            pieces.addFirst(new Piece<>(node, false));
+            if (node.left != null) {
+                pieces.addFirst(new Piece<>(node.left, true));
+            }
+        }
+
+        private void expandLast(Piece<T> piece) {
+            Node<T> node = piece.node;
+            if (node.left != null) {
+                pieces.addLast(new Piece<>(node.left, true));
+            }
+            pieces.addLast(new Piece<>(node, false));
+            if (node.right != null) {
+                pieces.addLast(new Piece<>(node.right, true));
+            }
+        }
+
+        private static <T> void forEachInOrder(Node<T> node, Consumer<? super T> action) {
+            while (node != null) {
+                forEachInOrder(node.left, action);
+                action.accept(node.data);
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * A single change to apply to the tree with applyAll.
+     *
+     * @param <T> the type of data stored in the tree
+     */
+    public static final class Mutation<T> {
+        private enum Kind {
+            INSERT, DELETE, UPDATE
+        }
+
+        private final Kind kind;
+        private final T key;
+        private final UnaryOperator<T> mutator;
+
+        private Mutation(Kind kind, T key, UnaryOperator<T> mutator) {
+            this.kind = kind;
+            this.key = key;
+            this.mutator = mutator;
+        }
 
-        int balance = height(node.left) - height(node.right);
+        /**
+         * Creates a mutation inserting the data, unless an equal element is already present.
+         *
+         * @param data the data to insert
+         * @return the mutation
+         */
+        public static <T> Mutation<T> insert(T data) {
+            return new Mutation<>(Kind.INSERT, data, null);
+        }
+
+        /**
+         * Creates a mutation deleting the element equal to the key.
+         *
+         * @param key the key of the element to delete
+         * @return the mutation
+         */
+        public static <T> Mutation<T> delete(T key) {
+            return new Mutation<>(Kind.DELETE, key, null);
+        }
+
+        /**
+         * Creates a mutation replacing the element equal to the key, with the same rules as update.
+         *
+         * @param key     the key of the element to update
+         * @param mutator the function computing the new element from the old one
+         * @return the mutation
+         */
+        public static <T> Mutation<T> update(T key, UnaryOperator<T> mutator) {
+            return new Mutation<>(Kind.UPDATE, key, mutator);
+        }
+    }
+
+    // an element whose key was changed by an update of a batch
+    private static final class Move<T> {
+        private final T from;
+        private final T to;
+
+        Move(T from, T to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static final class Piece<T> {
+        private final Node<T> node;
+        private final boolean whole;
+
+        Piece(Node<T> node, boolean whole) {
+            this.node = node;
+            this.whole = whole;
+        }
+
+        long size() {
+            return whole ? node.size : 1;
+        }
+    }
+
+    // Build a balanced node from two subtrees whose heights differ by at most two
+    private Node<T> balance(Node<T> left, T data, Node<T> right) {
+        int balance = height(left) - height(right);
         if (balance > 1) {
-            if (height(node.left.left) < height(node.left.right)) {
-                node.left = rotateLeft(node.left);
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left);
             }
-            node = rotateRight(node);
+            return rotateRight(new Node<>(data, left, right));
         } else if (balance < -1) {
-            if (height(node.right.right) < height(node.right.left)) {
-                node.right = rotateRight(node.right);
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right);
             }
-            node = rotateLeft(node);
+            return rotateLeft(new Node<>(data, left, right));
+        }
+        return new Node<>(data, left, right);
+    }
+
+    // Join two subtrees of any heights, where every element of left is smaller than every element of right
+    private Node<T> join(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        } else if (right == null) {
+            return left;
+        }
+        Node<T> min = right;
+        while (min.left != null) {
+            min = min.left;
+        }
+        return join(left, min.data, delete(right, min.data));
+    }
+
+    // Join two subtrees of any heights around data, which lies between them, in O(|height difference|)
+    private Node<T> join(Node<T> left, T data, Node<T> right) {
+        if (height(left) > height(right) + 1) {
+            return joinRight(left, data, right);
+        } else if (height(right) > height(left) + 1) {
+            return joinLeft(left, data, right);
+        }
+        return new Node<>(data, left, right);
+    }
+
+    // Join when left is taller: walk down its right spine to a subtree as tall as right
+    private Node<T> joinRight(Node<T> left, T data, Node<T> right) {
+        if (height(left.right) <= height(right) + 1) {
+            Node<T> joined = new Node<>(data, left.right, right);
+            if (height(joined) <= height(left.left) + 1) {
+                return new Node<>(left.data, left.left, joined);
+            }
+            return rotateLeft(new Node<>(left.data, left.left, rotateRight(joined)));
+        }
+        Node<T> joined = joinRight(left.right, data, right);
+        Node<T> node = new Node<>(left.data, left.left, joined);
+        if (height(joined) <= height(left.left) + 1) {
+            return node;
         }
-        return node;
+        return rotateLeft(node);
     }
 
-    // Rotate the subtree lef
+    // Join when right is taller: walk down its left spine to a subtree as tall as left
+    private Node<T> joinLeft(Node<T> left, T data, Node<T> right) {
+        if (height(right.left) <= height(left) + 1) {
+            Node<T> joined = new Node<>(data, left, right.left);
+            if (height(joined) <= height(right.right) + 1) {
+                return new Node<>(right.data, joined, right.right);
+            }
+            return rotateRight(new Node<>(right.data, rotateLeft(joined), right.right));
+        }
+        Node<T> joined = joinLeft(left, data, right.left);
+        Node<T> node = new Node<>(right.data, joined, right.right);
+        if (height(joined) <= height(right.right) + 1) {
+            return node;
+        }
+        return rotateRight(node);
+    }
+
+    // Rotate the subtree left, copying the two nodes that change
     private Node<T> rotateLeft(Node<T> node) {
         Node<T> newRoot = node.right;
-        node.right = newRoot.left;
-        newRoot.left = node;
-        node.height = 1 + Math.max(height(node.left), height(node.right));
-        newRoot.height = 1 + Math.max(height(newRoot.left), height(newRoot.right));
-        return newRoot;
+        Node<T> newLeft = new Node<>(node.data, node.left, newRoot.left);
+        return new Node<>(newRoot.data, newLeft, newRoot.right);
     }
 
-    // Rotate the subtree right
+    // Rotate the subtree right, copying the two nodes that change
     private Node<T> rotateRight(Node<T> node) {
         Node<T> newRoot = node.left;
-        node.left = newRoot.right;
-        newRoot.right = node;
-        node.height = 1 + Math.max(height(node.left), height(node.right));
-        newRoot.height = 1 + Math.max(height(newRoot.left), height(newRoot.right));
-        return newRoot;
+        Node<T> newRight = new Node<>(node.data, newRoot.right, node.right);
+        return new Node<>(newRoot.data, newRoot.left, newRight);
     }
 
     private int height(Node<T> node) {
         return node == null ? 0 : node.height;
     }
 
+    private int size(Node<T> node) {
+        return node == null ? 0 : node.size;
+    }
+
     // Calculate the total number of nodes
     public int countNodes() {
-        return countNodes(root);
+        return size(root());
     }
 
-    private int countNodes(Node<T> node) {
-        if (node == null) {
-            return 0;
+    /**
+     * Returns the number of elements in the tree in O(1).
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size(root());
+    }
+
+    /**
+     * Returns the element at the given position in sorted order.
+     *
+     * @param rank the zero-based position of the element
+     * @return the element with exactly rank smaller elements
+     * @throws IndexOutOfBoundsException if rank is negative or not less than size()
+     */
+    public T select(int rank) {
+        Node<T> root = root();
+        if (rank < 0 || rank >= size(root)) {
+            throw new IndexOutOfBoundsException("Rank: " + rank + ", Size: " + size(root));
+        }
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank > leftSize) {
+                rank -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.data;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of elements that are strictly smaller than the given key.
+     * If the key is in the tree this is its zero-based position in sorted order,
+     * otherwise it is the position the key would be inserted at.
+     *
+     * @param key the key to look up
+     * @return the number of elements smaller than key
+     */
+    public int rank(T key) {
+        int rank = 0;
+        Node<T> node = root();
+        while (node != null) {
+            int cmp = key.compareTo(node.data);
+            if (cmp <= 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * Returns up to count elements in sorted order, starting at the given rank.
+     * It descends to the first element in O(log n) and then walks only the requested
+     * elements, so the cost is O(log n + count) no matter how large the tree is.
+     *
+     * @param fromRank the zero-based position of the first element
+     * @param count    the maximum number of elements to return
+     * @return the elements in the range, empty if fromRank is past the end
+     */
+    public List<T> range(int fromRank, int count) {
+        Node<T> root = root();
+        int from = Math.max(fromRank, 0);
+        int to = (int) Math.min((long) from + Math.max(count, 0), size(root));
+        List<T> list = new ArrayList<>(Math.max(to - from, 0));
+        range(root, from, to, list);
+        return list;
+    }
+
+    // Collect the elements whose ranks are in [from, to) within the subtree
+    private void range(Node<T> node, int from, int to, List<T> list) {
+        if (node == null || from >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            range(node.left, from, Math.min(to, leftSize), list);
+        }
+        if (from <= leftSize && leftSize < to) {
+            list.add(node.data);
+        }
+        if (to > leftSize + 1) {
+            range(node.right, Math.max(from - leftSize - 1, 0), to - leftSize - 1, list);
         }
-        return 1 + countNodes(node.left) + countNodes(node.right);
     }
 
     public Node<T> getRoot() {
-        return root;
+        return root();
     }
 }
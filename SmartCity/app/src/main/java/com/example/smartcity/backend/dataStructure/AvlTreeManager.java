@@ -6,18 +6,31 @@ import com.example.smartcity.backend.entity.Restaurant;
  * AvlTreeManager is a singleton class that manages the AVL tree of restaurants.
  * It ensures that there is only one instance of the AVL tree in the application.
  * It implements the Singleton design pattern.
+ * The instance is created by the class loader through a holder class, so it is created
+ * exactly once even when several threads ask for it at the same time.
  *
  */
 public class AvlTreeManager {
-    private static AvlTree<Restaurant> instance;
 
     private AvlTreeManager() {
     }
 
+    private static class Holder {
+        private static final AvlTree<Restaurant> INSTANCE = new AvlTree<>();
+    }
+
     public static AvlTree<Restaurant> getInstance() {
-        if (instance == null) {
-            instance = new AvlTree();
-        }
-        return instance;
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Returns a consistent snapshot of the shared AVL tree.
+     * Searches should run on a snapshot so that restaurants loaded in the background
+     * while they are running cannot change the tree under them.
+     *
+     * @return a snapshot of the restaurants loaded so far
+     */
+    public static AvlTree<Restaurant> snapshot() {
+        return getInstance().snapshot();
     }
 }
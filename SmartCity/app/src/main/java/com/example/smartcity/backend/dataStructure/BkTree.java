@@ -0,0 +1,154 @@
+package com.example.smartcity.backend.dataStructure;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BkTree is a Burkhard-Keller tree over a dictionary of words, using the Levenshtein distance.
+ * Every child of a node is stored under its distance to that node. Because the distance is a
+ * metric, a query with radius k only needs to visit the children whose edge distance is within
+ * k of the distance between the query and the node, so most of the dictionary is never compared.
+ * Distances are calculated with a bounded edit distance that gives up as soon as a word
+ * cannot be a match and cannot lead to one.
+ * It is used to find the closest valid token for a misspelled query token.
+ *
+ */
+public class BkTree {
+    private static class Node {
+        private final String word;
+        private final int order;
+        private int[] edges = new int[0];
+        private Node[] children = new Node[0];
+        private int maxEdge;
+
+        Node(String word, int order) {
+            this.word = word;
+            this.order = order;
+        }
+
+        Node child(int distance) {
+            for (int i = 0; i < edges.length; i++) {
+                if (edges[i] == distance) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(int distance, Node child) {
+            edges = Arrays.copyOf(edges, edges.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            edges[edges.length - 1] = distance;
+            children[children.length - 1] = child;
+            maxEdge = Math.max(maxEdge, distance);
+        }
+    }
+
+    // each thread gets its own buffers, so lookups do not allocate and can run in parallel
+    private final ThreadLocal<EditDistance> editDistances = ThreadLocal.withInitial(EditDistance::new);
+    private Node root;
+    private int size;
+
+    /**
+     * Adds a word to the tree. Adding a word that is already in the tree has no effect.
+     *
+     * @param word the word to add
+     */
+    public void add(String word) {
+        if (root == null) {
+            root = new Node(word, size++);
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(word, node.word, Integer.MAX_VALUE);
+            if (distance == 0) {
+                return;
+            }
+            Node child = node.child(distance);
+            if (child == null) {
+                node.addChild(distance, new Node(word, size++));
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Finds the word closest to the query within the maximum distance.
+     * If several words are equally close, the one that was added first is returned.
+     *
+     * @param query       the word to look up
+     * @param maxDistance the largest distance a result may have
+     * @return the closest word, or null if no word is within maxDistance
+     */
+    public String closest(String query, int maxDistance) {
+        if (root == null || maxDistance < 0) {
+            return null;
+        }
+        Node best = null;
+        int bestDistance = maxDistance;
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            // beyond bestDistance + maxEdge neither the node nor any child can qualify
+            int distance = distance(query, node.word, (long) bestDistance + node.maxEdge);
+            if (distance < bestDistance || (distance == bestDistance && (best == null || node.order < best.order))) {
+                best = node;
+                bestDistance = distance;
+            }
+            // the radius shrinks as closer words are found
+            for (int i = 0; i < node.edges.length; i++) {
+                if (Math.abs(node.edges[i] - distance) <= bestDistance) {
+                    stack.push(node.children[i]);
+                }
+            }
+        }
+        return best == null ? null : best.word;
+    }
+
+    /**
+     * Finds all words within the maximum distance of the query.
+     *
+     * @param query       the word to look up
+     * @param maxDistance the largest distance a result may have
+     * @return the matching words, in no particular order
+     */
+    public List<String> search(String query, int maxDistance) {
+        List<String> results = new ArrayList<>();
+        if (root == null || maxDistance < 0) {
+            return results;
+        }
+        ArrayDeque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int distance = distance(query, node.word, (long) maxDistance + node.maxEdge);
+            if (distance <= maxDistance) {
+                results.add(node.word);
+            }
+            for (int i = 0; i < node.edges.length; i++) {
+                if (Math.abs(node.edges[i] - distance) <= maxDistance) {
+                    stack.push(node.children[i]);
+                }
+            }
+        }
+        return results;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Exact distance, or threshold + 1 if it is larger than the threshold
+    private int distance(String a, String b, long threshold) {
+        EditDistance editDistance = editDistances.get();
+        if (threshold >= Integer.MAX_VALUE) {
+            return editDistance.distance(a, b);
+        }
+        return editDistance.boundedDistance(a, b, (int) threshold);
+    }
+}
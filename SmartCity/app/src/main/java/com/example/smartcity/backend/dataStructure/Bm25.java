@@ -0,0 +1,147 @@
+package com.example.smartcity.backend.dataStructure;
+
+import com.example.smartcity.backend.entity.Restaurant;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Bm25 is a class that scores restaurant names against query terms with Okapi BM25.
+ * A term contributes more when it is rare among the names (inverse document frequency),
+ * when it occurs more often in a name, and when the name is short.
+ * Every restaurant also has a prior score from its rating and its number of ratings, which
+ * is added to the text score so that equally relevant names are ordered by quality.
+ * It works on the posting lists of a TokenDictionary, so scoring a candidate set is a merge
+ * of sorted arrays and the best results are collected with a TopKHeap.
+ * It is used to rank the results of a search.
+ *
+ */
+public class Bm25 {
+    public static final double K1 = 1.2;
+    public static final double B = 0.75;
+    public static final double DEFAULT_RATING_BOOST = 0.5;
+    public static final double DEFAULT_POPULARITY_BOOST = 0.5;
+    // added to the score of an exact name match, more than any text score can reach
+    public static final double EXACT_MATCH_BOOST = 1000;
+
+    private final TokenDictionary dictionary;
+    private final double[] idf;
+    private final double[] priors;
+
+    /**
+     * Creates a scorer with the default rating and popularity boosts.
+     *
+     * @param dictionary the dictionary of the restaurant names
+     */
+    public Bm25(TokenDictionary dictionary) {
+        this(dictionary, DEFAULT_RATING_BOOST, DEFAULT_POPULARITY_BOOST);
+    }
+
+    /**
+     * Creates a scorer.
+     * The rating boost is the prior of a restaurant rated 5, and the popularity boost is the
+     * prior of the restaurant with the most ratings; the number of ratings counts logarithmically.
+     * A boost of 0 disables it.
+     *
+     * @param dictionary      the dictionary of the restaurant names
+     * @param ratingBoost     the weight of the rating
+     * @param popularityBoost the weight of the number of ratings
+     */
+    public Bm25(TokenDictionary dictionary, double ratingBoost, double popularityBoost) {
+        this.dictionary = dictionary;
+        int documentCount = dictionary.documentCount();
+        this.idf = new double[dictionary.termCount()];
+        for (int termId = 0; termId < idf.length; termId++) {
+            double df = dictionary.documentFrequency(termId);
+            idf[termId] = Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+        }
+
+        int maxRatings = 0;
+        for (int id = 0; id < documentCount; id++) {
+            maxRatings = Math.max(maxRatings, dictionary.getRestaurant(id).getUser_ratings_total());
+        }
+        double maxPopularity = Math.log1p(maxRatings);
+        this.priors = new double[documentCount];
+        for (int id = 0; id < documentCount; id++) {
+            Restaurant restaurant = dictionary.getRestaurant(id);
+            double prior = ratingBoost * Math.max(0, restaurant.getRating()) / 5;
+            if (maxPopularity > 0) {
+                prior += popularityBoost * Math.log1p(Math.max(0, restaurant.getUser_ratings_total())) / maxPopularity;
+            }
+            priors[id] = prior;
+        }
+    }
+
+    /**
+     * Returns the inverse document frequency of a term.
+     *
+     * @param termId the term id
+     * @return the idf of the term
+     */
+    public double idf(int termId) {
+        return idf[termId];
+    }
+
+    /**
+     * Returns the prior score of a restaurant from its rating and number of ratings.
+     *
+     * @param id the id of the restaurant
+     * @return the prior score
+     */
+    public double prior(int id) {
+        return priors[id];
+    }
+
+    /**
+     * Returns the BM25 score of a name for a term occurring in it.
+     *
+     * @param termId    the term id
+     * @param id        the id of the restaurant
+     * @param frequency how often the term occurs in the name
+     * @return the score of the term in the name
+     */
+    public double termScore(int termId, int id, int frequency) {
+        double lengthRatio = dictionary.documentLength(id) / Math.max(1, dictionary.averageDocumentLength());
+        return idf[termId] * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * lengthRatio));
+    }
+
+    /**
+     * Scores the candidates and returns the best of them.
+     * The score of a candidate is its prior, plus the BM25 score of every term it contains,
+     * plus the exact match boost if it is the exact match. The posting lists of the terms are
+     * walked together with the candidates, so scoring costs one pass over each of them, and
+     * only the best limit candidates are ever kept in order.
+     *
+     * @param candidates the ids of the candidates, in ascending order
+     * @param termIds    the distinct term ids of the query
+     * @param exactId    the id of the exact name match, or -1 if there is none
+     * @param accept     the filter a candidate must pass to be ranked
+     * @param limit      the largest number of results
+     * @return the ids of the best candidates, best first
+     */
+    public int[] rank(int[] candidates, int[] termIds, int exactId, IntPredicate accept, int limit) {
+        TopKHeap heap = new TopKHeap(Math.min(limit, candidates.length));
+        int[] cursors = new int[termIds.length];
+        for (int id : candidates) {
+            if (!accept.test(id)) {
+                continue;
+            }
+            double score = priors[id];
+            for (int t = 0; t < termIds.length; t++) {
+                int[] postings = dictionary.postings(termIds[t]);
+                int cursor = cursors[t];
+                while (cursor < postings.length && postings[cursor] < id) {
+                    cursor++;
+                }
+                cursors[t] = cursor;
+                if (cursor < postings.length && postings[cursor] == id) {
+                    score += termScore(termIds[t], id, dictionary.frequencies(termIds[t])[cursor]);
+                }
+            }
+            if (id == exactId) {
+                score += EXACT_MATCH_BOOST;
+            }
+            heap.offer(id, score);
+        }
+        return heap.drain();
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.smartcity.backend.dataStructure;
+
+/**
+ * EditDistance calculates the Levenshtein distance between two strings without allocating
+ * on each call. It keeps its working buffers between calls, so an instance must not be
+ * shared between threads.
+ * <p>
+ * distance uses the bit-parallel algorithm of Myers, in the form given by Hyyro, when the
+ * shorter string has at most 64 characters: one column of the dynamic programming matrix is
+ * held as bit vectors in two longs, so each character of the longer string costs a handful of
+ * word operations instead of a full column of cells. Longer strings use the classic algorithm
+ * with two rolling rows.
+ * <p>
+ * boundedDistance uses the banded algorithm of Ukkonen: with a threshold k only cells within k
+ * of the diagonal can lead to a distance of at most k, so only that band is computed, and it
+ * stops as soon as every cell of a row is above the threshold.
+ *
+ */
+public class EditDistance {
+    private static final int MAX_BIT_PARALLEL_LENGTH = 64;
+    private static final int ASCII_SIZE = 128;
+
+    // match masks of the pattern for ASCII characters, cleared again after each call
+    private final long[] asciiMasks = new long[ASCII_SIZE];
+    private int[] previousRow = new int[16];
+    private int[] currentRow = new int[16];
+
+    /**
+     * Calculates the Levenshtein distance between two strings.
+     *
+     * @param a the first string
+     * @param b the second string
+     * @return the minimum number of single-character insertions, deletions or substitutions
+     *         needed to change a into b
+     */
+    public int distance(CharSequence a, CharSequence b) {
+        // the distance is symmetric, so use the shorter string as the bit-parallel pattern
+        CharSequence pattern = a.length() <= b.length() ? a : b;
+        CharSequence text = pattern == a ? b : a;
+        if (pattern.length() == 0) {
+            return text.length();
+        }
+        if (pattern.length() <= MAX_BIT_PARALLEL_LENGTH) {
+            return bitParallelDistance(pattern, text);
+        }
+        return fullDistance(a, b);
+    }
+
+    /**
+     * Calculates the Levenshtein distance between two strings if it is at most the threshold.
+     *
+     * @param a         the first string
+     * @param b         the second string
+     * @param threshold the largest distance of interest, at least 0
+     * @return the distance if it is at most threshold, otherwise threshold + 1
+     * @throws IllegalArgumentException if the threshold is negative
+     */
+    public int boundedDistance(CharSequence a, CharSequence b, int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative: " + threshold);
+        }
+        int m = a.length();
+        int n = b.length();
+        int over = threshold + 1;
+        if (Math.abs(m - n) > threshold) {
+            return over;
+        }
+        ensureCapacity(n + 1);
+        int[] previous = previousRow;
+        int[] current = currentRow;
+
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j <= threshold ? j : over;
+        }
+        for (int i = 1; i <= m; i++) {
+            int from = Math.max(1, i - threshold);
+            int to = Math.min(n, i + threshold);
+            current[from - 1] = from == 1 ? Math.min(i, over) : over;
+            int rowMin = current[from - 1];
+            char ca = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j] + 1, current[j - 1] + 1));
+                current[j] = Math.min(value, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < n) {
+                // the next row reads one cell past this band
+                current[to + 1] = over;
+            }
+            if (rowMin > threshold) {
+                return over;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[n], over);
+    }
+
+    // Myers / Hyyro bit-vector algorithm for a pattern of 1 to 64 characters
+    private int bitParallelDistance(CharSequence pattern, CharSequence text) {
+        int m = pattern.length();
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < ASCII_SIZE) {
+                asciiMasks[c] |= 1L << i;
+            }
+        }
+
+        long lastBit = 1L << (m - 1);
+        long positiveVertical = m == MAX_BIT_PARALLEL_LENGTH ? -1L : (1L << m) - 1;
+        long negativeVertical = 0;
+        int score = m;
+        for (int j = 0; j < text.length(); j++) {
+            long equal = matchMask(pattern, text.charAt(j));
+            long xv = equal | negativeVertical;
+            long xh = (((equal & positiveVertical) + positiveVertical) ^ positiveVertical) | equal;
+            long positiveHorizontal = negativeVertical | ~(xh | positiveVertical);
+            long negativeHorizontal = positiveVertical & xh;
+            if ((positiveHorizontal & lastBit) != 0) {
+                score++;
+            } else if ((negativeHorizontal & lastBit) != 0) {
+                score--;
+            }
+            // the first row of the matrix grows by one per column, so shift in a positive delta
+            positiveHorizontal = (positiveHorizontal << 1) | 1;
+            negativeHorizontal = negativeHorizontal << 1;
+            positiveVertical = negativeHorizontal | ~(xv | positiveHorizontal);
+            negativeVertical = positiveHorizontal & xv;
+        }
+
+        for (int i = 0; i < m; i++) {
+            char c = pattern.charAt(i);
+            if (c < ASCII_SIZE) {
+                asciiMasks[c] = 0;
+            }
+        }
+        return score;
+    }
+
+    // Bit i is set if the pattern has the character at position i
+    private long matchMask(CharSequence pattern, char c) {
+        if (c < ASCII_SIZE) {
+            return asciiMasks[c];
+        }
+        long mask = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == c) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    // Classic dynamic programming with two rolling rows
+    private int fullDistance(CharSequence a, CharSequence b) {
+        int n = b.length();
+        ensureCapacity(n + 1);
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(previous[j - 1] + cost, Math.min(previous[j] + 1, current[j - 1] + 1));
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[n];
+    }
+
+    private void ensureCapacity(int length) {
+        if (previousRow.length < length) {
+            int capacity = Math.max(length, previousRow.length * 2);
+            previousRow = new int[capacity];
+            currentRow = new int[capacity];
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.smartcity.backend.dataStructure;
+
+import com.example.smartcity.backend.entity.Restaurant;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * FacetIndex is a set of bitmap indexes over the facets of the restaurants: their types,
+ * their price level (Restaurant.getPrice), their rating band and the band of their number
+ * of ratings. Every value of a facet maps to a bitset with a bit set for every restaurant
+ * that has that value, where the id of a restaurant is its position in the indexed list.
+ * A filter is the bitwise AND of the bitsets of its facets (a range of bands is first
+ * combined with OR), so combining filters costs a few word operations per 64 restaurants,
+ * whatever the number of matches. The bitsets also give the facet counts shown next to the
+ * filter options.
+ * It is used to filter search results and lists of restaurants by type, price and rating.
+ *
+ */
+public class FacetIndex {
+    public static final int PRICE_LEVELS = 5;
+    public static final int RATING_BANDS = 5;
+    public static final int POPULARITY_BANDS = 5;
+
+    private final int size;
+    private final Map<String, BitSet> types = new HashMap<>();
+    private final BitSet[] prices = newBitSets(PRICE_LEVELS + 1);
+    private final BitSet[] ratings = newBitSets(RATING_BANDS);
+    private final BitSet[] popularity = newBitSets(POPULARITY_BANDS);
+
+    /**
+     * Builds the indexes over the restaurants.
+     *
+     * @param restaurants the restaurants; the id of a restaurant is its position in the list
+     */
+    public FacetIndex(List<Restaurant> restaurants) {
+        this.size = restaurants.size();
+        for (int id = 0; id < size; id++) {
+            Restaurant restaurant = restaurants.get(id);
+            if (restaurant.getTypes() != null) {
+                for (String type : restaurant.getTypes()) {
+                    BitSet bits = types.get(type);
+                    if (bits == null) {
+                        bits = new BitSet(size);
+                        types.put(type, bits);
+                    }
+                    bits.set(id);
+                }
+            }
+            prices[restaurant.getPrice()].set(id);
+            ratings[ratingBand(restaurant.getRating())].set(id);
+            popularity[popularityBand(restaurant.getUser_ratings_total())].set(id);
+        }
+    }
+
+    /**
+     * Returns the rating band of a rating: band b holds the ratings from b to b + 1,
+     * and the last band also holds 5.
+     *
+     * @param rating the rating, out of 5
+     * @return the rating band
+     */
+    public static int ratingBand(double rating) {
+        return Math.max(0, Math.min(RATING_BANDS - 1, (int) rating));
+    }
+
+    /**
+     * Returns the popularity band of a number of ratings: band b holds the counts with b + 1
+     * digits (fewer than 10, fewer than 100, ...), and the last band holds all larger counts.
+     *
+     * @param ratingsTotal the number of ratings
+     * @return the popularity band
+     */
+    public static int popularityBand(int ratingsTotal) {
+        int band = 0;
+        for (int limit = 10; band < POPULARITY_BANDS - 1 && ratingsTotal >= limit; limit *= 10) {
+            band++;
+        }
+        return band;
+    }
+
+    /**
+     * Starts a filter over the indexed restaurants. A filter without conditions matches all of them.
+     *
+     * @return a new filter
+     */
+    public Filter filter() {
+        return new Filter();
+    }
+
+    /**
+     * Counts the restaurants of every type within the scope.
+     *
+     * @param scope the ids to count, or null for all the restaurants
+     * @return the number of restaurants of every type, by type
+     */
+    public Map<String, Integer> typeCounts(BitSet scope) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<String, BitSet> entry : types.entrySet()) {
+            counts.put(entry.getKey(), count(entry.getValue(), scope));
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the restaurants of the given type within the scope.
+     *
+     * @param type  the type, in any case
+     * @param scope the ids to count, or null for all the restaurants
+     * @return the number of restaurants of the type
+     */
+    public int typeCount(String type, BitSet scope) {
+        BitSet bits = types.get(type.toLowerCase(Locale.ROOT));
+        return bits == null ? 0 : count(bits, scope);
+    }
+
+    /**
+     * Counts the restaurants of every price level within the scope.
+     *
+     * @param scope the ids to count, or null for all the restaurants
+     * @return the counts, indexed by price level from 1 to 5 (5 is unknown)
+     */
+    public int[] priceCounts(BitSet scope) {
+        return counts(prices, scope);
+    }
+
+    /**
+     * Counts the restaurants of every rating band within the scope.
+     *
+     * @param scope the ids to count, or null for all the restaurants
+     * @return the counts, indexed by rating band
+     */
+    public int[] ratingCounts(BitSet scope) {
+        return counts(ratings, scope);
+    }
+
+    /**
+     * Counts the restaurants of every popularity band within the scope.
+     *
+     * @param scope the ids to count, or null for all the restaurants
+     * @return the counts, indexed by popularity band
+     */
+    public int[] popularityCounts(BitSet scope) {
+        return counts(popularity, scope);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static int[] counts(BitSet[] bitSets, BitSet scope) {
+        int[] counts = new int[bitSets.length];
+        for (int i = 0; i < bitSets.length; i++) {
+            counts[i] = count(bitSets[i], scope);
+        }
+        return counts;
+    }
+
+    private static int count(BitSet bits, BitSet scope) {
+        if (scope == null) {
+            return bits.cardinality();
+        }
+        BitSet both = (BitSet) bits.clone();
+        both.and(scope);
+        return both.cardinality();
+    }
+
+    private static BitSet[] newBitSets(int count) {
+        BitSet[] bitSets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            bitSets[i] = new BitSet();
+        }
+        return bitSets;
+    }
+
+    /**
+     * Filter is a combination of facet conditions that must all hold.
+     * Each condition narrows the filter with a bitwise AND.
+     */
+    public class Filter {
+        // null until the first condition, meaning all the restaurants
+        private BitSet bits;
+
+        /**
+         * Keeps the restaurants of the given type.
+         *
+         * @param type the type, in any case
+         * @return this filter
+         */
+        public Filter type(String type) {
+            BitSet typeBits = types.get(type.toLowerCase(Locale.ROOT));
+            return and(typeBits == null ? new BitSet() : typeBits);
+        }
+
+        /**
+         * Keeps the restaurants with a price level in the range.
+         *
+         * @param from the lowest price level, from 1
+         * @param to   the highest price level, up to 5 (unknown)
+         * @return this filter
+         */
+        public Filter price(int from, int to) {
+            return and(union(prices, Math.max(1, from), Math.min(PRICE_LEVELS, to)));
+        }
+
+        /**
+         * Keeps the restaurants whose rating band is at least the band of the rating.
+         *
+         * @param rating the lowest rating
+         * @return this filter
+         */
+        public Filter minRating(double rating) {
+            return and(union(ratings, ratingBand(rating), RATING_BANDS - 1));
+        }
+
+        /**
+         * Keeps the restaurants whose popularity band is at least the band of the count.
+         *
+         * @param ratingsTotal the lowest number of ratings
+         * @return this filter
+         */
+        public Filter minRatingsTotal(int ratingsTotal) {
+            return and(union(popularity, popularityBand(ratingsTotal), POPULARITY_BANDS - 1));
+        }
+
+        /**
+         * Returns the ids of the restaurants matching the filter.
+         * The returned bitset belongs to the caller.
+         *
+         * @return the matching ids
+         */
+        public BitSet evaluate() {
+            if (bits == null) {
+                BitSet all = new BitSet(size);
+                all.set(0, size);
+                return all;
+            }
+            return (BitSet) bits.clone();
+        }
+
+        public int count() {
+            return bits == null ? size : bits.cardinality();
+        }
+
+        private Filter and(BitSet other) {
+            if (bits == null) {
+                bits = (BitSet) other.clone();
+            } else {
+                bits.and(other);
+            }
+            return this;
+        }
+
+        private BitSet union(BitSet[] bitSets, int from, int to) {
+            BitSet result = new BitSet(size);
+            for (int i = from; i <= to; i++) {
+                result.or(bitSets[i]);
+            }
+            return result;
+        }
+    }
+}
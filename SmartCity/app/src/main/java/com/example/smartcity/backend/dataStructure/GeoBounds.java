@@ -0,0 +1,147 @@
+package com.example.smartcity.backend.dataStructure;
+
+/**
+ * GeoBounds is a latitude/longitude rectangle, given by its south-west and north-east corners.
+ * A rectangle whose west edge is east of its east edge crosses the antimeridian, e.g. from
+ * 170 to -170 degrees of longitude.
+ * It is used to query the restaurants within an area of the map.
+ *
+ */
+public final class GeoBounds {
+    // the mean radius of the earth
+    public static final double EARTH_RADIUS_METERS = 6371008.8;
+
+    private final double south;
+    private final double west;
+    private final double north;
+    private final double east;
+
+    /**
+     * Constructor for GeoBounds class.
+     *
+     * @param south the southern latitude
+     * @param west  the western longitude
+     * @param north the northern latitude, not south of the southern one
+     * @param east  the eastern longitude
+     */
+    public GeoBounds(double south, double west, double north, double east) {
+        if (south > north) {
+            throw new IllegalArgumentException("South " + south + " is north of north " + north);
+        }
+        this.south = south;
+        this.west = west;
+        this.north = north;
+        this.east = east;
+    }
+
+    /**
+     * Returns the smallest rectangle holding the circle of the given radius around a point.
+     * Near the poles, or for a circle wider than half the earth, it spans all the longitudes.
+     *
+     * @param latitude  the latitude of the centre
+     * @param longitude the longitude of the centre
+     * @param meters    the radius of the circle
+     * @return the bounds of the circle
+     */
+    public static GeoBounds around(double latitude, double longitude, double meters) {
+        double latDelta = Math.toDegrees(meters / EARTH_RADIUS_METERS);
+        double south = Math.max(-90, latitude - latDelta);
+        double north = Math.min(90, latitude + latDelta);
+        double cos = Math.cos(Math.toRadians(latitude));
+        double lngDelta = cos <= 0 ? 180 : Math.toDegrees(meters / (EARTH_RADIUS_METERS * cos));
+        if (south == -90 || north == 90 || lngDelta >= 180) {
+            return new GeoBounds(south, -180, north, 180);
+        }
+        return new GeoBounds(south, wrap(longitude - lngDelta), north, wrap(longitude + lngDelta));
+    }
+
+    /**
+     * Returns the great-circle distance between two points, with the haversine formula.
+     *
+     * @param lat1 the latitude of the first point
+     * @param lng1 the longitude of the first point
+     * @param lat2 the latitude of the second point
+     * @param lng2 the longitude of the second point
+     * @return the distance in meters
+     */
+    public static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLng = Math.sin(dLng / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLng * sinLng;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Checks whether a point is inside the rectangle, edges included.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @return true if the point is inside
+     */
+    public boolean contains(double latitude, double longitude) {
+        return latitude >= south && latitude <= north && containsLongitude(longitude);
+    }
+
+    /**
+     * Checks whether the rectangle overlaps another rectangle that does not cross the antimeridian.
+     *
+     * @param minLat the southern latitude of the other rectangle
+     * @param minLng the western longitude of the other rectangle
+     * @param maxLat the northern latitude of the other rectangle
+     * @param maxLng the eastern longitude of the other rectangle
+     * @return true if they overlap
+     */
+    public boolean intersects(double minLat, double minLng, double maxLat, double maxLng) {
+        if (maxLat < south || minLat > north) {
+            return false;
+        }
+        if (crossesAntimeridian()) {
+            return maxLng >= west || minLng <= east;
+        }
+        return maxLng >= west && minLng <= east;
+    }
+
+    public boolean crossesAntimeridian() {
+        return west > east;
+    }
+
+    public double getSouth() {
+        return south;
+    }
+
+    public double getWest() {
+        return west;
+    }
+
+    public double getNorth() {
+        return north;
+    }
+
+    public double getEast() {
+        return east;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + south + ", " + west + " - " + north + ", " + east + "]";
+    }
+
+    private boolean containsLongitude(double longitude) {
+        return crossesAntimeridian()
+                ? longitude >= west || longitude <= east
+                : longitude >= west && longitude <= east;
+    }
+
+    // brings a longitude back into [-180, 180]
+    private static double wrap(double longitude) {
+        if (longitude > 180) {
+            return longitude - 360;
+        } else if (longitude < -180) {
+            return longitude + 360;
+        }
+        return longitude;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.smartcity.backend.dataStructure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Geohash is a class that encodes locations as geohashes, the names of fixed tiles of the map.
+ * A geohash interleaves the bits of the longitude and of the latitude, halving the tile at
+ * every bit, and writes them five at a time in base 32. Every character makes the tile 32
+ * times smaller: a tile of precision 6 is about 1.2 km by 0.6 km at the equator. Locations
+ * a few meters apart fall in the same tile, so tiles make stable cache keys.
+ * It is used to cache the restaurants of the map by tile.
+ *
+ */
+public final class Geohash {
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    public static final int MAX_PRECISION = 12;
+
+    private Geohash() {
+    }
+
+    /**
+     * Returns the geohash of the tile holding a location.
+     *
+     * @param latitude  the latitude of the location
+     * @param longitude the longitude of the location
+     * @param precision the number of characters, from 1 to 12
+     * @return the geohash
+     */
+    public static String encode(double latitude, double longitude, int precision) {
+        checkPrecision(precision);
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int value = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (longitude >= mid) {
+                    value = value * 2 + 1;
+                    minLng = mid;
+                } else {
+                    value = value * 2;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    value = value * 2 + 1;
+                    minLat = mid;
+                } else {
+                    value = value * 2;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32.charAt(value));
+                bit = 0;
+                value = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Returns the rectangle of the tile of a geohash.
+     *
+     * @param hash the geohash
+     * @return the bounds of the tile
+     * @throws IllegalArgumentException if the geohash has an invalid character
+     */
+    public static GeoBounds bounds(String hash) {
+        double minLat = -90, maxLat = 90;
+        double minLng = -180, maxLng = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < hash.length(); i++) {
+            int value = BASE32.indexOf(hash.charAt(i));
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid geohash: " + hash);
+            }
+            for (int mask = 16; mask > 0; mask >>= 1) {
+                boolean set = (value & mask) != 0;
+                if (evenBit) {
+                    double mid = (minLng + maxLng) / 2;
+                    if (set) {
+                        minLng = mid;
+                    } else {
+                        maxLng = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if (set) {
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new GeoBounds(minLat, minLng, maxLat, maxLng);
+    }
+
+    /**
+     * Returns the tiles of a precision that cover a rectangle, row by row from the south-west.
+     * A rectangle crossing the antimeridian is covered on both sides of it.
+     *
+     * @param area      the rectangle to cover
+     * @param precision the number of characters of the geohashes
+     * @return the geohashes of the covering tiles, without duplicates
+     */
+    public static List<String> covering(GeoBounds area, int precision) {
+        checkPrecision(precision);
+        List<String> tiles = new ArrayList<>();
+        if (area.crossesAntimeridian()) {
+            cover(area.getSouth(), area.getWest(), area.getNorth(), 180, precision, tiles);
+            cover(area.getSouth(), -180, area.getNorth(), area.getEast(), precision, tiles);
+        } else {
+            cover(area.getSouth(), area.getWest(), area.getNorth(), area.getEast(), precision, tiles);
+        }
+        return tiles;
+    }
+
+    // walks the tiles from the south-west corner, one tile size at a time
+    private static void cover(double south, double west, double north, double east, int precision, List<String> tiles) {
+        GeoBounds tile = bounds(encode(south, west, precision));
+        double tileHeight = tile.getNorth() - tile.getSouth();
+        double tileWidth = tile.getEast() - tile.getWest();
+        for (double lat = tile.getSouth() + tileHeight / 2; lat - tileHeight / 2 <= north && lat < 90; lat += tileHeight) {
+            for (double lng = tile.getWest() + tileWidth / 2; lng - tileWidth / 2 <= east && lng < 180; lng += tileWidth) {
+                String hash = encode(lat, lng, precision);
+                if (!tiles.contains(hash)) {
+                    tiles.add(hash);
+                }
+            }
+        }
+    }
+
+    private static void checkPrecision(int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be from 1 to " + MAX_PRECISION + ": " + precision);
+        }
+    }
+}
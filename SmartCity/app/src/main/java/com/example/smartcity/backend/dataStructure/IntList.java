@@ -0,0 +1,85 @@
+package com.example.smartcity.backend.dataStructure;
+
+import java.util.Arrays;
+
+/**
+ * IntList is a growable list of primitive ints.
+ * It is used to collect posting lists and other id lists while an index is built,
+ * without boxing every id into an Integer.
+ *
+ */
+public class IntList {
+    private int[] values;
+    private int size;
+
+    public IntList() {
+        this(8);
+    }
+
+    public IntList(int initialCapacity) {
+        this.values = new int[Math.max(initialCapacity, 1)];
+    }
+
+    /**
+     * Appends a value to the end of the list.
+     *
+     * @param value the value to append
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Replaces the value at the given index.
+     *
+     * @param index the index of the value to replace
+     * @param value the new value
+     */
+    public void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        values[index] = value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the last value in the list, or the given default if the list is empty.
+     *
+     * @param defaultValue the value to return for an empty list
+     * @return the last value
+     */
+    public int last(int defaultValue) {
+        return size == 0 ? defaultValue : values[size - 1];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns a trimmed copy of the values in the list.
+     *
+     * @return an array holding exactly the values in the list
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
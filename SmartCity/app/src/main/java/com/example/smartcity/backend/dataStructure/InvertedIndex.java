@@ -0,0 +1,116 @@
+package com.example.smartcity.backend.dataStructure;
+
+import com.example.smartcity.backend.entity.Restaurant;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * InvertedIndex maps every normalized token of the restaurant names to a posting list,
+ * the sorted array of the ids of the restaurants whose names contain that token.
+ * The posting lists come from a TokenDictionary built once from a snapshot of the AVL tree.
+ * The id of a restaurant is its rank in that snapshot, so ids are dense, ascending ids follow
+ * name order, and the restaurant for an id is a plain array lookup.
+ * It is used to answer token queries with posting list unions and intersections
+ * instead of scanning the whole tree.
+ *
+ */
+public class InvertedIndex {
+    private final TokenDictionary dictionary;
+
+    /**
+     * Builds the index over the current contents of the tree.
+     *
+     * @param tree the AVL tree of restaurants to index
+     */
+    public InvertedIndex(AvlTree<Restaurant> tree) {
+        this(new TokenDictionary(tree));
+    }
+
+    /**
+     * Creates the index over an existing dictionary, sharing its posting lists.
+     *
+     * @param dictionary the dictionary of the restaurant names
+     */
+    public InvertedIndex(TokenDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Normalizes a token the same way the index normalizes the tokens of the names.
+     *
+     * @param token the token to normalize
+     * @return the normalized token
+     */
+    public static String normalize(String token) {
+        return TokenDictionary.normalize(token);
+    }
+
+    /**
+     * Returns the posting list of a token.
+     * The returned array is shared and must not be modified.
+     *
+     * @param token the token to look up, normalized or not
+     * @return the ids of the restaurants whose names contain the token, empty if there are none
+     */
+    public int[] postings(String token) {
+        int termId = dictionary.termId(token);
+        return termId < 0 ? PostingLists.EMPTY : dictionary.postings(termId);
+    }
+
+    /**
+     * Returns the id of a restaurant in this index.
+     *
+     * @param restaurant the restaurant to look up
+     * @return the id of the restaurant, or -1 if it is not in the index
+     */
+    public int idOf(Restaurant restaurant) {
+        int id = dictionary.getTree().rank(restaurant);
+        return id < size() && get(id).compareTo(restaurant) == 0 ? id : -1;
+    }
+
+    /**
+     * Returns the restaurant with the given id.
+     *
+     * @param id the id of the restaurant
+     * @return the restaurant
+     */
+    public Restaurant get(int id) {
+        return dictionary.getRestaurant(id);
+    }
+
+    /**
+     * Returns the restaurants for a posting list, in the order of the list.
+     *
+     * @param ids the ids of the restaurants
+     * @return the restaurants
+     */
+    public List<Restaurant> toRestaurants(int[] ids) {
+        List<Restaurant> list = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            list.add(get(id));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the snapshot of the tree the index was built from.
+     *
+     * @return the indexed snapshot
+     */
+    public AvlTree<Restaurant> getTree() {
+        return dictionary.getTree();
+    }
+
+    public TokenDictionary getDictionary() {
+        return dictionary;
+    }
+
+    public int size() {
+        return dictionary.documentCount();
+    }
+
+    public int tokenCount() {
+        return dictionary.termCount();
+    }
+}
@@ -0,0 +1,341 @@
+package com.example.smartcity.backend.dataStructure;
+
+import com.example.smartcity.backend.entity.Restaurant;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * KdTree is a static 2-d tree over the latitude and longitude of a set of items.
+ * It is built once by splitting the items at the median, alternately by latitude and by
+ * longitude, so it is balanced and has no pointers: the root of the items in [from, to) is
+ * the middle one, and its subtrees are the halves on either side. Every node also keeps the
+ * bounding box of its subtree, so a query skips any subtree whose box is outside the area.
+ * A query visits O(sqrt(n) + k) nodes for k results, instead of all n items.
+ * The k nearest items are found best first: subtrees are visited in the order of the smallest
+ * distance their box could have to the point, so the search stops as soon as k items are
+ * closer than any unvisited box.
+ * It is used to find the restaurants near a location or within the visible part of the map.
+ *
+ * @param <T> the type of the items
+ */
+public class KdTree<T> {
+
+    /**
+     * Neighbor is an item found by a nearest-neighbour search, with its distance.
+     *
+     * @param <T> the type of the item
+     */
+    public static final class Neighbor<T> {
+        private final T item;
+        private final double distanceMeters;
+
+        public Neighbor(T item, double distanceMeters) {
+            this.item = item;
+            this.distanceMeters = distanceMeters;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * @return the great-circle distance from the point of the search, in meters
+         */
+        public double getDistanceMeters() {
+            return distanceMeters;
+        }
+
+        @Override
+        public String toString() {
+            return item + " (" + Math.round(distanceMeters) + " m)";
+        }
+    }
+
+    private final Object[] items;
+    private final double[] lats;
+    private final double[] lngs;
+    // the bounding box of the subtree rooted at each index
+    private final double[] minLat;
+    private final double[] maxLat;
+    private final double[] minLng;
+    private final double[] maxLng;
+
+    /**
+     * Builds a tree over the items.
+     *
+     * @param items     the items
+     * @param latitude  returns the latitude of an item
+     * @param longitude returns the longitude of an item
+     */
+    public KdTree(List<T> items, ToDoubleFunction<T> latitude, ToDoubleFunction<T> longitude) {
+        int n = items.size();
+        this.items = items.toArray();
+        this.lats = new double[n];
+        this.lngs = new double[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = latitude.applyAsDouble(items.get(i));
+            lngs[i] = longitude.applyAsDouble(items.get(i));
+        }
+        this.minLat = new double[n];
+        this.maxLat = new double[n];
+        this.minLng = new double[n];
+        this.maxLng = new double[n];
+        build(0, n, 0);
+    }
+
+    /**
+     * Builds a tree over the locations of the restaurants.
+     *
+     * @param restaurants the restaurants
+     * @return the tree
+     */
+    public static KdTree<Restaurant> forRestaurants(List<Restaurant> restaurants) {
+        return new KdTree<>(restaurants, Restaurant::getLatitude, Restaurant::getLongitude);
+    }
+
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Finds the items within a distance of a point, measured along the surface of the earth.
+     * The subtrees outside the bounding box of the circle are skipped, and the items inside it
+     * are checked with the haversine distance.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @param meters    the largest distance
+     * @return the items within the distance, nearest first
+     */
+    public List<T> withinRadius(double latitude, double longitude, double meters) {
+        IntList candidates = new IntList();
+        collect(0, items.length, GeoBounds.around(latitude, longitude, meters), candidates);
+        List<Integer> matches = new ArrayList<>();
+        double[] distances = new double[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            int index = candidates.get(i);
+            distances[i] = GeoBounds.distanceMeters(latitude, longitude, lats[index], lngs[index]);
+            if (distances[i] <= meters) {
+                matches.add(i);
+            }
+        }
+        matches.sort((a, b) -> Double.compare(distances[a], distances[b]));
+        List<T> results = new ArrayList<>(matches.size());
+        for (int match : matches) {
+            results.add(item(candidates.get(match)));
+        }
+        return results;
+    }
+
+    /**
+     * Finds the k items nearest to a point.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @param k         the largest number of items
+     * @return the nearest items, nearest first
+     */
+    public List<Neighbor<T>> nearest(double latitude, double longitude, int k) {
+        return nearest(latitude, longitude, k, Double.POSITIVE_INFINITY, item -> true);
+    }
+
+    /**
+     * Finds the k items nearest to a point that are within a distance and pass a filter.
+     * The filter is applied while the tree is searched, so the items it rejects never take the
+     * place of a result and the search carries on until k items pass it.
+     *
+     * @param latitude  the latitude of the point
+     * @param longitude the longitude of the point
+     * @param k         the largest number of items
+     * @param maxMeters the largest distance
+     * @param filter    the test an item must pass
+     * @return the nearest items that pass the filter, nearest first, with their distances
+     */
+    public List<Neighbor<T>> nearest(double latitude, double longitude, int k, double maxMeters,
+                                     Predicate<? super T> filter) {
+        List<Neighbor<T>> results = new ArrayList<>();
+        if (k <= 0 || items.length == 0) {
+            return results;
+        }
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(subtree(latitude, longitude, 0, items.length));
+        while (!queue.isEmpty() && results.size() < k) {
+            Candidate candidate = queue.poll();
+            if (candidate.distance > maxMeters) {
+                break;
+            }
+            if (candidate.index >= 0) {
+                results.add(new Neighbor<>(item(candidate.index), candidate.distance));
+                continue;
+            }
+            int mid = (candidate.from + candidate.to) >>> 1;
+            if (filter.test(item(mid))) {
+                double distance = GeoBounds.distanceMeters(latitude, longitude, lats[mid], lngs[mid]);
+                queue.add(new Candidate(distance, mid, 0, 0));
+            }
+            if (candidate.from < mid) {
+                queue.add(subtree(latitude, longitude, candidate.from, mid));
+            }
+            if (mid + 1 < candidate.to) {
+                queue.add(subtree(latitude, longitude, mid + 1, candidate.to));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Finds the items inside a rectangle.
+     *
+     * @param bounds the rectangle, which may cross the antimeridian
+     * @return the items inside it, in no particular order
+     */
+    public List<T> withinBounds(GeoBounds bounds) {
+        IntList indexes = new IntList();
+        collect(0, items.length, bounds, indexes);
+        List<T> results = new ArrayList<>(indexes.size());
+        for (int i = 0; i < indexes.size(); i++) {
+            results.add(item(indexes.get(i)));
+        }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T item(int index) {
+        return (T) items[index];
+    }
+
+    // adds the indexes of the items of the subtree [from, to) that are inside the bounds
+    private void collect(int from, int to, GeoBounds bounds, IntList indexes) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        if (!bounds.intersects(minLat[mid], minLng[mid], maxLat[mid], maxLng[mid])) {
+            return;
+        }
+        if (bounds.contains(lats[mid], lngs[mid])) {
+            indexes.add(mid);
+        }
+        collect(from, mid, bounds, indexes);
+        collect(mid + 1, to, bounds, indexes);
+    }
+
+    // a subtree keyed by the smallest distance its items can have to the point
+    private Candidate subtree(double latitude, double longitude, int from, int to) {
+        return new Candidate(lowerBound(latitude, longitude, (from + to) >>> 1), -1, from, to);
+    }
+
+    // a distance that no item in the box of the node can be closer than: the distance along a
+    // meridian to the latitudes of the box, or the distance to the nearest meridian of the box
+    private double lowerBound(double latitude, double longitude, int node) {
+        double latGap = Math.max(0, Math.max(minLat[node] - latitude, latitude - maxLat[node]));
+        double byLatitude = Math.toRadians(latGap) * GeoBounds.EARTH_RADIUS_METERS;
+        double lngGap = 0;
+        if (longitude < minLng[node] || longitude > maxLng[node]) {
+            lngGap = Math.min(angle(longitude, minLng[node]), angle(longitude, maxLng[node]));
+        }
+        double byLongitude = 0;
+        if (lngGap > 0 && lngGap < 90) {
+            // the closest point of a meridian is at this angle from the point
+            double sin = Math.cos(Math.toRadians(latitude)) * Math.sin(Math.toRadians(lngGap));
+            byLongitude = Math.asin(Math.min(1, sin)) * GeoBounds.EARTH_RADIUS_METERS;
+        }
+        return Math.max(byLatitude, byLongitude);
+    }
+
+    // the angle between two longitudes, going the short way round
+    private static double angle(double lng1, double lng2) {
+        double difference = Math.abs(lng1 - lng2) % 360;
+        return difference > 180 ? 360 - difference : difference;
+    }
+
+    // puts the median of [from, to) in the middle, then builds both halves and the bounding boxes
+    private void build(int from, int to, int depth) {
+        if (from >= to) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, depth % 2 == 0 ? lats : lngs);
+        build(from, mid, depth + 1);
+        build(mid + 1, to, depth + 1);
+        minLat[mid] = maxLat[mid] = lats[mid];
+        minLng[mid] = maxLng[mid] = lngs[mid];
+        if (from < mid) {
+            include(mid, (from + mid) >>> 1);
+        }
+        if (mid + 1 < to) {
+            include(mid, (mid + 1 + to) >>> 1);
+        }
+    }
+
+    // grows the bounding box of a node to hold the box of a child
+    private void include(int node, int child) {
+        minLat[node] = Math.min(minLat[node], minLat[child]);
+        maxLat[node] = Math.max(maxLat[node], maxLat[child]);
+        minLng[node] = Math.min(minLng[node], minLng[child]);
+        maxLng[node] = Math.max(maxLng[node], maxLng[child]);
+    }
+
+    // quickselect: orders [left, right] so that the k-th smallest key is at index k
+    private void select(int left, int right, int k, double[] keys) {
+        while (left < right) {
+            double pivot = keys[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int i, int j) {
+        Object item = items[i];
+        items[i] = items[j];
+        items[j] = item;
+        double lat = lats[i];
+        lats[i] = lats[j];
+        lats[j] = lat;
+        double lng = lngs[i];
+        lngs[i] = lngs[j];
+        lngs[j] = lng;
+    }
+
+    // an item with its distance, or a subtree [from, to) with the smallest distance it can have
+    private static final class Candidate implements Comparable<Candidate> {
+        final double distance;
+        final int index;
+        final int from;
+        final int to;
+
+        Candidate(double distance, int index, int from, int to) {
+            this.distance = distance;
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
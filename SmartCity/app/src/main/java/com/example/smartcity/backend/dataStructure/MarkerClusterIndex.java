@@ -0,0 +1,200 @@
+package com.example.smartcity.backend.dataStructure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * MarkerClusterIndex is a class that groups map markers into clusters for every zoom level.
+ * The world is projected with Web Mercator, as on the map, and divided at each zoom level into
+ * square cells of CELL_PIXELS screen pixels. The clusters of a zoom level are built from those
+ * of the next level by merging the ones in the same cell, at their weighted centre, so the
+ * levels form a hierarchy and a cluster splits into its children when the map zooms in.
+ * Every level is built once and kept in a k-d tree, so a frame only looks up the clusters in
+ * view, and as there is at most about one cluster per cell, the number of markers per frame is
+ * bounded by the size of the screen rather than by the number of items. Every cluster has an
+ * id that stays the same across lookups and across indexes built from the same items, so the
+ * markers already on the map can be kept when the view changes.
+ * It is used to show dense areas of the map as a few cluster markers.
+ *
+ * @param <T> the type of the items
+ */
+public class MarkerClusterIndex<T> {
+    public static final int MIN_ZOOM = 0;
+    // above this zoom level every item is shown on its own
+    public static final int MAX_ZOOM = 17;
+    public static final int CELL_PIXELS = 64;
+    private static final int TILE_PIXELS = 256;
+
+    /**
+     * Cluster is a group of items shown as one marker, or a single item.
+     *
+     * @param <T> the type of the items
+     */
+    public static final class Cluster<T> {
+        private final double latitude;
+        private final double longitude;
+        private final int count;
+        private final T item;
+        private final int expansionZoom;
+        private final Object id;
+        // the weighted centre in Web Mercator coordinates
+        private final double x;
+        private final double y;
+
+        private Cluster(double x, double y, int count, T item, int expansionZoom, Object id) {
+            this.x = x;
+            this.y = y;
+            this.latitude = latitude(y);
+            this.longitude = longitude(x);
+            this.count = count;
+            this.item = item;
+            this.expansionZoom = expansionZoom;
+            this.id = id;
+        }
+
+        /**
+         * Returns the id of the cluster: the item itself for a cluster of one item, otherwise
+         * its zoom level, its cell and its number of items. Equal ids are drawn as the same marker.
+         *
+         * @return the id of the cluster
+         */
+        public Object getId() {
+            return id;
+        }
+
+        public double getLatitude() {
+            return latitude;
+        }
+
+        public double getLongitude() {
+            return longitude;
+        }
+
+        /**
+         * @return the number of items in the cluster
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return the item of a cluster of one item, or null for a larger cluster
+         */
+        public T getItem() {
+            return item;
+        }
+
+        /**
+         * @return the lowest zoom level at which the cluster splits into several markers
+         */
+        public int getExpansionZoom() {
+            return expansionZoom;
+        }
+    }
+
+    // levels[zoom - MIN_ZOOM] holds the clusters of a zoom level, and the last one the items
+    private final List<KdTree<Cluster<T>>> levels = new ArrayList<>();
+
+    /**
+     * Builds the clusters of every zoom level.
+     *
+     * @param items     the items
+     * @param latitude  returns the latitude of an item
+     * @param longitude returns the longitude of an item
+     */
+    public MarkerClusterIndex(List<T> items, ToDoubleFunction<T> latitude, ToDoubleFunction<T> longitude) {
+        List<Cluster<T>> clusters = new ArrayList<>(items.size());
+        for (T item : items) {
+            double lat = latitude.applyAsDouble(item);
+            double lng = longitude.applyAsDouble(item);
+            clusters.add(new Cluster<>(x(lng), y(lat), 1, item, MAX_ZOOM + 1, item));
+        }
+        List<KdTree<Cluster<T>>> reversed = new ArrayList<>();
+        reversed.add(index(clusters));
+        for (int zoom = MAX_ZOOM; zoom >= MIN_ZOOM; zoom--) {
+            clusters = merge(clusters, zoom);
+            reversed.add(index(clusters));
+        }
+        for (int i = reversed.size() - 1; i >= 0; i--) {
+            levels.add(reversed.get(i));
+        }
+    }
+
+    /**
+     * Returns the clusters to show in an area of the map at a zoom level.
+     *
+     * @param bounds the visible area
+     * @param zoom   the zoom level of the map; fractional zoom levels are rounded down
+     * @return the clusters in the area
+     */
+    public List<Cluster<T>> getClusters(GeoBounds bounds, double zoom) {
+        int level = (int) Math.floor(zoom);
+        level = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM + 1, level));
+        return levels.get(level - MIN_ZOOM).withinBounds(bounds);
+    }
+
+    // merges the clusters of the next zoom level that share a cell of this zoom level
+    private List<Cluster<T>> merge(List<Cluster<T>> children, int zoom) {
+        double cells = (double) TILE_PIXELS * (1L << zoom) / CELL_PIXELS;
+        Map<Long, List<Cluster<T>>> byCell = new HashMap<>();
+        List<Long> cellOrder = new ArrayList<>();
+        for (Cluster<T> child : children) {
+            long column = Math.min((long) (child.x * cells), (long) cells - 1);
+            long row = Math.min((long) (child.y * cells), (long) cells - 1);
+            long cell = column * (long) Math.ceil(cells) + row;
+            List<Cluster<T>> members = byCell.get(cell);
+            if (members == null) {
+                members = new ArrayList<>();
+                byCell.put(cell, members);
+                cellOrder.add(cell);
+            }
+            members.add(child);
+        }
+        List<Cluster<T>> clusters = new ArrayList<>(cellOrder.size());
+        for (long cell : cellOrder) {
+            List<Cluster<T>> members = byCell.get(cell);
+            if (members.size() == 1) {
+                clusters.add(members.get(0));
+                continue;
+            }
+            double sumX = 0;
+            double sumY = 0;
+            int count = 0;
+            for (Cluster<T> member : members) {
+                sumX += member.x * member.count;
+                sumY += member.y * member.count;
+                count += member.count;
+            }
+            // the children are separate markers one zoom level in
+            clusters.add(new Cluster<>(sumX / count, sumY / count, count, null, zoom + 1,
+                    zoom + "/" + cell + "/" + count));
+        }
+        return clusters;
+    }
+
+    private static <T> KdTree<Cluster<T>> index(List<Cluster<T>> clusters) {
+        return new KdTree<>(clusters, Cluster::getLatitude, Cluster::getLongitude);
+    }
+
+    // Web Mercator: the world is the unit square, x growing east and y growing south
+    private static double x(double longitude) {
+        return longitude / 360 + 0.5;
+    }
+
+    private static double y(double latitude) {
+        double sin = Math.sin(Math.toRadians(latitude));
+        double y = 0.5 - 0.25 * Math.log((1 + sin) / (1 - sin)) / Math.PI;
+        return Math.max(0, Math.min(1, y));
+    }
+
+    private static double longitude(double x) {
+        return (x - 0.5) * 360;
+    }
+
+    private static double latitude(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+}
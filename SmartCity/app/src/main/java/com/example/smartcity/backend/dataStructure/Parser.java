@@ -1,17 +1,40 @@
 package com.example.smartcity.backend.dataStructure;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Parser is a class that corrects misspelled tokens in a list of tokens.
  * It uses the Levenshtein distance algorithm to find the closest valid token.
+ * The valid tokens are normalized once and stored in a BK-tree, so a correction only
+ * compares the token with the part of the dictionary that can be within the maximum distance.
+ * Alternatively they can be stored in a trie that is walked with a Levenshtein automaton.
+ * Both strategies return the same corrections.
+ * Tokens with no valid token within the maximum distance are left unchanged.
  * It is used to correct user input for search queries.
  *
  */
 public class Parser {
 
-    private List<String> validTokens;
+    public static final int DEFAULT_MAX_DISTANCE = 2;
+
+    /**
+     * The index used to look up corrections.
+     */
+    public enum Strategy {
+        BK_TREE, TRIE_AUTOMATON
+    }
+
+    // the distinct normalized valid tokens, in the order they were first seen
+    private final List<String> dictionary = new ArrayList<>();
+    // maps each normalized valid token to the first valid token it came from
+    private final Map<String, String> originalTokens = new HashMap<>();
+    private final int maxDistance;
+    private volatile Strategy strategy = Strategy.BK_TREE;
+    private BkTree bkTree;
+    private TokenTrie tokenTrie;
 
     /**
      * Constructor for Parser class.
@@ -19,7 +42,49 @@ public class Parser {
      * @param validTokens A list of valid tokens
      */
     public Parser(List<String> validTokens) {
-        this.validTokens = validTokens;
+        this(validTokens, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * Constructor for Parser class.
+     *
+     * @param validTokens A list of valid tokens
+     * @param maxDistance The largest number of edits a correction may need
+     */
+    public Parser(List<String> validTokens, int maxDistance) {
+        this.maxDistance = maxDistance;
+        for (String validToken : validTokens) {
+            String normalizedToken = Tokenizer.normalize(validToken);
+            if (!normalizedToken.isEmpty() && !originalTokens.containsKey(normalizedToken)) {
+                originalTokens.put(normalizedToken, validToken);
+                dictionary.add(normalizedToken);
+            }
+        }
+    }
+
+    /**
+     * Constructor for Parser class.
+     * The valid tokens are the terms of the dictionary, which are already normalized,
+     * so corrections are returned in their normalized form.
+     *
+     * @param tokenDictionary The dictionary of the restaurant names
+     */
+    public Parser(TokenDictionary tokenDictionary) {
+        this(tokenDictionary.terms(), DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * Selects the index used to look up corrections.
+     * The index is built the first time it is used.
+     *
+     * @param strategy The strategy to use
+     */
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
     }
 
     /**
@@ -39,53 +104,40 @@ public class Parser {
 
     /**
      * Finds the closest valid token to a given token.
-     * It calculates the Levenshtein distance between the given token and each valid token.
-     * It returns the valid token with the smallest distance.
+     * It looks up the valid token with the smallest Levenshtein distance in the index of the
+     * selected strategy, preferring the earliest valid token if several are equally close.
      *
      * @param token The token to correct
-     * @return The closest valid token
+     * @return The closest valid token, or the token itself if none is within the maximum distance
      */
     private String findClosestValidToken(String token) {
-        String closestToken = token;
-        int minDistance = Integer.MAX_VALUE;
-        String lowerCaseToken = token.toLowerCase();
+        String normalizedToken = Tokenizer.normalize(token);
+        if (normalizedToken.isEmpty()) {
+            return token;
+        }
+        String closestToken = strategy == Strategy.TRIE_AUTOMATON
+                ? getTokenTrie().closest(normalizedToken, maxDistance)
+                : getBkTree().closest(normalizedToken, maxDistance);
+        return closestToken == null ? token : originalTokens.get(closestToken);
+    }
 
-        for (String validToken : validTokens) {
-            int distance = levenshteinDistance(lowerCaseToken, validToken.toLowerCase());
-            if (distance < minDistance) {
-                minDistance = distance;
-                closestToken = validToken;
+    private synchronized BkTree getBkTree() {
+        if (bkTree == null) {
+            bkTree = new BkTree();
+            for (String word : dictionary) {
+                bkTree.add(word);
             }
         }
-
-        return closestToken;
+        return bkTree;
     }
 
-    /**
-     * Calculates the Levenshtein distance between two strings.
-     * It uses dynamic programming to calculate the minimum number of single-character edits
-     * (insertions, deletions, or substitutions) required to change one string into another.
-     *
-     * @param a The first string
-     * @param b The second string
-     * @return The Levenshtein distance between the two strings
-     */
-    private int levenshteinDistance(String a, String b) {
-        int[][] dp = new int[a.length() + 1][b.length() + 1];
-
-        for (int i = 0; i <= a.length(); i++) {
-            for (int j = 0; j <= b.length(); j++) {
-                if (i == 0) {
-                    dp[i][j] = j;
-                } else if (j == 0) {
-                    dp[i][j] = i;
-                } else {
-                    dp[i][j] = Math.min(dp[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
-                            Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1));
-                }
+    private synchronized TokenTrie getTokenTrie() {
+        if (tokenTrie == null) {
+            tokenTrie = new TokenTrie();
+            for (String word : dictionary) {
+                tokenTrie.add(word);
             }
         }
-
-        return dp[a.length()][b.length()];
+        return tokenTrie;
     }
-}
\ No newline at end of file
+}
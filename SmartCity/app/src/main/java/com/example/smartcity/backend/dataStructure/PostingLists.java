@@ -0,0 +1,175 @@
+package com.example.smartcity.backend.dataStructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * PostingLists provides set operations on posting lists.
+ * A posting list is a strictly ascending array of document ids, so union and
+ * intersection are merges that never need hashing or sorting. Intersections gallop
+ * through lists of very different lengths, and unions of many lists go through a bitset.
+ *
+ */
+public final class PostingLists {
+
+    public static final int[] EMPTY = new int[0];
+    // how many times longer a list must be for galloping to beat a linear merge
+    private static final int GALLOP_RATIO = 8;
+
+    private PostingLists() {
+    }
+
+    /**
+     * Returns the ids that are in either posting list.
+     *
+     * @param a the first posting list
+     * @param b the second posting list
+     * @return the union, strictly ascending
+     */
+    public static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        } else if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[k++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[k++] = b[j++];
+            } else {
+                result[k++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[k++] = a[i++];
+        }
+        while (j < b.length) {
+            result[k++] = b[j++];
+        }
+        return trim(result, k);
+    }
+
+    /**
+     * Returns the ids that are in both posting lists.
+     * Lists of similar length are merged linearly. When one list is much shorter, each of its
+     * ids is found in the longer list by galloping (an exponential search followed by a binary
+     * search from the last match), which costs O(m log(n / m)) instead of O(m + n).
+     *
+     * @param a the first posting list
+     * @param b the second posting list
+     * @return the intersection, strictly ascending
+     */
+    public static int[] intersect(int[] a, int[] b) {
+        int[] small = a.length <= b.length ? a : b;
+        int[] large = small == a ? b : a;
+        if (small.length == 0) {
+            return EMPTY;
+        }
+        if (large.length / small.length >= GALLOP_RATIO) {
+            return gallop(small, large);
+        }
+        int[] result = new int[small.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[k++] = a[i++];
+                j++;
+            }
+        }
+        return trim(result, k);
+    }
+
+    /**
+     * Returns the ids that are in all the posting lists.
+     * The lists are intersected from the shortest to the longest, so every step works on the
+     * smallest possible result, and it stops as soon as the result is empty.
+     *
+     * @param lists the posting lists
+     * @return the intersection, strictly ascending, empty if there are no lists
+     */
+    public static int[] intersectAll(List<int[]> lists) {
+        if (lists.isEmpty()) {
+            return EMPTY;
+        }
+        List<int[]> sorted = new ArrayList<>(lists);
+        sorted.sort((l1, l2) -> Integer.compare(l1.length, l2.length));
+        int[] result = sorted.get(0);
+        for (int i = 1; i < sorted.size() && result.length > 0; i++) {
+            result = intersect(result, sorted.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ids that are in any of the posting lists.
+     * Two lists are merged; more lists are collected in a bitset, which removes the duplicates
+     * and yields the ids in order without merging the lists pairwise.
+     *
+     * @param lists the posting lists
+     * @return the union, strictly ascending
+     */
+    public static int[] unionAll(List<int[]> lists) {
+        if (lists.isEmpty()) {
+            return EMPTY;
+        } else if (lists.size() == 1) {
+            return lists.get(0);
+        } else if (lists.size() == 2) {
+            return union(lists.get(0), lists.get(1));
+        }
+        BitSet ids = new BitSet();
+        for (int[] list : lists) {
+            for (int id : list) {
+                ids.set(id);
+            }
+        }
+        int[] result = new int[ids.cardinality()];
+        int k = 0;
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            result[k++] = id;
+        }
+        return result;
+    }
+
+    // finds each id of the short list in the long list, starting after the last match
+    private static int[] gallop(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int k = 0;
+        int from = 0;
+        for (int value : small) {
+            int bound = 1;
+            while (from + bound < large.length && large[from + bound] < value) {
+                bound <<= 1;
+            }
+            int index = Arrays.binarySearch(large, from, Math.min(from + bound + 1, large.length), value);
+            if (index >= 0) {
+                result[k++] = value;
+                from = index + 1;
+            } else {
+                from = -index - 1;
+            }
+            if (from >= large.length) {
+                break;
+            }
+        }
+        return trim(result, k);
+    }
+
+    private static int[] trim(int[] values, int length) {
+        if (length == values.length) {
+            return values;
+        }
+        int[] trimmed = new int[length];
+        System.arraycopy(values, 0, trimmed, 0, length);
+        return trimmed;
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.smartcity.backend.dataStructure;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * SearchQuery is a class that parses a search query into boolean clauses.
+ * Words separated by whitespace must all match (AND). The operator "OR" (or "|") separates
+ * alternatives, and binds weaker than AND, so "thai house OR pizza" means
+ * (thai AND house) OR pizza. Words in double quotes form a phrase that must occur in this
+ * order in a name, and so does a word that normalizes to several words ("thai-style").
+ * A word ending with "*" is a name prefix and is kept as it was typed; all the other words
+ * are normalized by the Tokenizer.
+ * It is used by the RestaurantManager to evaluate search queries.
+ *
+ */
+public class SearchQuery {
+    public static final String OR = "OR";
+    public static final String OR_SYMBOL = "|";
+    public static final String PREFIX_MARKER = "*";
+
+    /**
+     * The kinds of clauses of a query.
+     */
+    public enum Kind {
+        TERM, PHRASE, PREFIX
+    }
+
+    /**
+     * Clause is one condition of a query: a normalized word, a phrase of normalized words,
+     * or a name prefix.
+     */
+    public static class Clause {
+        private final Kind kind;
+        private final List<String> words;
+
+        public Clause(Kind kind, List<String> words) {
+            this.kind = kind;
+            this.words = Collections.unmodifiableList(new ArrayList<>(words));
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public List<String> getWords() {
+            return words;
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case PHRASE:
+                    return "\"" + String.join(" ", words) + "\"";
+                case PREFIX:
+                    return words.get(0) + PREFIX_MARKER;
+                default:
+                    return words.get(0);
+            }
+        }
+    }
+
+    private final List<List<Clause>> groups;
+
+    private SearchQuery(List<List<Clause>> groups) {
+        this.groups = groups;
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param query     The query typed by the user
+     * @param tokenizer The tokenizer used to normalize the words
+     * @return The parsed query
+     */
+    public static SearchQuery parse(String query, Tokenizer tokenizer) {
+        List<List<Clause>> groups = new ArrayList<>();
+        List<Clause> group = new ArrayList<>();
+        int i = 0;
+        int n = query.length();
+        while (i < n) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = n;
+                }
+                addWords(group, tokenizer.normalizedTokens(query.substring(i + 1, end)));
+                i = end + 1;
+            } else {
+                int end = i;
+                while (end < n && !Character.isWhitespace(query.charAt(end)) && query.charAt(end) != '"') {
+                    end++;
+                }
+                String word = query.substring(i, end);
+                if (word.equals(OR) || word.equals(OR_SYMBOL)) {
+                    addGroup(groups, group);
+                    group = new ArrayList<>();
+                } else if (word.length() > PREFIX_MARKER.length() && word.endsWith(PREFIX_MARKER)) {
+                    String prefix = word.substring(0, word.length() - PREFIX_MARKER.length());
+                    group.add(new Clause(Kind.PREFIX, Collections.singletonList(prefix)));
+                } else {
+                    addWords(group, tokenizer.normalizedTokens(word));
+                }
+                i = end;
+            }
+        }
+        addGroup(groups, group);
+        return new SearchQuery(groups);
+    }
+
+    // a single word is a term, several words are a phrase
+    private static void addWords(List<Clause> group, List<String> words) {
+        if (words.size() == 1) {
+            group.add(new Clause(Kind.TERM, words));
+        } else if (words.size() > 1) {
+            group.add(new Clause(Kind.PHRASE, words));
+        }
+    }
+
+    private static void addGroup(List<List<Clause>> groups, List<Clause> group) {
+        if (!group.isEmpty()) {
+            groups.add(Collections.unmodifiableList(group));
+        }
+    }
+
+    /**
+     * Returns the alternatives of the query; each alternative is a list of clauses that must
+     * all match.
+     *
+     * @return the groups of clauses
+     */
+    public List<List<Clause>> getGroups() {
+        return Collections.unmodifiableList(groups);
+    }
+
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    /**
+     * Returns the canonical form of the query, which is the same for all the queries that
+     * parse to the same clauses.
+     *
+     * @return the canonical form of the query
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (List<Clause> group : groups) {
+            if (builder.length() > 0) {
+                builder.append(' ').append(OR).append(' ');
+            }
+            for (int i = 0; i < group.size(); i++) {
+                if (i > 0) {
+                    builder.append(' ');
+                }
+                builder.append(group.get(i));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.smartcity.backend.dataStructure;
+
+import com.example.smartcity.backend.entity.Restaurant;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * SortRanks is a class that precomputes an integer sort key for every restaurant and every
+ * sort order, so sorting search results compares no prices or ratings at all.
+ * A key is a dense rank: equal values share a rank and ranks have no gaps, so the keys stay
+ * as small as the number of distinct values. Prices take at most five ranks, with an unknown
+ * price ranked last in both directions, and ratings and rating counts are ranked by value.
+ * Results are sorted with a stable LSD radix sort over the keys, one pass per byte that the
+ * largest key needs, which is linear in the number of results. Being stable, it keeps the
+ * relevance order of results with equal keys.
+ * It is used to sort search results by price, rating and popularity.
+ *
+ */
+public class SortRanks {
+
+    /**
+     * The supported sort orders.
+     */
+    public enum Order {
+        PRICE_LOW_TO_HIGH, PRICE_HIGH_TO_LOW, RATING_HIGH_TO_LOW, RATING_LOW_TO_HIGH, POPULARITY
+    }
+
+    // the price level of a restaurant whose price is unknown
+    private static final int UNKNOWN_PRICE = 5;
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    // keys[order.ordinal()][id] is the sort key of the restaurant id for the order
+    private final int[][] keys = new int[Order.values().length][];
+    private final int[] maxKeys = new int[Order.values().length];
+
+    /**
+     * Computes the sort keys of the restaurants for every order.
+     *
+     * @param restaurants the restaurants; the id of a restaurant is its position in the list
+     */
+    public SortRanks(List<Restaurant> restaurants) {
+        int n = restaurants.size();
+        int[] priceLowToHigh = new int[n];
+        int[] priceHighToLow = new int[n];
+        double[] ratings = new double[n];
+        double[] ratingCounts = new double[n];
+        for (int id = 0; id < n; id++) {
+            Restaurant restaurant = restaurants.get(id);
+            int price = restaurant.getPrice();
+            priceLowToHigh[id] = price;
+            priceHighToLow[id] = price == UNKNOWN_PRICE ? UNKNOWN_PRICE : UNKNOWN_PRICE - price;
+            ratings[id] = restaurant.getRating();
+            ratingCounts[id] = restaurant.getUser_ratings_total();
+        }
+        setKeys(Order.PRICE_LOW_TO_HIGH, priceLowToHigh);
+        setKeys(Order.PRICE_HIGH_TO_LOW, priceHighToLow);
+        int[] ratingRanks = denseRanks(ratings);
+        setKeys(Order.RATING_LOW_TO_HIGH, ratingRanks);
+        setKeys(Order.RATING_HIGH_TO_LOW, reverse(ratingRanks));
+        setKeys(Order.POPULARITY, reverse(denseRanks(ratingCounts)));
+    }
+
+    /**
+     * Returns the sort key of a restaurant for an order; smaller keys come first.
+     *
+     * @param order the sort order
+     * @param id    the id of the restaurant
+     * @return the sort key
+     */
+    public int key(Order order, int id) {
+        return keys[order.ordinal()][id];
+    }
+
+    /**
+     * Sorts restaurant ids by an order. Ids with equal keys keep their order.
+     *
+     * @param ids   the ids to sort
+     * @param order the sort order
+     * @return the sorted ids, in a new array
+     */
+    public int[] sort(int[] ids, Order order) {
+        int[] orderKeys = keys[order.ordinal()];
+        int[] source = ids.clone();
+        int[] target = new int[ids.length];
+        int[] counts = new int[RADIX + 1];
+        for (int shift = 0; shift < Integer.SIZE && (maxKeys[order.ordinal()] >>> shift) != 0; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int id : source) {
+                counts[((orderKeys[id] >>> shift) & (RADIX - 1)) + 1]++;
+            }
+            for (int digit = 0; digit < RADIX; digit++) {
+                counts[digit + 1] += counts[digit];
+            }
+            for (int id : source) {
+                target[counts[(orderKeys[id] >>> shift) & (RADIX - 1)]++] = id;
+            }
+            int[] swap = source;
+            source = target;
+            target = swap;
+        }
+        return source;
+    }
+
+    private void setKeys(Order order, int[] orderKeys) {
+        keys[order.ordinal()] = orderKeys;
+        int max = 0;
+        for (int key : orderKeys) {
+            max = Math.max(max, key);
+        }
+        maxKeys[order.ordinal()] = max;
+    }
+
+    // ranks the values from 0, ascending, with equal values sharing a rank
+    private static int[] denseRanks(double[] values) {
+        double[] distinct = values.clone();
+        Arrays.sort(distinct);
+        int size = 0;
+        for (double value : distinct) {
+            if (size == 0 || Double.compare(distinct[size - 1], value) != 0) {
+                distinct[size++] = value;
+            }
+        }
+        int[] ranks = new int[values.length];
+        for (int id = 0; id < values.length; id++) {
+            ranks[id] = Arrays.binarySearch(distinct, 0, size, values[id]);
+        }
+        return ranks;
+    }
+
+    // turns ascending ranks into descending ones
+    private static int[] reverse(int[] ranks) {
+        int max = 0;
+        for (int rank : ranks) {
+            max = Math.max(max, rank);
+        }
+        int[] reversed = new int[ranks.length];
+        for (int id = 0; id < ranks.length; id++) {
+            reversed[id] = max - ranks[id];
+        }
+        return reversed;
+    }
+}
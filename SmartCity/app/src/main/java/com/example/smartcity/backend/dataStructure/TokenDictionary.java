@@ -0,0 +1,323 @@
+package com.example.smartcity.backend.dataStructure;
+
+import com.example.smartcity.backend.entity.Restaurant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TokenDictionary is the vocabulary of the restaurant names, built in one pass over a
+ * snapshot of the AVL tree.
+ * Every distinct normalized token is interned once and given a term id in the order it is
+ * first seen. For every term it records the document frequency (the number of names that
+ * contain it), the posting list of those names and how often the term occurs in each of them,
+ * and for every name it records its length in tokens. The id of a restaurant is its rank in the snapshot.
+ * It exposes the vocabulary as a hashed view (token to term id), a sorted view and a
+ * frequency view, and is shared by the Parser and the search indexes so that the names
+ * are only tokenized once.
+ *
+ */
+public class TokenDictionary {
+    private final AvlTree<Restaurant> tree;
+    private final Restaurant[] restaurants;
+    private final int[] documentLengths;
+    private final Map<String, Integer> termIds;
+    private final String[] terms;
+    private final int[] documentFrequencies;
+    private final int[][] postings;
+    private final int[][] frequencies;
+    private final double averageDocumentLength;
+    private final String[] sortedTerms;
+
+    /**
+     * Builds the dictionary over the current contents of the tree.
+     *
+     * @param tree the AVL tree of restaurants
+     */
+    public TokenDictionary(AvlTree<Restaurant> tree) {
+        this.tree = tree.snapshot();
+        this.restaurants = new Restaurant[this.tree.size()];
+        this.documentLengths = new int[restaurants.length];
+
+        Tokenizer tokenizer = new Tokenizer();
+        TermCollector collector = new TermCollector();
+        int id = 0;
+        for (Restaurant restaurant : this.tree) {
+            restaurants[id] = restaurant;
+            collector.document = id;
+            collector.documentLength = 0;
+            tokenizer.tokenize(restaurant.getName(), collector);
+            documentLengths[id] = collector.documentLength;
+            id++;
+        }
+
+        this.terms = collector.terms.toArray(new String[0]);
+        this.termIds = new HashMap<>(terms.length * 2);
+        this.documentFrequencies = new int[terms.length];
+        this.postings = new int[terms.length][];
+        this.frequencies = new int[terms.length][];
+        for (int termId = 0; termId < terms.length; termId++) {
+            termIds.put(terms[termId], termId);
+            postings[termId] = collector.postings.get(termId).toArray();
+            frequencies[termId] = collector.frequencies.get(termId).toArray();
+            documentFrequencies[termId] = postings[termId].length;
+        }
+        long totalLength = 0;
+        for (int length : documentLengths) {
+            totalLength += length;
+        }
+        this.averageDocumentLength = restaurants.length == 0 ? 0 : (double) totalLength / restaurants.length;
+        this.sortedTerms = terms.clone();
+        Arrays.sort(sortedTerms);
+    }
+
+    /**
+     * Normalizes a token the same way the dictionary normalizes the tokens of the names.
+     *
+     * @param token the token to normalize
+     * @return the normalized token
+     */
+    public static String normalize(String token) {
+        return Tokenizer.normalize(token);
+    }
+
+    /**
+     * Returns the term id of a token.
+     *
+     * @param token the token to look up, normalized or not
+     * @return the term id, or -1 if the token is not in the dictionary
+     */
+    public int termId(String token) {
+        Integer termId = termIds.get(normalize(token));
+        return termId == null ? -1 : termId;
+    }
+
+    public String term(int termId) {
+        return terms[termId];
+    }
+
+    /**
+     * Returns the number of restaurant names that contain the token.
+     *
+     * @param token the token to look up, normalized or not
+     * @return the document frequency, 0 if the token is not in the dictionary
+     */
+    public int documentFrequency(String token) {
+        int termId = termId(token);
+        return termId < 0 ? 0 : documentFrequencies[termId];
+    }
+
+    public int documentFrequency(int termId) {
+        return documentFrequencies[termId];
+    }
+
+    /**
+     * Returns the posting list of a term, the ascending ids of the names that contain it.
+     * The returned array is shared and must not be modified.
+     *
+     * @param termId the term id
+     * @return the posting list
+     */
+    public int[] postings(int termId) {
+        return postings[termId];
+    }
+
+    /**
+     * Returns how often the term occurs in each name of its posting list.
+     * The returned array is parallel to the posting list, shared and must not be modified.
+     *
+     * @param termId the term id
+     * @return the term frequencies
+     */
+    public int[] frequencies(int termId) {
+        return frequencies[termId];
+    }
+
+    /**
+     * Returns the terms in the order they were first seen, e.g. as the valid tokens of a Parser.
+     *
+     * @return an unmodifiable list of the terms
+     */
+    public List<String> terms() {
+        return Collections.unmodifiableList(Arrays.asList(terms));
+    }
+
+    /**
+     * Returns the terms in ascending lexicographic order.
+     *
+     * @return an unmodifiable list of the sorted terms
+     */
+    public List<String> sortedTerms() {
+        return Collections.unmodifiableList(Arrays.asList(sortedTerms));
+    }
+
+    /**
+     * Returns the ids of the terms that start with the prefix.
+     * The terms are found by a binary search in the sorted view, so the cost depends on the
+     * number of matching terms and not on the size of the dictionary.
+     *
+     * @param prefix the normalized prefix
+     * @return the term ids, in the order of the sorted terms
+     */
+    public int[] termIdsWithPrefix(String prefix) {
+        int from = Arrays.binarySearch(sortedTerms, prefix);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        int to = from;
+        while (to < sortedTerms.length && sortedTerms[to].startsWith(prefix)) {
+            to++;
+        }
+        int[] ids = new int[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = termIds.get(sortedTerms[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the terms from the most to the least frequent, ties in lexicographic order.
+     *
+     * @return a list of the terms ordered by document frequency
+     */
+    public List<String> termsByFrequency() {
+        List<String> list = new ArrayList<>(Arrays.asList(sortedTerms));
+        list.sort((t1, t2) -> Integer.compare(documentFrequency(t2), documentFrequency(t1)));
+        return list;
+    }
+
+    public int termCount() {
+        return terms.length;
+    }
+
+    /**
+     * Returns the restaurant with the given id.
+     *
+     * @param id the id of the restaurant
+     * @return the restaurant
+     */
+    public Restaurant getRestaurant(int id) {
+        return restaurants[id];
+    }
+
+    /**
+     * Returns the number of tokens in the name of the restaurant with the given id.
+     *
+     * @param id the id of the restaurant
+     * @return the length of the name in tokens
+     */
+    public int documentLength(int id) {
+        return documentLengths[id];
+    }
+
+    public double averageDocumentLength() {
+        return averageDocumentLength;
+    }
+
+    public int documentCount() {
+        return restaurants.length;
+    }
+
+    /**
+     * Returns the snapshot of the tree the dictionary was built from.
+     *
+     * @return the snapshot
+     */
+    public AvlTree<Restaurant> getTree() {
+        return tree;
+    }
+
+    /**
+     * TermCollector interns the tokens emitted by the Tokenizer and records their postings.
+     * Tokens are looked up in an open-addressing table straight from the tokenizer buffer,
+     * so a String is only created for the first occurrence of each term.
+     */
+    private static class TermCollector implements Tokenizer.TokenSink {
+        private final List<String> terms = new ArrayList<>();
+        private final List<IntList> postings = new ArrayList<>();
+        private final List<IntList> frequencies = new ArrayList<>();
+        private final IntList hashes = new IntList();
+        // term id + 1 per slot, 0 for an empty slot
+        private int[] slots = new int[256];
+        private int document;
+        private int documentLength;
+
+        @Override
+        public void accept(char[] buffer, int length, int start, int end) {
+            documentLength++;
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + buffer[i];
+            }
+            int mask = slots.length - 1;
+            int slot = mix(hash) & mask;
+            int termId;
+            while (true) {
+                if (slots[slot] == 0) {
+                    termId = addTerm(new String(buffer, 0, length), hash, slot);
+                    break;
+                }
+                int candidate = slots[slot] - 1;
+                if (hashes.get(candidate) == hash && matches(terms.get(candidate), buffer, length)) {
+                    termId = candidate;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            IntList list = postings.get(termId);
+            IntList counts = frequencies.get(termId);
+            // documents are visited in ascending order, a token repeated in the same name is counted
+            if (list.last(-1) != document) {
+                list.add(document);
+                counts.add(1);
+            } else {
+                counts.set(counts.size() - 1, counts.last(0) + 1);
+            }
+        }
+
+        // adds a new term in the given empty slot and grows the table past half full
+        private int addTerm(String term, int hash, int slot) {
+            int termId = terms.size();
+            terms.add(term);
+            hashes.add(hash);
+            postings.add(new IntList(4));
+            frequencies.add(new IntList(4));
+            slots[slot] = termId + 1;
+            if (terms.size() * 2 > slots.length) {
+                int[] grown = new int[slots.length * 2];
+                int mask = grown.length - 1;
+                for (int id = 0; id < terms.size(); id++) {
+                    int index = mix(hashes.get(id)) & mask;
+                    while (grown[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    grown[index] = id + 1;
+                }
+                slots = grown;
+            }
+            return termId;
+        }
+
+        private static boolean matches(String term, char[] buffer, int length) {
+            if (term.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (term.charAt(i) != buffer[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // spreads the low bits of String-style hashes of similar tokens
+        private static int mix(int hash) {
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
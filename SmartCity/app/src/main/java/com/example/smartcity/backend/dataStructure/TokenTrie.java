@@ -0,0 +1,178 @@
+package com.example.smartcity.backend.dataStructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * TokenTrie is a trie of the valid-token dictionary that supports fuzzy lookup.
+ * A lookup walks the trie together with the Levenshtein automaton of the query token.
+ * The state of the automaton after reading a trie path is one row of the edit distance
+ * matrix between the query and that path, so every trie edge costs one row update, and
+ * the rows of common prefixes are shared by all the words below them.
+ * A branch is abandoned as soon as every entry of its row exceeds the maximum distance,
+ * because no word below it can then be within that distance of the query.
+ * It is used as an alternative to the BK-tree for spelling correction.
+ *
+ */
+public class TokenTrie {
+    private static class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        // the position of the word ending here in the dictionary, or -1 if no word ends here
+        private int order = -1;
+        private String word;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+
+        Node addChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node child = new Node();
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = child;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+    }
+
+    /**
+     * A word of the dictionary found by a fuzzy lookup, with its distance to the query.
+     */
+    public static class Match {
+        private final String word;
+        private final int distance;
+        private final int order;
+
+        Match(String word, int distance, int order) {
+            this.word = word;
+            this.distance = distance;
+            this.order = order;
+        }
+
+        public String getWord() {
+            return word;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+    }
+
+    private final Node root = new Node();
+    private int size;
+    private int maxDepth;
+
+    /**
+     * Adds a word to the trie. Adding a word that is already in the trie has no effect.
+     *
+     * @param word the word to add
+     */
+    public void add(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            node = node.addChild(word.charAt(i));
+        }
+        if (node.order < 0) {
+            node.order = size++;
+            node.word = word;
+            maxDepth = Math.max(maxDepth, word.length());
+        }
+    }
+
+    /**
+     * Checks whether the word is in the trie.
+     *
+     * @param word the word to look up
+     * @return true if the word was added
+     */
+    public boolean contains(String word) {
+        Node node = root;
+        for (int i = 0; i < word.length() && node != null; i++) {
+            node = node.child(word.charAt(i));
+        }
+        return node != null && node.order >= 0;
+    }
+
+    /**
+     * Finds all words within the maximum distance of the query, ranked by distance.
+     * Words at the same distance are ranked in the order they were added.
+     *
+     * @param query       the word to look up
+     * @param maxDistance the largest distance a result may have
+     * @return the matching words, closest first
+     */
+    public List<Match> search(String query, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+        int columns = query.length() + 1;
+        // one automaton state per depth, reused by every branch at that depth
+        int[][] rows = new int[maxDepth + 1][columns];
+        for (int i = 0; i < columns; i++) {
+            rows[0][i] = i;
+        }
+        if (root.order >= 0 && query.length() <= maxDistance) {
+            matches.add(new Match(root.word, query.length(), root.order));
+        }
+        walk(root, query, maxDistance, rows, 0, matches);
+
+        matches.sort((m1, m2) -> m1.distance != m2.distance
+                ? Integer.compare(m1.distance, m2.distance)
+                : Integer.compare(m1.order, m2.order));
+        return matches;
+    }
+
+    /**
+     * Finds the word closest to the query within the maximum distance.
+     * If several words are equally close, the one that was added first is returned.
+     *
+     * @param query       the word to look up
+     * @param maxDistance the largest distance a result may have
+     * @return the closest word, or null if no word is within maxDistance
+     */
+    public String closest(String query, int maxDistance) {
+        List<Match> matches = search(query, maxDistance);
+        return matches.isEmpty() ? null : matches.get(0).word;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Step the automaton over every child edge of the node and descend while a match is still possible
+    private void walk(Node node, String query, int maxDistance, int[][] rows, int depth, List<Match> matches) {
+        int[] row = rows[depth];
+        int[] next = rows[depth + 1];
+        for (int c = 0; c < node.keys.length; c++) {
+            char key = node.keys[c];
+            next[0] = row[0] + 1;
+            int rowMin = next[0];
+            for (int i = 1; i < next.length; i++) {
+                int cost = query.charAt(i - 1) == key ? 0 : 1;
+                next[i] = Math.min(row[i - 1] + cost, Math.min(row[i] + 1, next[i - 1] + 1));
+                rowMin = Math.min(rowMin, next[i]);
+            }
+
+            Node child = node.children[c];
+            int distance = next[next.length - 1];
+            if (child.order >= 0 && distance <= maxDistance) {
+                matches.add(new Match(child.word, distance, child.order));
+            }
+            if (rowMin <= maxDistance && child.keys.length > 0) {
+                walk(child, query, maxDistance, rows, depth + 1, matches);
+            }
+        }
+    }
+}
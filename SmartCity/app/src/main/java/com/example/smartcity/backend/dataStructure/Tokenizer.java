@@ -1,21 +1,209 @@
 package com.example.smartcity.backend.dataStructure;
 
+import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Tokenizer is a class that tokenizes a query string into a list of tokens.
  * It splits the query string by whitespace and returns a list of tokens.
- * It is used to process user input for search queries.
+ * It can also scan a text once and emit its normalized tokens to a TokenSink: letters and
+ * digits are lower-cased and stripped of their accents ("Swissôtel" becomes "swissotel"),
+ * apostrophes inside a word are dropped ("McDonald's" becomes "mcdonalds") and any other
+ * character separates tokens. The normalized tokens are written into a buffer that is reused
+ * for every token, so tokenizing does not allocate once the buffer has grown to the longest token.
+ * It is used to process user input for search queries and to tokenize restaurant names when
+ * the indexes are built.
  *
  */
 public class Tokenizer {
+
+    /**
+     * TokenSink receives the normalized tokens of a text, one at a time.
+     */
+    public interface TokenSink {
+        /**
+         * Accepts a normalized token.
+         * The buffer is reused for the next token, so it must be copied if it is kept.
+         *
+         * @param buffer the buffer holding the normalized token in its first length chars
+         * @param length the length of the normalized token
+         * @param start  the index of the first char of the token in the text
+         * @param end    the index after the last char of the token in the text
+         */
+        void accept(char[] buffer, int length, int start, int end);
+    }
+
+    // the folded form of every char below the end of Latin Extended-B
+    private static final char[] FOLDED = buildFoldTable(0x250);
+
+    private char[] buffer = new char[32];
+
     public List<String> tokenize(String query) {
-        String[] tokens = query.split("\\s+");
         List<String> tokenList = new ArrayList<>();
-        for (String token : tokens) {
-            tokenList.add(token);
+        int start = -1;
+        for (int i = 0; i < query.length(); i++) {
+            if (Character.isWhitespace(query.charAt(i))) {
+                if (start >= 0) {
+                    tokenList.add(query.substring(start, i));
+                    start = -1;
+                }
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+        if (start >= 0) {
+            tokenList.add(query.substring(start));
         }
         return tokenList;
     }
+
+    /**
+     * Scans the text once and passes each normalized token to the sink, in order.
+     * A Tokenizer is not thread-safe, as the buffer is shared by all the calls.
+     *
+     * @param text the text to tokenize
+     * @param sink the sink receiving the tokens
+     */
+    public void tokenize(CharSequence text, TokenSink sink) {
+        int length = 0;
+        int start = 0;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            char folded = fold(c);
+            if (Character.isLetterOrDigit(folded)) {
+                if (length == 0) {
+                    start = i;
+                }
+                if (length == buffer.length) {
+                    char[] grown = new char[length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, length);
+                    buffer = grown;
+                }
+                buffer[length++] = folded;
+            } else if (length > 0 && !isIgnorable(c, text, i)) {
+                sink.accept(buffer, length, start, i);
+                length = 0;
+            }
+        }
+        if (length > 0) {
+            sink.accept(buffer, length, start, n);
+        }
+    }
+
+    /**
+     * Returns the normalized tokens of the text.
+     *
+     * @param text the text to tokenize
+     * @return the normalized tokens, in order
+     */
+    public List<String> normalizedTokens(CharSequence text) {
+        List<String> tokenList = new ArrayList<>();
+        tokenize(text, (chars, length, start, end) -> tokenList.add(new String(chars, 0, length)));
+        return tokenList;
+    }
+
+    /**
+     * Normalizes a token with the same rules as tokenize: it is folded, apostrophes inside a
+     * word and combining accents are dropped, and any other char that is not a letter or a
+     * digit separates words, which are joined by a single space ("McDonald's" becomes
+     * "mcdonalds" and "fish&chips" becomes "fish chips").
+     *
+     * @param token the token to normalize
+     * @return the normalized token
+     */
+    public static String normalize(String token) {
+        if (isNormalized(token)) {
+            // most tokens already come from tokenize
+            return token;
+        }
+        StringBuilder builder = new StringBuilder(token.length());
+        boolean separated = false;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            char folded = fold(c);
+            if (Character.isLetterOrDigit(folded)) {
+                if (separated && builder.length() > 0) {
+                    builder.append(' ');
+                }
+                separated = false;
+                builder.append(folded);
+            } else if (!isIgnorable(c, token, i)) {
+                separated = true;
+            }
+        }
+        return builder.toString();
+    }
+
+    // a token is normalized if every char is a letter or a digit that folds to itself
+    private static boolean isNormalized(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (fold(c) != c || !Character.isLetterOrDigit(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Folds every char of the text, keeping the chars that are not letters or digits.
+     *
+     * @param text the text to fold
+     * @return the folded text, with the same length as the text
+     */
+    public static String fold(String text) {
+        char[] chars = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char folded = fold(c);
+            if (folded != c) {
+                if (chars == null) {
+                    chars = text.toCharArray();
+                }
+                chars[i] = folded;
+            }
+        }
+        return chars == null ? text : new String(chars);
+    }
+
+    /**
+     * Folds a char to lower case without its accent, e.g. 'É' to 'e'.
+     *
+     * @param c the char to fold
+     * @return the folded char
+     */
+    public static char fold(char c) {
+        if (c < FOLDED.length) {
+            return FOLDED[c];
+        }
+        return Character.toLowerCase(c);
+    }
+
+    // apostrophes inside a word and combining accents do not end a token
+    private static boolean isIgnorable(char c, CharSequence text, int i) {
+        if (Character.getType(c) == Character.NON_SPACING_MARK) {
+            return true;
+        }
+        return (c == '\'' || c == '\u2019')
+                && i + 1 < text.length() && Character.isLetterOrDigit(fold(text.charAt(i + 1)));
+    }
+
+    // decomposes each char once, so folding is a table lookup
+    private static char[] buildFoldTable(int size) {
+        char[] table = new char[size];
+        for (int c = 0; c < size; c++) {
+            char lower = Character.toLowerCase((char) c);
+            String decomposed = Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD);
+            table[c] = decomposed.charAt(0) < 0x80 ? decomposed.charAt(0) : lower;
+        }
+        table['\u00f8'] = 'o';
+        table['\u00d8'] = 'o';
+        table['\u0111'] = 'd';
+        table['\u0110'] = 'd';
+        table['\u0142'] = 'l';
+        table['\u0141'] = 'l';
+        return table;
+    }
 }
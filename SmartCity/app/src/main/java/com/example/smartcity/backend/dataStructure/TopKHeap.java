@@ -0,0 +1,122 @@
+package com.example.smartcity.backend.dataStructure;
+
+import java.util.Arrays;
+
+/**
+ * TopKHeap keeps the k best scored ids offered to it.
+ * It is a binary min-heap of at most k entries whose root is the worst entry kept, so an
+ * offer that is not better than the root is rejected in constant time and any other offer
+ * costs O(log k). Selecting the best k of n candidates therefore costs O(n log k) instead of
+ * sorting all n. Equal scores are ordered by ascending id.
+ * It is used to rank search results without sorting the whole candidate set.
+ *
+ */
+public class TopKHeap {
+    private final int capacity;
+    private int[] ids;
+    private double[] scores;
+    private int size;
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param capacity the number of entries to keep
+     */
+    public TopKHeap(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative: " + capacity);
+        }
+        this.capacity = capacity;
+        // grow on demand, so a large capacity costs nothing until it is used
+        int initial = Math.min(capacity, 16);
+        this.ids = new int[initial];
+        this.scores = new double[initial];
+    }
+
+    /**
+     * Offers a scored id to the heap.
+     * It is kept if the heap is not full or if it is better than the worst entry kept.
+     *
+     * @param id    the id
+     * @param score the score of the id, higher is better
+     */
+    public void offer(int id, double score) {
+        if (size < capacity) {
+            if (size == ids.length) {
+                int grown = (int) Math.min(capacity, ids.length * 2L);
+                ids = Arrays.copyOf(ids, grown);
+                scores = Arrays.copyOf(scores, grown);
+            }
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (capacity > 0 && isWorse(ids[0], scores[0], id, score)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all the entries and returns their ids from the best to the worst.
+     *
+     * @return the ids, best first
+     */
+    public int[] drain() {
+        int[] result = new int[size];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = ids[0];
+            size--;
+            ids[0] = ids[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    // whether entry (id1, score1) ranks below entry (id2, score2)
+    private static boolean isWorse(int id1, double score1, int id2, double score2) {
+        return score1 < score2 || (score1 == score2 && id1 > id2);
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!isWorse(ids[index], scores[index], ids[parent], scores[parent])) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isWorse(ids[child + 1], scores[child + 1], ids[child], scores[child])) {
+                child++;
+            }
+            if (!isWorse(ids[child], scores[child], ids[index], scores[index])) {
+                break;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.smartcity.backend.dataStructure;
+
+import com.example.smartcity.backend.entity.Restaurant;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * TrigramIndex is an n-gram index over the restaurant names for substring (infix) search.
+ * Every name, normalized like the query fragments (lower-cased, stripped of accents and
+ * punctuation, see Tokenizer.normalize), is cut into overlapping three-character grams,
+ * and every gram maps to the sorted ids of the names that contain it.
+ * A substring query intersects the posting lists of its own grams, starting with the
+ * shortest, and then verifies only the surviving candidates with String.contains.
+ * The id of a restaurant is its rank in the snapshot of the AVL tree the index was
+ * built from, the same as in InvertedIndex for the same snapshot.
+ *
+ */
+public class TrigramIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final String[] names;
+    // sorted packed grams and their posting lists, looked up by binary search
+    private final long[] grams;
+    private final int[][] postings;
+
+    /**
+     * Builds the index over the current contents of the tree.
+     *
+     * @param tree the AVL tree of restaurants to index
+     */
+    public TrigramIndex(AvlTree<Restaurant> tree) {
+        AvlTree<Restaurant> snapshot = tree.snapshot();
+        this.names = new String[snapshot.size()];
+
+        Map<Long, IntList> builders = new HashMap<>();
+        int id = 0;
+        for (Restaurant restaurant : snapshot) {
+            String name = normalize(restaurant.getName());
+            names[id] = name;
+            for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+                Long gram = pack(name, i);
+                IntList list = builders.get(gram);
+                if (list == null) {
+                    list = new IntList(4);
+                    builders.put(gram, list);
+                }
+                // ids are visited in ascending order, skip a gram repeated in the same name
+                if (list.last(-1) != id) {
+                    list.add(id);
+                }
+            }
+            id++;
+        }
+
+        this.grams = new long[builders.size()];
+        int i = 0;
+        for (Long gram : builders.keySet()) {
+            grams[i++] = gram;
+        }
+        Arrays.sort(grams);
+        this.postings = new int[grams.length][];
+        for (i = 0; i < grams.length; i++) {
+            postings[i] = builders.get(grams[i]).toArray();
+        }
+    }
+
+    /**
+     * Searches for the names that contain the given fragment, ignoring case.
+     * Fragments shorter than three characters have no grams to look up, so they are
+     * checked against every name.
+     *
+     * @param fragment the fragment to search for
+     * @return the ids of the matching restaurants, in ascending order
+     */
+    public int[] search(String fragment) {
+        String query = normalize(fragment);
+        if (query.isEmpty()) {
+            return PostingLists.EMPTY;
+        }
+        if (query.length() < GRAM_LENGTH) {
+            return verify(null, query);
+        }
+
+        int gramCount = query.length() - GRAM_LENGTH + 1;
+        int[][] lists = new int[gramCount][];
+        for (int i = 0; i < gramCount; i++) {
+            int index = Arrays.binarySearch(grams, pack(query, i));
+            if (index < 0) {
+                // a gram that is in no name means no name contains the fragment
+                return PostingLists.EMPTY;
+            }
+            lists[i] = postings[index];
+        }
+
+        // intersect the shortest lists first so the candidate set shrinks as fast as possible
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.length));
+        int[] candidates = lists[0];
+        for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+            candidates = PostingLists.intersect(candidates, lists[i]);
+        }
+        // every gram matching does not guarantee the grams are adjacent in the right order
+        return verify(candidates, query);
+    }
+
+    // Keep the candidates whose names contain the query, or check every name if there are no candidates
+    private int[] verify(int[] candidates, String query) {
+        IntList matches = new IntList();
+        int count = candidates == null ? names.length : candidates.length;
+        for (int i = 0; i < count; i++) {
+            int id = candidates == null ? i : candidates[i];
+            if (names[id].contains(query)) {
+                matches.add(id);
+            }
+        }
+        return matches.toArray();
+    }
+
+    /**
+     * Estimates the heap memory used by the index in bytes.
+     * It counts the gram keys, the posting list arrays and the stored names,
+     * assuming 16 byte array headers, 4 byte references and 40 bytes of String overhead.
+     *
+     * @return the estimated size of the index in bytes
+     */
+    public long memoryBytes() {
+        long bytes = 16 + 8L * grams.length;
+        bytes += 16 + 4L * postings.length;
+        for (int[] list : postings) {
+            bytes += 16 + 4L * list.length;
+        }
+        bytes += 16 + 4L * names.length;
+        for (String name : names) {
+            bytes += 40 + 2L * name.length();
+        }
+        return bytes;
+    }
+
+    public int gramCount() {
+        return grams.length;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    // names and fragments go through the same normalization, so "mcdonalds" finds "McDonald's"
+    private static String normalize(String text) {
+        return Tokenizer.normalize(text);
+    }
+
+    // Pack the three chars starting at index into one long
+    private static long pack(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.smartcity.backend.entity;
+
+import com.example.smartcity.backend.cache.MapRestaurantCache;
+import com.example.smartcity.backend.dao.CatalogDao;
+import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.util.DataCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * CatalogLoader is a class that loads the restaurant catalog page by page and makes it
+ * searchable while it is still loading.
+ * Every page is inserted into the AVL tree as one batch, and a RestaurantManager is built over
+ * a snapshot of the tree and published with the coverage of its searches. A published manager
+ * is never changed, so each snapshot is published as a new manager with its own coverage.
+ * The first page is published as soon as it arrives; after that a snapshot is only indexed again once the tree has
+ * doubled in size since the last one, and once more when the last page arrives, so the indexes
+ * are built O(log n) times for a total cost within a small factor of building them once.
+ * The next page is requested before the current one is indexed, so downloading and indexing
+ * overlap. Each snapshot is published to the screens through RestaurantManager.publish, and the
+ * map tiles in which restaurants were added since the previous snapshot are dropped at the same
+ * time on the callback executor, so the map never keeps a tile filled from an older snapshot.
+ * It is used to show search results on slow networks before the whole catalog is downloaded.
+ *
+ */
+public class CatalogLoader {
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    // a snapshot is indexed again once the tree has grown by this factor
+    private static final int REINDEX_GROWTH = 2;
+
+    /**
+     * Listener receives the searchable snapshots of the catalog.
+     * It is called on the callback executor.
+     */
+    public interface Listener {
+        /**
+         * Called when a larger part of the catalog can be searched.
+         *
+         * @param manager  The manager searching the restaurants loaded so far
+         * @param coverage The part of the catalog it searches
+         */
+        void onSnapshot(RestaurantManager manager, SearchCoverage coverage);
+
+        /**
+         * Called when a page cannot be loaded. The last snapshot stays searchable.
+         *
+         * @param error The error message
+         */
+        void onFailure(String error);
+    }
+
+    private final CatalogDao catalogDao;
+    private final AvlTree<Restaurant> tree;
+    private final int pageSize;
+    private final Executor indexExecutor;
+    private final Executor callbackExecutor;
+    private volatile Listener listener;
+    private volatile boolean loading;
+    private volatile boolean cancelled;
+    private volatile int expectedTotal = SearchCoverage.UNKNOWN_TOTAL;
+
+    // only used on the index executor
+    private int loaded;
+    private int nextIndexAt;
+    private RestaurantManager lastManager;
+    // the restaurants inserted since the last snapshot was indexed
+    private final List<Restaurant> addedSinceSnapshot = new ArrayList<>();
+
+    /**
+     * Constructor for CatalogLoader class.
+     *
+     * @param catalogDao       The source of the pages
+     * @param tree             The tree the restaurants are inserted into
+     * @param pageSize         The number of restaurants requested per page
+     * @param indexExecutor    The executor that inserts the pages and builds the indexes, one task at a time
+     * @param callbackExecutor The executor that calls the listener, e.g. the main thread
+     */
+    public CatalogLoader(CatalogDao catalogDao, AvlTree<Restaurant> tree, int pageSize,
+                         Executor indexExecutor, Executor callbackExecutor) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.catalogDao = catalogDao;
+        this.tree = tree;
+        this.pageSize = pageSize;
+        this.indexExecutor = indexExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Starts loading the catalog from its first page.
+     *
+     * @param expectedTotal The number of restaurants expected, e.g. from the last complete load,
+     *                      or SearchCoverage.UNKNOWN_TOTAL
+     * @param listener      The listener receiving the snapshots
+     */
+    public void start(int expectedTotal, Listener listener) {
+        this.expectedTotal = expectedTotal;
+        this.listener = listener;
+        this.loading = true;
+        requestPage(null);
+    }
+
+    /**
+     * Replaces the listener, e.g. when the view showing the results is recreated.
+     *
+     * @param listener The new listener, or null to drop the snapshots until a listener is set
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Stops requesting pages. The restaurants loaded so far stay in the tree.
+     */
+    public void cancel() {
+        cancelled = true;
+        loading = false;
+    }
+
+    /**
+     * @return true until the last page has been inserted into the tree, or loading has failed or been cancelled
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    private void requestPage(String afterKey) {
+        catalogDao.loadPage(afterKey, pageSize, new DataCallback<CatalogDao.Page>() {
+            @Override
+            public void onSuccess(CatalogDao.Page page) {
+                if (cancelled) {
+                    return;
+                }
+                // children that could not be read still count, or a page with one would end the catalog
+                boolean last = page.getLastKey() == null || page.getChildCount() < pageSize;
+                List<Restaurant> restaurants = page.getRestaurants();
+                indexExecutor.execute(() -> addPage(restaurants, last));
+                if (!last) {
+                    requestPage(page.getLastKey());
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                loading = false;
+                callbackExecutor.execute(() -> {
+                    Listener current = listener;
+                    if (current != null) {
+                        current.onFailure(error);
+                    }
+                });
+            }
+        });
+    }
+
+    // inserts a page and publishes a new snapshot when the tree has grown enough
+    private void addPage(List<Restaurant> restaurants, boolean last) {
+        if (cancelled) {
+            return;
+        }
+        if (!restaurants.isEmpty()) {
+            List<AvlTree.Mutation<Restaurant>> inserts = new ArrayList<>(restaurants.size());
+            for (Restaurant restaurant : restaurants) {
+                inserts.add(AvlTree.Mutation.insert(restaurant));
+            }
+            tree.applyAll(inserts);
+            loaded += restaurants.size();
+            addedSinceSnapshot.addAll(restaurants);
+        }
+        if (last) {
+            // the whole catalog is in the tree now
+            loading = false;
+        } else if (loaded < nextIndexAt) {
+            return;
+        }
+        AvlTree<Restaurant> snapshot = tree.snapshot();
+        Set<String> changedTiles = MapRestaurantCache.tilesOf(addedSinceSnapshot);
+        addedSinceSnapshot.clear();
+        SearchCoverage coverage = last
+                ? SearchCoverage.complete(snapshot.size())
+                : new SearchCoverage(snapshot.size(), expectedTotal, false);
+        if (lastManager == null || lastManager.size() != snapshot.size()) {
+            lastManager = new RestaurantManager(snapshot).withCoverage(coverage);
+            nextIndexAt = Math.max(loaded * REINDEX_GROWTH, 1);
+        } else {
+            // nothing was added, so the indexes are shared with a new manager rather than
+            // changing the coverage of the one the screens are reading
+            lastManager = lastManager.withCoverage(coverage);
+        }
+        RestaurantManager manager = lastManager;
+        callbackExecutor.execute(() -> {
+            MapRestaurantCache.getInstance().invalidate(changedTiles);
+            RestaurantManager.publish(manager);
+            Listener current = listener;
+            if (current != null) {
+                current.onSnapshot(manager, coverage);
+            }
+        });
+    }
+}
@@ -139,10 +139,14 @@ public class Restaurant implements Serializable, Comparable<Restaurant> {
     /**
      * Returns an integer representation of the estimated price level.
      *
-     * @return the price level as an integer based on the estimated price string
+     * @return the price level as an integer based on the estimated price string,
+     *         5 if the price is unknown or missing
      *
      */
     public int getPrice() {
+        if (estimated_price == null) {
+            return 5;
+        }
         switch (estimated_price) {
             case "$10-$25":
                 return 1;
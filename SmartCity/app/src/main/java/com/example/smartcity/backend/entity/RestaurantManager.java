@@ -1,87 +1,636 @@
 package com.example.smartcity.backend.entity;
 
-import android.content.Context;
-
+import com.example.smartcity.backend.cache.SearchCache;
 import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.backend.dataStructure.Bm25;
+import com.example.smartcity.backend.dataStructure.FacetIndex;
+import com.example.smartcity.backend.dataStructure.GeoBounds;
+import com.example.smartcity.backend.dataStructure.IntList;
+import com.example.smartcity.backend.dataStructure.InvertedIndex;
+import com.example.smartcity.backend.dataStructure.KdTree;
 import com.example.smartcity.backend.dataStructure.Parser;
+import com.example.smartcity.backend.dataStructure.PostingLists;
+import com.example.smartcity.backend.dataStructure.SearchQuery;
+import com.example.smartcity.backend.dataStructure.SortRanks;
+import com.example.smartcity.backend.dataStructure.TokenDictionary;
+import com.example.smartcity.backend.dataStructure.TopKHeap;
 import com.example.smartcity.backend.dataStructure.Tokenizer;
+import com.example.smartcity.backend.dataStructure.TrigramIndex;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.IntPredicate;
 
 /**
  * RestaurantManager is a class that manages the search functionality for restaurants.
- * It uses an AVL tree to store and search for restaurants.
+ * It uses an AVL tree to store and search for restaurants, and an inverted index over the
+ * tokens of the restaurant names so that token lookups do not scan the tree.
+ * Fragments that are not whole words (e.g. "otel") are matched anywhere in the names
+ * through a trigram index before falling back to spelling correction.
+ * Queries combine words with AND by default, and support OR and quoted phrases.
+ * The matches are ranked by relevance with BM25 and only the best ones are returned.
+ * Filters are looked up in bitmap indexes over the type, price and rating of the restaurants,
+ * and sorting uses sort keys precomputed for every restaurant.
+ * The restaurants nearest to a location are found in a k-d tree over their locations.
  * It uses a Tokenizer and Parser to process user input for search queries.
  * It is used to search for restaurants based on user input.
  *
  */
 public class RestaurantManager {
-    private static RestaurantManager instance;
-    private AvlTree<Restaurant> restaurantTree = new AvlTree();
+    // the filter option that keeps all the types
+    public static final String FILTER_ALL_TYPES = "Type";
+    // the sort option that keeps the results in relevance order
+    public static final String SORT_BY_RELEVANCE = "Sort By";
+    // the sort option that shows the nearest results first, see searchNearest
+    public static final String SORT_BY_DISTANCE = "Distance: Nearest First";
+    // the sort options, as shown in the sort spinner
+    private static final Map<String, SortRanks.Order> SORT_ORDERS = new HashMap<>();
+
+    static {
+        SORT_ORDERS.put("Price: Low to High", SortRanks.Order.PRICE_LOW_TO_HIGH);
+        SORT_ORDERS.put("Price: High to Low", SortRanks.Order.PRICE_HIGH_TO_LOW);
+        SORT_ORDERS.put("Rating: High to Low", SortRanks.Order.RATING_HIGH_TO_LOW);
+        SORT_ORDERS.put("Rating: Low to High", SortRanks.Order.RATING_LOW_TO_HIGH);
+        SORT_ORDERS.put("Popularity: High to Low", SortRanks.Order.POPULARITY);
+    }
+
+    // marks the exact match in the key of a cached search
+    private static final String EXACT_MATCH_KEY = "=";
+
+    // the manager over the newest snapshot of the catalog, shared by the screens
+    private static volatile RestaurantManager published;
+    private AvlTree<Restaurant> restaurantTree;
+    private InvertedIndex invertedIndex;
+    private TrigramIndex trigramIndex;
     private Tokenizer tokenizer;
     private Parser parser;
+    private Bm25 bm25;
+    private FacetIndex facetIndex;
+    private SortRanks sortRanks;
+    private SearchCache searchCache;
+    private SearchCoverage coverage;
+    // the ids of the restaurants with a location
+    private KdTree<Integer> spatialIndex;
+
+    /**
+     * Constructor for RestaurantManager class.
+     * It tokenizes the restaurant names once into a TokenDictionary, which the inverted index
+     * and the Parser share, and builds the trigram and spatial indexes from the same snapshot.
+     * The manager searches a snapshot of the tree taken here, so restaurants added to the
+     * tree later are only searched by a new manager.
+     * Building the indexes takes time proportional to the size of the tree, so large trees
+     * should be indexed off the main thread.
+     *
+     * @param tree The AVL tree of restaurants
+     */
+    public RestaurantManager(AvlTree<Restaurant> tree) {
+        TokenDictionary dictionary = new TokenDictionary(tree);
+        init(dictionary, new Parser(dictionary));
+        this.searchCache = SearchCache.getInstance();
+    }
 
     /**
      * Constructor for RestaurantManager class.
-     * It initializes the AVL tree and the Tokenizer and Parser.
+     * It initializes the AVL tree and the Tokenizer and Parser, and builds the inverted
+     * and trigram indexes.
+     * As the corrections depend on the given valid tokens, its results are not cached.
+     * The manager searches a snapshot of the tree taken here, so restaurants added to the
+     * tree later are only searched by a new manager.
      *
      * @param tree        The AVL tree of restaurants
      * @param validTokens A list of valid tokens
      * @return An instance of the RestaurantManager class
      */
     public RestaurantManager(AvlTree<Restaurant> tree, List<String> validTokens) {
-        this.restaurantTree = tree;
+        init(new TokenDictionary(tree), new Parser(validTokens));
+    }
+
+    // only used by withCoverage, which fills in the fields
+    private RestaurantManager() {
+    }
+
+    // builds the indexes over the snapshot of the dictionary
+    private void init(TokenDictionary dictionary, Parser parser) {
+        this.invertedIndex = new InvertedIndex(dictionary);
+        this.restaurantTree = dictionary.getTree();
+        // built from the same snapshot, so both indexes use the same ids
+        this.trigramIndex = new TrigramIndex(restaurantTree);
         this.tokenizer = new Tokenizer();
-        this.parser = new Parser(validTokens);
+        this.parser = parser;
+        this.bm25 = new Bm25(dictionary);
+        List<Restaurant> restaurants = new ArrayList<>(dictionary.documentCount());
+        for (int id = 0; id < dictionary.documentCount(); id++) {
+            restaurants.add(dictionary.getRestaurant(id));
+        }
+        // indexed by the ids of the dictionary, so a filter is a lookup by id
+        this.facetIndex = new FacetIndex(restaurants);
+        this.sortRanks = new SortRanks(restaurants);
+        this.spatialIndex = buildSpatialIndex();
+        this.coverage = SearchCoverage.complete(restaurants.size());
     }
 
     /**
-     * Gets the instance of the RestaurantManager class.
-     * It ensures that there is only one instance of the RestaurantManager in the application.
+     * Searches for restaurants matching the query, most relevant first.
      *
-     * @param query        The search query
+     * @param query      The search query
      * @param filterType The filter type
      * @return A list of restaurants that match the search query
      */
     public List<Restaurant> search(String query, String filterType) {
-        List<String> tokens = tokenizer.tokenize(query);
-        List<String> parsedTokens = parser.parse(tokens);
-
-        List<Restaurant> results = new ArrayList<>();
-        for (String token : parsedTokens) {
-            Restaurant exactMatch = restaurantTree.searchExact(token);
-            if (exactMatch != null) {
-                results.add(exactMatch);
-            } else {
-                results.addAll(restaurantTree.searchByContains(token));
+        return search(query, filterType, SORT_BY_RELEVANCE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches for at most limit restaurants matching the query, most relevant first.
+     *
+     * @param query      The search query
+     * @param filterType The filter type
+     * @param limit      The largest number of results
+     * @return A list of restaurants that match the search query
+     */
+    public List<Restaurant> search(String query, String filterType, int limit) {
+        return search(query, filterType, SORT_BY_RELEVANCE, limit);
+    }
+
+    /**
+     * Searches for at most limit restaurants matching the query.
+     * A query equal to a whole restaurant name is an exact match. Otherwise the query is parsed
+     * into a SearchQuery: all the words must match unless they are separated by "OR", and
+     * quoted words must match as a phrase. A word ending with "*" is a name prefix, the other
+     * words are normalized (case, accents and punctuation folded), a known word is looked up in
+     * the inverted index, any other word is matched as a fragment of the names, and only words
+     * that match nothing at all are spell-corrected. More words only narrow the matches, and the
+     * posting lists are intersected shortest first.
+     * The matches that pass the filter are ranked with BM25 over the known words of the query,
+     * boosted by rating and popularity, with the exact match first. Only the best limit matches
+     * are kept while ranking, so a broad query does not sort all of its matches. With any other
+     * sort option, the first limit matches in that order are selected from all the matches and
+     * results that are equal for the option keep their relevance order.
+     * The results are cached under the normalized query, the filter and the sort option, so a
+     * repeated search only tokenizes the query and looks up the cache.
+     *
+     * @param query      The search query
+     * @param filterType The filter type
+     * @param sortBy     The sort option, e.g. "Price: Low to High"
+     * @param limit      The largest number of results
+     * @return A list of restaurants that match the search query
+     */
+    public List<Restaurant> search(String query, String filterType, String sortBy, int limit) {
+        SearchQuery searchQuery = SearchQuery.parse(query, tokenizer);
+        Restaurant exactMatch = restaurantTree.searchExact(query.trim());
+        int exactId = exactMatch == null ? -1 : invertedIndex.idOf(exactMatch);
+
+        String key = null;
+        if (searchCache != null) {
+            List<String> keyTokens = new ArrayList<>();
+            keyTokens.add(searchQuery.toString());
+            if (exactId >= 0) {
+                // the exact match depends on the query before normalization
+                keyTokens.add(EXACT_MATCH_KEY + exactId);
+            }
+            key = SearchCache.key(keyTokens, filterType, sortBy, limit);
+            List<Restaurant> cachedResults = searchCache.get(key, restaurantTree.getVersion());
+            if (cachedResults != null) {
+                return cachedResults;
             }
         }
 
-        return filterResultsByType(results, filterType);
+        IntList termIds = new IntList();
+        int[] matches = findMatches(searchQuery, exactId, termIds);
+        SortRanks.Order order = SORT_ORDERS.get(sortBy);
+        int[] ranked = order == null
+                ? bm25.rank(matches, termIds.toArray(), exactId, typeFilter(filterType), limit)
+                : rankBySortKey(matches, termIds.toArray(), exactId, typeFilter(filterType), order, limit);
+        List<Restaurant> results = invertedIndex.toRestaurants(ranked);
+
+        if (searchCache != null) {
+            searchCache.put(key, restaurantTree.getVersion(), results);
+        }
+        return results;
+    }
+
+    /**
+     * Finds the ids of all the restaurants matching a query.
+     * Every group of clauses is the intersection of the matches of its clauses, shortest
+     * first, and a group stops at its first clause without matches. The groups and the exact
+     * match are then merged.
+     *
+     * @param searchQuery The parsed query
+     * @param exactId     The id of the exact name match, or -1 if there is none
+     * @param termIds     Receives the term ids of the known words of the query
+     * @return The ids of the matching restaurants, in ascending order
+     */
+    private int[] findMatches(SearchQuery searchQuery, int exactId, IntList termIds) {
+        List<int[]> alternatives = new ArrayList<>();
+        if (exactId >= 0) {
+            alternatives.add(new int[]{exactId});
+        }
+        for (List<SearchQuery.Clause> group : searchQuery.getGroups()) {
+            List<int[]> clauseMatches = new ArrayList<>(group.size());
+            for (SearchQuery.Clause clause : group) {
+                int[] ids = resolveClause(clause, termIds);
+                if (ids.length == 0) {
+                    clauseMatches = null;
+                    break;
+                }
+                clauseMatches.add(ids);
+            }
+            if (clauseMatches != null) {
+                alternatives.add(PostingLists.intersectAll(clauseMatches));
+            }
+        }
+        return PostingLists.unionAll(alternatives);
+    }
+
+    /**
+     * Finds the ids of the restaurants matching a single clause.
+     * A prefix is a range scan of the AVL tree. A word is resolved as a whole word or as a
+     * fragment, and only spell-corrected if it matches nothing. A phrase needs all its words,
+     * in order and next to each other.
+     *
+     * @param clause  The clause to resolve
+     * @param termIds Receives the term ids of the known words of the clause
+     * @return The ids of the matching restaurants, in ascending order
+     */
+    private int[] resolveClause(SearchQuery.Clause clause, IntList termIds) {
+        switch (clause.getKind()) {
+            case PREFIX:
+                return toIds(restaurantTree.searchByPrefix(clause.getWords().get(0)));
+            case PHRASE:
+                List<String> words = new ArrayList<>();
+                List<int[]> wordMatches = new ArrayList<>();
+                for (String word : clause.getWords()) {
+                    String knownWord = invertedIndex.postings(word).length > 0 ? word : correct(word);
+                    int[] postings = invertedIndex.postings(knownWord);
+                    if (postings.length == 0) {
+                        return PostingLists.EMPTY;
+                    }
+                    words.add(knownWord);
+                    wordMatches.add(postings);
+                    addTermId(termIds, knownWord);
+                }
+                return filterPhrase(PostingLists.intersectAll(wordMatches), words);
+            default:
+                String word = clause.getWords().get(0);
+                int[] matches = resolveToken(word);
+                if (matches.length == 0) {
+                    word = correct(word);
+                    matches = resolveToken(word);
+                }
+                if (matches.length > 0) {
+                    addTermId(termIds, word);
+                }
+                return matches;
+        }
+    }
+
+    // returns the closest valid word, or the word itself if none is close enough
+    private String correct(String word) {
+        return parser.parse(Collections.singletonList(word)).get(0);
+    }
+
+    /**
+     * Keeps the restaurants whose names contain the words next to each other and in order.
+     *
+     * @param candidates The ids of the restaurants containing all the words
+     * @param words      The normalized words of the phrase
+     * @return The ids of the restaurants containing the phrase
+     */
+    private int[] filterPhrase(int[] candidates, List<String> words) {
+        IntList kept = new IntList();
+        for (int id : candidates) {
+            List<String> nameTokens = tokenizer.normalizedTokens(invertedIndex.get(id).getName());
+            if (Collections.indexOfSubList(nameTokens, words) >= 0) {
+                kept.add(id);
+            }
+        }
+        return kept.toArray();
+    }
+
+    // adds the term id of a known word to the query terms, once
+    private void addTermId(IntList termIds, String token) {
+        int termId = invertedIndex.getDictionary().termId(token);
+        if (termId < 0) {
+            return;
+        }
+        for (int i = 0; i < termIds.size(); i++) {
+            if (termIds.get(i) == termId) {
+                return;
+            }
+        }
+        termIds.add(termId);
+    }
+
+    /**
+     * Finds the ids of the restaurants matching a single token, without spelling correction.
+     * It tries the token as a whole word first, then as a fragment.
+     *
+     * @param token The token to resolve
+     * @return The ids of the matching restaurants, empty if nothing matches
+     */
+    private int[] resolveToken(String token) {
+        int[] postings = invertedIndex.postings(token);
+        if (postings.length > 0) {
+            return postings;
+        }
+        return trigramIndex.search(token);
+    }
+
+    /**
+     * Converts restaurants listed in name order to their ids in the inverted index.
+     *
+     * @param restaurants The restaurants, in ascending name order
+     * @return The ids of the restaurants, in ascending order
+     */
+    private int[] toIds(List<Restaurant> restaurants) {
+        int[] ids = new int[restaurants.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = invertedIndex.idOf(restaurants.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Starts a search-as-you-type session over this manager.
+     * The session runs its searches on its own background thread and delivers the results
+     * through the callback executor, e.g. the main thread.
+     *
+     * @param callbackExecutor The executor the results are delivered on
+     * @return A new search session, to be closed when it is no longer used
+     */
+    public SearchSession newSearchSession(Executor callbackExecutor) {
+        return new SearchSession(this, callbackExecutor);
+    }
+
+    /**
+     * Finds the restaurants nearest to a location that match the filter type.
+     * The filter is checked while the k-d tree is searched, so the catalog is not scanned
+     * and filtered out restaurants do not use up the k results.
+     * Restaurants without a location are left out.
+     *
+     * @param latitude   The latitude of the location
+     * @param longitude  The longitude of the location
+     * @param k          The largest number of results
+     * @param filterType The filter type
+     * @return The nearest restaurants, nearest first, with their distances
+     */
+    public List<KdTree.Neighbor<Restaurant>> nearest(double latitude, double longitude, int k, String filterType) {
+        return nearest(latitude, longitude, k, typeFilter(filterType));
     }
 
     /**
-     * Filters the search results by restaurant type.
-     * It returns only the restaurants that match the filter type.
-     * If the filter type is "Type", it returns all the search results.
+     * Finds the restaurants matching the query that are nearest to a location.
+     * The query matches the same restaurants as in search, but they are ordered by distance
+     * instead of relevance: the matches and the filter are combined into one test that is
+     * checked while the k-d tree is searched, so only the nearest matches are visited.
+     * Restaurants without a location are left out.
      *
-     * @param results    The search results
+     * @param query      The search query
      * @param filterType The filter type
-     * @return A list of restaurants that match the filter type
+     * @param latitude   The latitude of the location
+     * @param longitude  The longitude of the location
+     * @param limit      The largest number of results
+     * @return The nearest matching restaurants, nearest first, with their distances
+     */
+    public List<KdTree.Neighbor<Restaurant>> searchNearest(String query, String filterType,
+                                                           double latitude, double longitude, int limit) {
+        SearchQuery searchQuery = SearchQuery.parse(query, tokenizer);
+        Restaurant exactMatch = restaurantTree.searchExact(query.trim());
+        int exactId = exactMatch == null ? -1 : invertedIndex.idOf(exactMatch);
+        BitSet matches = new BitSet(invertedIndex.size());
+        for (int id : findMatches(searchQuery, exactId, new IntList())) {
+            matches.set(id);
+        }
+        IntPredicate type = typeFilter(filterType);
+        return nearest(latitude, longitude, limit, id -> matches.get(id) && type.test(id));
+    }
+
+    // searches the k-d tree for the k nearest restaurants that pass the test
+    private List<KdTree.Neighbor<Restaurant>> nearest(double latitude, double longitude, int k, IntPredicate accept) {
+        List<KdTree.Neighbor<Integer>> neighbors = spatialIndex
+                .nearest(latitude, longitude, k, Double.POSITIVE_INFINITY, accept::test);
+        List<KdTree.Neighbor<Restaurant>> results = new ArrayList<>(neighbors.size());
+        for (KdTree.Neighbor<Integer> neighbor : neighbors) {
+            results.add(new KdTree.Neighbor<>(invertedIndex.get(neighbor.getItem()), neighbor.getDistanceMeters()));
+        }
+        return results;
+    }
+
+    /**
+     * Finds the restaurants inside an area, e.g. a tile of the map.
+     * Restaurants without a location are left out.
+     *
+     * @param bounds The area
+     * @return The restaurants in the area
      */
-    private List<Restaurant> filterResultsByType(List<Restaurant> results, String filterType) {
-        if (filterType.equals("Type")) {
-            return results;
+    public List<Restaurant> withinBounds(GeoBounds bounds) {
+        List<Integer> ids = spatialIndex.withinBounds(bounds);
+        List<Restaurant> results = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            results.add(invertedIndex.get(id));
         }
+        return results;
+    }
 
-        List<Restaurant> filteredResults = new ArrayList<>();
-        for (Restaurant restaurant : results) {
-            if (restaurant.getTypes().contains(filterType.toLowerCase())) {
-                filteredResults.add(restaurant);
+    // indexes the ids of the restaurants with a location, as (0, 0) marks a missing location
+    private KdTree<Integer> buildSpatialIndex() {
+        List<Integer> located = new ArrayList<>();
+        for (int id = 0; id < invertedIndex.size(); id++) {
+            Restaurant restaurant = invertedIndex.get(id);
+            if (restaurant.getLatitude() != 0 || restaurant.getLongitude() != 0) {
+                located.add(id);
             }
         }
+        return new KdTree<>(located,
+                id -> invertedIndex.get(id).getLatitude(), id -> invertedIndex.get(id).getLongitude());
+    }
+
+    /**
+     * Makes a manager the one shared by the screens, e.g. so the map answers nearby lookups
+     * from its spatial index. The manager is fully built before it is published, so the
+     * screens switch to it in one step and never build an index on the main thread.
+     *
+     * @param manager The manager over the newest snapshot of the catalog
+     */
+    public static void publish(RestaurantManager manager) {
+        published = manager;
+    }
+
+    /**
+     * @return The manager over the newest snapshot of the catalog, or null if none has been built yet
+     */
+    public static RestaurantManager getPublished() {
+        return published;
+    }
+
+    /**
+     * Returns how much of the catalog the searches of this manager cover.
+     * A manager built while the catalog is loading only searches the restaurants loaded so far.
+     *
+     * @return The coverage of the searches
+     */
+    public SearchCoverage getCoverage() {
+        return coverage;
+    }
+
+    /**
+     * Returns a manager that searches the same snapshot with the same indexes, but covers
+     * another part of the catalog, e.g. once the last page of a loading catalog turns out to
+     * add no restaurants. A published manager is never changed, so it can be read by the
+     * screens while the next one is prepared.
+     *
+     * @param coverage The part of the catalog the new manager searches
+     * @return The new manager
+     */
+    RestaurantManager withCoverage(SearchCoverage coverage) {
+        RestaurantManager manager = new RestaurantManager();
+        manager.restaurantTree = restaurantTree;
+        manager.invertedIndex = invertedIndex;
+        manager.trigramIndex = trigramIndex;
+        manager.tokenizer = tokenizer;
+        manager.parser = parser;
+        manager.bm25 = bm25;
+        manager.facetIndex = facetIndex;
+        manager.sortRanks = sortRanks;
+        manager.searchCache = searchCache;
+        manager.spatialIndex = spatialIndex;
+        manager.coverage = coverage;
+        return manager;
+    }
 
-        return filteredResults;
+    /**
+     * @return The version of the snapshot of the tree that is searched
+     */
+    public long getVersion() {
+        return restaurantTree.getVersion();
+    }
+
+    /**
+     * @return The number of restaurants searched
+     */
+    public int size() {
+        return invertedIndex.size();
+    }
+
+    TokenDictionary getDictionary() {
+        return invertedIndex.getDictionary();
+    }
+
+    /**
+     * Ranks candidates that were found by a search session, in the same order as a search
+     * with the same sort option. Sorting by distance needs a location, so it ranks by relevance.
+     *
+     * @param candidates The ids of the candidates, in ascending order
+     * @param termIds    The distinct term ids of the query
+     * @param filterType The filter type
+     * @param sortBy     The sort option, e.g. "Price: Low to High"
+     * @param limit      The largest number of results
+     * @return The best candidates that match the filter type, in the order of the sort option
+     */
+    List<Restaurant> rank(int[] candidates, int[] termIds, String filterType, String sortBy, int limit) {
+        SortRanks.Order order = SORT_ORDERS.get(sortBy);
+        IntPredicate accept = typeFilter(filterType);
+        int[] ranked = order == null
+                ? bm25.rank(candidates, termIds, -1, accept, limit)
+                : rankBySortKey(candidates, termIds, -1, accept, order, limit);
+        return invertedIndex.toRestaurants(ranked);
+    }
+
+    /**
+     * Selects how misspelled tokens are corrected: with a BK-tree or with a trie walked by
+     * a Levenshtein automaton. Both give the same corrections.
+     *
+     * @param strategy The correction strategy
+     */
+    public void setCorrectionStrategy(Parser.Strategy strategy) {
+        parser.setStrategy(strategy);
+    }
+
+    /**
+     * Returns the bitmap indexes over the type, price and rating of the searched restaurants.
+     * Its ids are the ids of the search indexes, and it gives the facet counts of the filters.
+     *
+     * @return The facet index
+     */
+    public FacetIndex getFacetIndex() {
+        return facetIndex;
+    }
+
+    /**
+     * Returns the test of whether a restaurant id matches the filter type.
+     * If the filter type is "Type", every restaurant matches. Otherwise the ids of the type are
+     * looked up once in the facet index, so each candidate costs a single bit test.
+     *
+     * @param filterType The filter type
+     * @return The test on restaurant ids
+     */
+    private IntPredicate typeFilter(String filterType) {
+        if (filterType.equals(FILTER_ALL_TYPES)) {
+            return id -> true;
+        }
+        BitSet ids = facetIndex.filter().type(filterType).evaluate();
+        return ids::get;
+    }
+
+    /**
+     * Selects the first limit matches in a sort order, sorted by it, and orders the matches
+     * that are equal for it by relevance.
+     * It supports sorting by price (low to high, high to low), rating (high to low, low to high)
+     * and popularity. Restaurants with an unknown price come last in both price orders.
+     * The matches are offered to a TopKHeap by their precomputed sort keys, so the worst key
+     * kept is the cutoff: every match with a smaller key is a result, and only the most relevant
+     * of the matches at the cutoff fill the remaining places. The results are then radix sorted
+     * by their keys, which keeps the relevance order of equal keys.
+     *
+     * @param matches The ids of the matching restaurants, in ascending order
+     * @param termIds The distinct term ids of the query
+     * @param exactId The id of the exact name match, or -1 if there is none
+     * @param accept  The test of whether a match passes the filter
+     * @param order   The sort order
+     * @param limit   The largest number of results
+     * @return The ids of the results, in the sort order
+     */
+    private int[] rankBySortKey(int[] matches, int[] termIds, int exactId, IntPredicate accept,
+                                SortRanks.Order order, int limit) {
+        TopKHeap heap = new TopKHeap(Math.min(limit, matches.length));
+        for (int id : matches) {
+            if (accept.test(id)) {
+                // a smaller key is better
+                heap.offer(id, -sortRanks.key(order, id));
+            }
+        }
+        if (heap.size() < limit) {
+            // every match that passes the filter is a result
+            int[] ranked = bm25.rank(matches, termIds, exactId, accept, matches.length);
+            return sortRanks.sort(ranked, order);
+        }
+        int[] selected = heap.drain();
+        if (selected.length == 0) {
+            return selected;
+        }
+        int cutoff = sortRanks.key(order, selected[selected.length - 1]);
+        IntList below = new IntList();
+        IntList atCutoff = new IntList();
+        for (int id : matches) {
+            if (accept.test(id)) {
+                int key = sortRanks.key(order, id);
+                if (key < cutoff) {
+                    below.add(id);
+                } else if (key == cutoff) {
+                    atCutoff.add(id);
+                }
+            }
+        }
+        int[] rankedBelow = bm25.rank(below.toArray(), termIds, exactId, accept, below.size());
+        int[] rankedAtCutoff = bm25.rank(atCutoff.toArray(), termIds, exactId, accept, limit - below.size());
+        int[] ranked = new int[rankedBelow.length + rankedAtCutoff.length];
+        System.arraycopy(rankedBelow, 0, ranked, 0, rankedBelow.length);
+        System.arraycopy(rankedAtCutoff, 0, ranked, rankedBelow.length, rankedAtCutoff.length);
+        return sortRanks.sort(ranked, order);
     }
 }
@@ -0,0 +1,66 @@
+package com.example.smartcity.backend.entity;
+
+import java.util.Locale;
+
+/**
+ * SearchCoverage is a class that tells how much of the catalog a search has covered.
+ * While the catalog is still loading, searches only cover the restaurants loaded so far.
+ * It is used to tell the user that more results may come, e.g. "searched 1,200 / 3,503".
+ *
+ */
+public class SearchCoverage {
+    // the total of a catalog whose size is not known yet
+    public static final int UNKNOWN_TOTAL = -1;
+
+    private final int searched;
+    private final int total;
+    private final boolean complete;
+
+    /**
+     * Constructor for SearchCoverage class.
+     *
+     * @param searched The number of restaurants searched
+     * @param total    The expected number of restaurants in the catalog, or UNKNOWN_TOTAL
+     * @param complete Whether the whole catalog has been loaded
+     */
+    public SearchCoverage(int searched, int total, boolean complete) {
+        this.searched = searched;
+        this.total = complete ? searched : total;
+        this.complete = complete;
+    }
+
+    /**
+     * Returns the coverage of a fully loaded catalog.
+     *
+     * @param searched The number of restaurants in the catalog
+     * @return The coverage of a search over all of them
+     */
+    public static SearchCoverage complete(int searched) {
+        return new SearchCoverage(searched, searched, true);
+    }
+
+    public int getSearched() {
+        return searched;
+    }
+
+    /**
+     * @return The expected number of restaurants, or UNKNOWN_TOTAL if it is not known
+     */
+    public int getTotal() {
+        return total == UNKNOWN_TOTAL ? UNKNOWN_TOTAL : Math.max(total, searched);
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Override
+    public String toString() {
+        if (complete) {
+            return String.format(Locale.US, "searched %,d", searched);
+        } else if (total == UNKNOWN_TOTAL) {
+            return String.format(Locale.US, "searched %,d so far", searched);
+        }
+        return String.format(Locale.US, "searched %,d / %,d", searched, getTotal());
+    }
+}
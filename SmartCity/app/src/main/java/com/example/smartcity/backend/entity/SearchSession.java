@@ -0,0 +1,342 @@
+package com.example.smartcity.backend.entity;
+
+import com.example.smartcity.backend.dataStructure.IntList;
+import com.example.smartcity.backend.dataStructure.PostingLists;
+import com.example.smartcity.backend.dataStructure.TokenDictionary;
+import com.example.smartcity.backend.dataStructure.Tokenizer;
+import com.example.smartcity.util.DataCallback;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SearchSession is a class that searches for restaurants while the user is typing.
+ * Every word of the query must occur in a name, and the last word, while it is still being
+ * typed, only has to start a word of the name ("thai hou" matches "Thai House").
+ * When the words of a query extend those of the previous query and the previous last word
+ * was still being typed ("piz" then "pizz"), its matches are a subset of the previous matches,
+ * so the session narrows the previous candidates instead of searching the indexes again.
+ * Updates are debounced and run on a background thread shared by all the sessions; every
+ * update starts a new generation, and a search of an older generation stops early and is
+ * never delivered, not even as a failure. The results follow the selected sort option, so they
+ * are in the same order as those of a search with that option.
+ * It is used to show live results in the search box.
+ *
+ */
+public class SearchSession {
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+    // how many candidates are checked between two checks for a newer generation
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final RestaurantManager manager;
+    private final TokenDictionary dictionary;
+    private final Executor callbackExecutor;
+    // one daemon thread for all the sessions, so a session that is not closed does not keep it alive
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SearchSession");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicLong generation = new AtomicLong();
+    private final Tokenizer tokenizer = new Tokenizer();
+    private long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private ScheduledFuture<?> pending;
+
+    // the last completed search, only used on the session thread
+    private List<String> previousWords;
+    private boolean previousLastWordComplete;
+    private int[] previousCandidates;
+
+    SearchSession(RestaurantManager manager, Executor callbackExecutor) {
+        this.manager = manager;
+        this.dictionary = manager.getDictionary();
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public void setDebounceMillis(long debounceMillis) {
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Schedules a search for the current text of the search box, most relevant first.
+     *
+     * @param query      The text of the search box
+     * @param filterType The filter type
+     * @param limit      The largest number of results
+     * @param callback   Receives the results on the callback executor
+     */
+    public void update(String query, String filterType, int limit, DataCallback<List<Restaurant>> callback) {
+        update(query, filterType, RestaurantManager.SORT_BY_RELEVANCE, limit, callback);
+    }
+
+    /**
+     * Schedules a search for the current text of the search box.
+     * It replaces any search that has not been delivered yet, and runs after the debounce
+     * delay unless another update comes first.
+     *
+     * @param query      The text of the search box
+     * @param filterType The filter type
+     * @param sortBy     The sort option, e.g. "Price: Low to High"
+     * @param limit      The largest number of results
+     * @param callback   Receives the results on the callback executor
+     */
+    public synchronized void update(String query, String filterType, String sortBy, int limit,
+                                    DataCallback<List<Restaurant>> callback) {
+        long current = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+        }
+        pending = EXECUTOR.schedule(() -> run(current, query, filterType, sortBy, limit, callback),
+                debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cancels the search that has not been delivered yet, if any.
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+
+    /**
+     * Cancels any pending search. The background thread is shared, so it keeps running.
+     */
+    public synchronized void close() {
+        cancel();
+    }
+
+    /**
+     * Searches for the query right away, on the calling thread, most relevant first.
+     * It must not be called concurrently with a scheduled search.
+     *
+     * @param query      The text of the search box
+     * @param filterType The filter type
+     * @param limit      The largest number of results
+     * @return The matching restaurants, or null if a newer update cancelled it
+     */
+    public List<Restaurant> search(String query, String filterType, int limit) {
+        return search(query, filterType, RestaurantManager.SORT_BY_RELEVANCE, limit);
+    }
+
+    /**
+     * Searches for the query right away, on the calling thread, narrowing the previous
+     * candidates if the words of the query extend those of the previous query.
+     * It must not be called concurrently with a scheduled search.
+     *
+     * @param query      The text of the search box
+     * @param filterType The filter type
+     * @param sortBy     The sort option, e.g. "Price: Low to High"
+     * @param limit      The largest number of results
+     * @return The matching restaurants, in the order of the sort option, or null if a newer update cancelled it
+     */
+    public List<Restaurant> search(String query, String filterType, String sortBy, int limit) {
+        return search(generation.get(), query, filterType, sortBy, limit);
+    }
+
+    // runs a scheduled search and delivers it if no newer update came in the meantime
+    private void run(long current, String query, String filterType, String sortBy, int limit,
+                     DataCallback<List<Restaurant>> callback) {
+        List<Restaurant> results;
+        try {
+            results = search(current, query, filterType, sortBy, limit);
+        } catch (RuntimeException e) {
+            callbackExecutor.execute(() -> {
+                if (generation.get() == current) {
+                    callback.onFailure(e.getMessage());
+                }
+            });
+            return;
+        }
+        if (results == null) {
+            return;
+        }
+        callbackExecutor.execute(() -> {
+            if (generation.get() == current) {
+                callback.onSuccess(results);
+            }
+        });
+    }
+
+    private List<Restaurant> search(long current, String query, String filterType, String sortBy, int limit) {
+        List<String> words = new ArrayList<>();
+        boolean[] lastWordComplete = new boolean[1];
+        tokenizer.tokenize(query, (buffer, length, start, end) -> {
+            words.add(new String(buffer, 0, length));
+            lastWordComplete[0] = end < query.length();
+        });
+        if (words.isEmpty()) {
+            previousWords = null;
+            previousCandidates = null;
+            return Collections.emptyList();
+        }
+        List<String> completeWords = lastWordComplete[0] ? words : words.subList(0, words.size() - 1);
+        String prefix = lastWordComplete[0] ? null : words.get(words.size() - 1);
+
+        int[] candidates;
+        if (extendsPrevious(words)) {
+            candidates = narrow(current, previousCandidates, completeWords, prefix);
+        } else {
+            candidates = find(completeWords, prefix);
+        }
+        if (candidates == null) {
+            return null;
+        }
+        previousWords = words;
+        previousLastWordComplete = lastWordComplete[0];
+        previousCandidates = candidates;
+
+        IntList termIds = new IntList();
+        for (String word : words) {
+            int termId = dictionary.termId(word);
+            if (termId >= 0) {
+                termIds.add(termId);
+            }
+        }
+        if (generation.get() != current) {
+            return null;
+        }
+        return manager.rank(candidates, distinct(termIds.toArray()), filterType, sortBy, limit);
+    }
+
+    /**
+     * Checks whether the matches of the words are a subset of the previous candidates.
+     * Comparing the raw text is not enough: typing an ignorable char can turn the last word
+     * from a prefix into a complete word ("mcdonald" then "mcdonald'"), which matches fewer
+     * names than the word it later becomes ("mcdonald's"). So the previous last word must
+     * still have been a prefix, the new words must repeat the previous complete words, and
+     * the word in its place must start with it.
+     *
+     * @param words The normalized words of the query
+     * @return true if the previous candidates can be narrowed
+     */
+    private boolean extendsPrevious(List<String> words) {
+        if (previousWords == null || previousLastWordComplete || words.size() < previousWords.size()) {
+            return false;
+        }
+        int last = previousWords.size() - 1;
+        for (int i = 0; i < last; i++) {
+            if (!words.get(i).equals(previousWords.get(i))) {
+                return false;
+            }
+        }
+        return words.get(last).startsWith(previousWords.get(last));
+    }
+
+    /**
+     * Finds the candidates from the indexes: the intersection of the posting lists of the
+     * complete words and of all the words starting with the prefix.
+     *
+     * @param completeWords The normalized complete words
+     * @param prefix        The normalized word being typed, or null
+     * @return The ids of the candidates, in ascending order
+     */
+    private int[] find(List<String> completeWords, String prefix) {
+        int[] candidates = null;
+        for (String word : completeWords) {
+            int termId = dictionary.termId(word);
+            if (termId < 0) {
+                return PostingLists.EMPTY;
+            }
+            int[] postings = dictionary.postings(termId);
+            candidates = candidates == null ? postings : PostingLists.intersect(candidates, postings);
+        }
+        if (prefix != null) {
+            List<int[]> lists = new ArrayList<>();
+            for (int termId : dictionary.termIdsWithPrefix(prefix)) {
+                lists.add(dictionary.postings(termId));
+            }
+            int[] prefixed = PostingLists.unionAll(lists);
+            candidates = candidates == null ? prefixed : PostingLists.intersect(candidates, prefixed);
+        }
+        return candidates;
+    }
+
+    /**
+     * Keeps the previous candidates whose names still match the query.
+     * Each name is tokenized again, which is cheaper than searching the indexes once the
+     * candidates are few.
+     *
+     * @param current       The generation of the search
+     * @param candidates    The previous candidates, in ascending order
+     * @param completeWords The normalized complete words
+     * @param prefix        The normalized word being typed, or null
+     * @return The remaining candidates, or null if a newer update cancelled the search
+     */
+    private int[] narrow(long current, int[] candidates, List<String> completeWords, String prefix) {
+        IntList kept = new IntList();
+        boolean[] found = new boolean[completeWords.size() + 1];
+        for (int i = 0; i < candidates.length; i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && generation.get() != current) {
+                return null;
+            }
+            Arrays.fill(found, false);
+            String name = dictionary.getRestaurant(candidates[i]).getName();
+            tokenizer.tokenize(name, (buffer, length, start, end) -> {
+                for (int w = 0; w < completeWords.size(); w++) {
+                    if (!found[w] && equals(completeWords.get(w), buffer, length)) {
+                        found[w] = true;
+                    }
+                }
+                if (prefix != null && !found[found.length - 1] && startsWith(buffer, length, prefix)) {
+                    found[found.length - 1] = true;
+                }
+            });
+            if (matchesAll(found, prefix != null)) {
+                kept.add(candidates[i]);
+            }
+        }
+        return kept.toArray();
+    }
+
+    private static boolean matchesAll(boolean[] found, boolean hasPrefix) {
+        for (int w = 0; w < found.length - 1; w++) {
+            if (!found[w]) {
+                return false;
+            }
+        }
+        return !hasPrefix || found[found.length - 1];
+    }
+
+    private static boolean equals(String word, char[] buffer, int length) {
+        return word.length() == length && startsWith(buffer, length, word);
+    }
+
+    private static boolean startsWith(char[] buffer, int length, String prefix) {
+        if (prefix.length() > length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (buffer[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // sorts the ids and removes duplicates
+    private static int[] distinct(int[] ids) {
+        if (ids.length == 0) {
+            return ids;
+        }
+        Arrays.sort(ids);
+        int size = 1;
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] != ids[size - 1]) {
+                ids[size++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, size);
+    }
+}
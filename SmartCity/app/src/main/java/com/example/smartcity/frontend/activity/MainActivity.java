@@ -9,6 +9,7 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.example.smartcity.R;
+import com.example.smartcity.backend.cache.MapRestaurantCache;
 import com.example.smartcity.frontend.fragment.ChatFragment;
 import com.example.smartcity.frontend.fragment.HomeFragment;
 import com.example.smartcity.frontend.fragment.MapFragment;
@@ -18,6 +19,7 @@ import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 /**
  * MainActivity manages navigation between fragments
+ * It also releases cached map data when the system runs low on memory.
  *
  */
 
@@ -89,4 +91,15 @@ public class MainActivity extends AppCompatActivity {
             }
         }
     }
+
+    /**
+     * Trims the cache of map tiles when the system asks the app to release memory.
+     *
+     * @param level The context of the trim, e.g. TRIM_MEMORY_RUNNING_LOW
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        MapRestaurantCache.getInstance().onTrimMemory(level);
+    }
 }
@@ -1,11 +1,20 @@
 package com.example.smartcity.frontend.fragment;
 
+import android.Manifest;
+import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ListView;
@@ -14,44 +23,67 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
 
 import com.example.smartcity.R;
+import com.example.smartcity.backend.dao.CatalogDaoImpl;
 import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.backend.dataStructure.FacetIndex;
+import com.example.smartcity.backend.dataStructure.KdTree;
 import com.example.smartcity.frontend.activity.CommentActivity;
 import com.example.smartcity.frontend.adapter.ItemListAdapter;
 import com.example.smartcity.backend.dataStructure.AvlTreeManager;
-import com.example.smartcity.backend.dataStructure.Tokenizer;
+import com.example.smartcity.backend.entity.CatalogLoader;
 import com.example.smartcity.backend.entity.Restaurant;
 import com.example.smartcity.backend.entity.RestaurantManager;
-import com.google.firebase.database.DataSnapshot;
-import com.google.firebase.database.DatabaseError;
-import com.google.firebase.database.FirebaseDatabase;
-import com.google.firebase.database.Query;
-import com.google.firebase.database.ValueEventListener;
+import com.example.smartcity.backend.entity.SearchCoverage;
+import com.example.smartcity.backend.entity.SearchSession;
+import com.example.smartcity.util.DataCallback;
+import com.google.android.gms.location.LocationServices;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * HomeFragment is the main fragment that displays the list of restaurants.
  * It allows users to search for restaurants by name and filter/sort the results.
- * The restaurant data is fetched from Firebase and stored in an AVL tree.
+ * Results are also shown live while the user is typing.
+ * The filter options show how many restaurants there are of each type.
+ * The restaurant data is fetched from Firebase page by page and stored in an AVL tree,
+ * and it can be searched while it is still loading.
  * The search results are displayed in a ListView using ItemListAdapter.
  *
  */
 public class HomeFragment extends Fragment {
 
+    // indexes the restaurant names off the main thread, one build at a time
+    private static final ExecutorService INDEX_EXECUTOR = Executors.newSingleThreadExecutor();
+    // the number of most relevant results shown for a search
+    private static final int MAX_RESULTS = 100;
+    // remembers the size of the catalog, so the coverage of the next load has a total
+    private static final String CATALOG_PREFERENCES = "catalog";
+    private static final String CATALOG_SIZE_KEY = "restaurant_count";
+    // loads the catalog into the shared AVL tree, and outlives the view while it is loading
+    private static CatalogLoader catalogLoader;
+
     private View homeView;
     private EditText editTextSearch;
     private Button buttonSearch;
     private ListView listViewRestaurants;
     private AvlTree<Restaurant> restaurantTree;
     private RestaurantManager restaurantManager;
+    private SearchSession searchSession;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
     private ItemListAdapter itemListAdapter;
     private Spinner spinnerFilter, spinnerSortBy;
+    // the filter values behind the labels of the filter spinner, which also show the counts
+    private String[] filterOptions;
+    private final List<String> filterLabels = new ArrayList<>();
+    private ArrayAdapter<String> filterAdapter;
 
     private List<Restaurant> restaurantList = new ArrayList<>();
 
@@ -81,18 +113,48 @@ public class HomeFragment extends Fragment {
         spinnerFilter = homeView.findViewById(R.id.spinnerFilter);
         spinnerSortBy = homeView.findViewById(R.id.spinnerSortBy);
 
+        filterOptions = getResources().getStringArray(R.array.filter_options);
+        filterLabels.clear();
+        filterLabels.addAll(Arrays.asList(filterOptions));
+        filterAdapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_spinner_item, filterLabels);
+        filterAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerFilter.setAdapter(filterAdapter);
+
         itemListAdapter = new ItemListAdapter(getContext(), restaurantList);
         listViewRestaurants.setAdapter(itemListAdapter);
 
         restaurantTree = AvlTreeManager.getInstance();
 
-        if (restaurantTree.countNodes() == 0) {
+        RestaurantManager published = RestaurantManager.getPublished();
+        if (catalogLoader != null && catalogLoader.isLoading()) {
+            catalogLoader.setListener(catalogListener);
+            // the newest snapshot stays searchable until the loader publishes the next one
+            if (published != null) {
+                publishRestaurantManager(published);
+            }
+        } else if (restaurantTree.countNodes() == 0) {
             fetchRestaurantDataFromFirebase();
+        } else if (published != null && published.getVersion() == restaurantTree.getVersion()) {
+            publishRestaurantManager(published);
         } else {
-            List<String> validTokens = getValidTokens();
-            restaurantManager = new RestaurantManager(restaurantTree, validTokens);
+            buildRestaurantManager();
         }
 
+        editTextSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                performLiveSearch(s.toString());
+            }
+        });
+
         buttonSearch.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
@@ -142,44 +204,47 @@ public class HomeFragment extends Fragment {
     }
 
     /**
-     * Fetches restaurant data from Firebase and inserts it into the AVL tree.
-     * It listens for a single value event and retrieves the data snapshot.
-     * It then iterates through the children of the snapshot and inserts each restaurant into the AVL tree.
-     * It also collects the valid tokens from the restaurant names and creates a RestaurantManager.
-     * The RestaurantManager is used to search for restaurants based on user input.
+     * Fetches restaurant data from Firebase and loads it into the AVL tree.
+     * The restaurants are fetched in pages by a CatalogLoader, which publishes a searchable
+     * RestaurantManager as soon as the first page has arrived and again as the tree grows,
+     * so the user can search before the whole catalog has been downloaded.
      * It is called when the AVL tree is empty.
      *
      */
     private void fetchRestaurantDataFromFirebase() {
-        Query query = FirebaseDatabase.getInstance()
-            .getReference()
-            .child("restaurants")
-            .orderByKey();
-
-        query.addListenerForSingleValueEvent(new ValueEventListener() {
-            @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                for (DataSnapshot child : snapshot.getChildren()) {
-                    Restaurant restaurant = child.getValue(Restaurant.class);
-                    restaurantTree.insert(restaurant);
-                }
+        SharedPreferences preferences = requireContext().getApplicationContext()
+                .getSharedPreferences(CATALOG_PREFERENCES, Context.MODE_PRIVATE);
+        catalogLoader = new CatalogLoader(new CatalogDaoImpl(), restaurantTree,
+                CatalogLoader.DEFAULT_PAGE_SIZE, INDEX_EXECUTOR, mainHandler::post);
+        catalogLoader.start(preferences.getInt(CATALOG_SIZE_KEY, SearchCoverage.UNKNOWN_TOTAL), catalogListener);
+    }
 
-                List<String> validTokens = getValidTokens();
-                restaurantManager = new RestaurantManager(restaurantTree, validTokens);
+    // receives the snapshots of the catalog while it is loading
+    private final CatalogLoader.Listener catalogListener = new CatalogLoader.Listener() {
+        @Override
+        public void onSnapshot(RestaurantManager manager, SearchCoverage coverage) {
+            if (coverage.isComplete() && getContext() != null) {
+                getContext().getApplicationContext()
+                        .getSharedPreferences(CATALOG_PREFERENCES, Context.MODE_PRIVATE)
+                        .edit().putInt(CATALOG_SIZE_KEY, coverage.getSearched()).apply();
             }
+            publishRestaurantManager(manager);
+        }
 
-            @Override
-            public void onCancelled(@NonNull DatabaseError databaseError) {
-                System.out.println("Error loading data: " + databaseError.getMessage());
-            }
-        });
-    }
+        @Override
+        public void onFailure(String error) {
+            System.out.println("Error loading data: " + error);
+        }
+    };
 
     /**
      * Performs a search based on the user input.
      * It retrieves the search query and filter type from the EditText and Spinner.
-     * It then calls the search method of the RestaurantManager to get the search results.
-     * It sorts the results based on the selected sort option and updates the ListView with the results.
+     * It then calls the search method of the RestaurantManager to get the most relevant results,
+     * sorted by the selected sort option, and updates the ListView with the results.
+     * Sorting by distance looks up the nearest matches to the last known location instead.
+     * Repeated searches are answered from the search cache of the RestaurantManager.
+     * While the catalog is loading, it also shows how much of it was searched.
      * It displays a toast message if no matching restaurants are found.
      * It is called when the search button is clicked.
      *
@@ -191,110 +256,177 @@ public class HomeFragment extends Fragment {
         }
 
         String query = editTextSearch.getText().toString().trim();
-        String filterType = spinnerFilter.getSelectedItem().toString();
+        String filterType = getSelectedFilterType();
 
         if (!query.isEmpty()) {
-            List<Restaurant> results = restaurantManager.search(query, filterType);
-
-            if (!results.isEmpty()) {
-                Restaurant exactMatch = null;
-                for (Restaurant restaurant : results) {
-                    if (restaurant.getName().toLowerCase().equalsIgnoreCase(query)) {
-                        exactMatch = restaurant;
-                        break;
-                    }
-                }
-
-                sortResults(results);
-
-                if (exactMatch != null) {
-                    results.remove(exactMatch);
-                    results.add(0, exactMatch);
-                }
-
-                updateSearchResults(results);
-            } else {
-                updateSearchResults(new ArrayList<>());
-                Toast.makeText(getContext(), "No matching restaurants found.", Toast.LENGTH_SHORT).show();
+            String sortBy = spinnerSortBy.getSelectedItem().toString();
+            if (sortBy.equals(RestaurantManager.SORT_BY_DISTANCE)) {
+                performNearestSearch(query, filterType);
+                return;
             }
+            showSearchResults(restaurantManager.search(query, filterType, sortBy, MAX_RESULTS));
         } else {
             Toast.makeText(getContext(), "Please enter a search query.", Toast.LENGTH_SHORT).show();
         }
     }
 
     /**
-     * Collects the valid tokens from the restaurant names in the AVL tree.
-     * It calls the collectValidTokens method to traverse the AVL tree and tokenize each restaurant name.
+     * Shows the matches nearest to the last known location of the user, nearest first.
+     * The matches are found in the spatial index of the RestaurantManager, which the map also uses.
      *
-     * @return A list of valid tokens
+     * @param query      The search query
+     * @param filterType The filter type
      */
-    private List<String> getValidTokens() {
-        List<String> validTokens = new ArrayList<>();
-        collectValidTokens(restaurantTree.getRoot(), validTokens);
-        return validTokens;
+    private void performNearestSearch(String query, String filterType) {
+        if (ContextCompat.checkSelfPermission(requireContext(), Manifest.permission.ACCESS_FINE_LOCATION)
+                != PackageManager.PERMISSION_GRANTED) {
+            Toast.makeText(getContext(), "Please allow location access to sort by distance.", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        RestaurantManager manager = restaurantManager;
+        LocationServices.getFusedLocationProviderClient(requireActivity()).getLastLocation()
+                .addOnSuccessListener(requireActivity(), location -> {
+                    if (homeView == null) {
+                        return;
+                    }
+                    if (location == null) {
+                        Toast.makeText(getContext(), "Your location is not available yet.", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    List<Restaurant> results = new ArrayList<>();
+                    for (KdTree.Neighbor<Restaurant> neighbor : manager.searchNearest(query, filterType,
+                            location.getLatitude(), location.getLongitude(), MAX_RESULTS)) {
+                        results.add(neighbor.getItem());
+                    }
+                    showSearchResults(results);
+                });
     }
 
     /**
-     * Collects the valid tokens from the restaurant names in the AVL tree.
-     * It traverses the AVL tree in pre-order and tokenizes each restaurant name.
-     * It then adds each token to a list of valid tokens.
-     * It is called by the getValidTokens method.
+     * Shows the results of a search. While the catalog is loading, it also shows how much of
+     * it was searched, and it displays a toast message if no matching restaurants are found.
      *
-     * @param node The current node in the AVL tree
-     * @param validTokens A list of valid tokens
+     * @param results The results of the search
      */
-    private void collectValidTokens(AvlTree.Node<Restaurant> node, List<String> validTokens) {
-        if (node == null) {
+    private void showSearchResults(List<Restaurant> results) {
+        SearchCoverage coverage = restaurantManager.getCoverage();
+        if (!results.isEmpty()) {
+            updateSearchResults(results);
+            if (!coverage.isComplete()) {
+                Toast.makeText(getContext(), "Still loading, " + coverage + " restaurants.", Toast.LENGTH_SHORT).show();
+            }
+        } else if (!coverage.isComplete()) {
+            updateSearchResults(new ArrayList<>());
+            Toast.makeText(getContext(), "No matches yet, " + coverage + " restaurants.", Toast.LENGTH_SHORT).show();
+        } else {
+            updateSearchResults(new ArrayList<>());
+            Toast.makeText(getContext(), "No matching restaurants found.", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    /**
+     * Shows live results while the user is typing.
+     * The search session debounces the keystrokes, searches on a background thread by
+     * narrowing the results of the previous keystroke, and drops results that are outdated
+     * by a newer keystroke. The results are in the order of the selected sort option, as
+     * after pressing search, and arrive on the main thread.
+     * It is called whenever the text of the search box changes.
+     *
+     * @param query The text of the search box
+     */
+    private void performLiveSearch(String query) {
+        if (searchSession == null) {
             return;
         }
+        String filterType = getSelectedFilterType();
+        String sortBy = spinnerSortBy.getSelectedItem().toString();
+        searchSession.update(query, filterType, sortBy, MAX_RESULTS, new DataCallback<List<Restaurant>>() {
+            @Override
+            public void onSuccess(List<Restaurant> result) {
+                if (homeView != null) {
+                    updateSearchResults(result);
+                }
+            }
 
-        Tokenizer tokenizer = new Tokenizer();
-        List<String> tokens = tokenizer.tokenize(node.getData().getName());
-        for (String token : tokens) {
-            if (!validTokens.contains(token)) {
-                validTokens.add(token);
+            @Override
+            public void onFailure(String error) {
+                System.out.println("Error searching: " + error);
             }
+        });
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (catalogLoader != null) {
+            catalogLoader.setListener(null);
+        }
+        if (searchSession != null) {
+            searchSession.close();
+            searchSession = null;
         }
+        homeView = null;
+    }
 
-        collectValidTokens(node.getLeft(), validTokens);
-        collectValidTokens(node.getRight(), validTokens);
+    /**
+     * Builds the RestaurantManager for the current contents of the AVL tree.
+     * It is only called when the published manager searches an older version of the tree,
+     * so a recreated view reuses the indexes that were already built.
+     * The names are tokenized and indexed on a background thread, and the manager is
+     * published on the main thread once it is ready, so the UI stays responsive while a
+     * large dataset is indexed. Searches made before then ask the user to wait.
+     *
+     */
+    private void buildRestaurantManager() {
+        AvlTree<Restaurant> snapshot = restaurantTree.snapshot();
+        INDEX_EXECUTOR.execute(() -> {
+            RestaurantManager manager = new RestaurantManager(snapshot);
+            mainHandler.post(() -> publishRestaurantManager(manager));
+        });
     }
 
     /**
-     * Sorts the search results based on the selected sort option.
-     * It retrieves the selected sort option from the Spinner and sorts the results accordingly.
-     * It is called by the performSearch method.
-     * It supports sorting by price (low to high, high to low) and rating (high to low, low to high).
-     * If the price is unknown, it is set to 5 to make it the last ones to be displayed.
+     * Makes a newly built RestaurantManager the one that answers searches.
+     * It is called on the main thread.
      *
-     * @param results A list of search results
+     * @param manager The new manager
      */
-    private void sortResults(List<Restaurant> results) {
-        String sortBy = spinnerSortBy.getSelectedItem().toString();
-        switch (sortBy) {
-            case "Price: Low to High":
-                Collections.sort(results, (r1, r2) -> {
-                    if (r1.getPrice() == 5) return 1;
-                    if (r2.getPrice() == 5) return -1;
-                    return Integer.compare(r1.getPrice(), r2.getPrice());
-                });
-                break;
-            case "Price: High to Low":
-                Collections.sort(results, (r1, r2) -> {
-                    if (r1.getPrice() == 5) return 1;
-                    if (r2.getPrice() == 5) return -1;
-                    return Integer.compare(r2.getPrice(), r1.getPrice());
-                });
-                break;
-            case "Rating: High to Low":
-                Collections.sort(results, Comparator.comparingDouble(Restaurant::getRating).reversed());
-                break;
-            case "Rating: Low to High":
-                Collections.sort(results, Comparator.comparingDouble(Restaurant::getRating));
-                break;
-            default:
-                break;
+    private void publishRestaurantManager(RestaurantManager manager) {
+        restaurantManager = manager;
+        RestaurantManager.publish(manager);
+        if (homeView != null) {
+            if (searchSession != null) {
+                searchSession.close();
+            }
+            searchSession = manager.newSearchSession(mainHandler::post);
+            showFilterCounts(manager.getFacetIndex());
+        }
+    }
+
+    /**
+     * Returns the filter option selected in the filter spinner.
+     * The labels of the spinner also show the counts, so the option is looked up by position.
+     *
+     * @return The selected filter type, e.g. "Cafe"
+     */
+    private String getSelectedFilterType() {
+        int position = spinnerFilter.getSelectedItemPosition();
+        return position < 0 ? filterOptions[0] : filterOptions[position];
+    }
+
+    /**
+     * Labels each type of the filter spinner with the number of restaurants of that type,
+     * e.g. "Cafe (12)". The first option keeps all the types and is left as it is.
+     *
+     * @param facetIndex The facet index of the searched restaurants
+     */
+    private void showFilterCounts(FacetIndex facetIndex) {
+        filterLabels.clear();
+        filterLabels.add(filterOptions[0]);
+        for (int i = 1; i < filterOptions.length; i++) {
+            filterLabels.add(filterOptions[i] + " (" + facetIndex.typeCount(filterOptions[i], null) + ")");
         }
+        filterAdapter.notifyDataSetChanged();
     }
 
     /**
@@ -16,6 +16,10 @@ package com.example.smartcity.frontend.fragment;
  */
 
 import com.example.smartcity.backend.cache.MapRestaurantCache;
+import com.example.smartcity.backend.dataStructure.GeoBounds;
+import com.example.smartcity.backend.dataStructure.Geohash;
+import com.example.smartcity.backend.dataStructure.KdTree;
+import com.example.smartcity.backend.dataStructure.MarkerClusterIndex;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.request.target.CustomTarget;
@@ -28,9 +32,7 @@ import java.util.Map;
 
 import android.graphics.Bitmap;
 import android.graphics.drawable.Drawable;
-import android.util.Pair;
 
-import android.location.Location;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -52,11 +54,14 @@ import androidx.core.content.ContextCompat;
 import com.example.smartcity.R;
 import com.example.smartcity.util.FirebaseUtil;
 import com.example.smartcity.backend.entity.Restaurant;
+import com.example.smartcity.backend.entity.RestaurantManager;
 import com.google.android.gms.maps.CameraUpdateFactory;
 import com.google.android.gms.maps.GoogleMap;
 import com.google.android.gms.maps.OnMapReadyCallback;
 import com.google.android.gms.maps.SupportMapFragment;
+import com.google.android.gms.maps.model.BitmapDescriptorFactory;
 import com.google.android.gms.maps.model.LatLng;
+import com.google.android.gms.maps.model.LatLngBounds;
 import com.google.android.gms.maps.model.Marker;
 import com.google.android.gms.maps.model.MarkerOptions;
 import com.google.android.gms.location.FusedLocationProviderClient;
@@ -72,6 +77,9 @@ import com.google.firebase.database.ValueEventListener;
  * MapFragment is responsible for displaying a map with restaurant markers. It handles the
  * initialization of the Google Map, loading restaurant data, displaying restaurant info
  * in custom info windows, and providing user location features.
+ * The restaurants in view are cached by geohash tile and looked up again whenever the camera
+ * stops moving. Once the catalog has been loaded, they are found in a k-d tree in memory
+ * instead of querying Firebase.
  */
 public class MapFragment extends Fragment implements OnMapReadyCallback {
 
@@ -84,6 +92,16 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
     // To obtain the device's location
     private FusedLocationProviderClient fusedLocationClient;
     private static final int LOCATION_PERMISSION_REQUEST_CODE = 1;
+    // below this zoom level the view covers too many tiles, so the restaurants already shown are kept
+    private static final int MIN_TILE_ZOOM = 13;
+    // the number of nearest restaurants shown when few are in view
+    private static final int NEAREST_COUNT = 20;
+    // counts the tile lookups, so a lookup finishing after a newer one is not shown
+    private int tileLookup;
+
+    // the clusters of the restaurants shown on the map, and the markers currently drawn for them by cluster id
+    private MarkerClusterIndex<Restaurant> clusterIndex;
+    private Map<Object, Marker> markers = new HashMap<>();
 
 
     /**
@@ -147,7 +165,7 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
                 // Inflate custom layout
                 View infoWindowView = getLayoutInflater().inflate(R.layout.restaurant_info_window, null);
 
-                Restaurant restaurant = (Restaurant) marker.getTag();
+                Restaurant restaurant = marker.getTag() instanceof Restaurant ? (Restaurant) marker.getTag() : null;
 
                 ImageView imageView = infoWindowView.findViewById(R.id.res_image);
                 TextView title = infoWindowView.findViewById(R.id.res_title);
@@ -204,11 +222,20 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
             @Override
             public boolean onMarkerClick(Marker marker) {
                 LatLng markerPosition = marker.getPosition();
+                if (marker.getTag() instanceof MarkerClusterIndex.Cluster) {
+                    // Zoom in until the cluster splits
+                    int zoom = ((MarkerClusterIndex.Cluster<?>) marker.getTag()).getExpansionZoom();
+                    googleMap.animateCamera(CameraUpdateFactory.newLatLngZoom(markerPosition, zoom));
+                    return true;
+                }
                 googleMap.animateCamera(CameraUpdateFactory.newLatLng(markerPosition));
                 marker.showInfoWindow();
                 return true;
             }
         });
+
+        // Look up the restaurants in the visible area whenever the camera stops moving
+        myMap.setOnCameraIdleListener(this::showRestaurantsInView);
     }
 
     /**
@@ -226,10 +253,8 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
                     .addOnSuccessListener(requireActivity(), location -> {
                         if (location != null) {
                             LatLng userLocation = new LatLng(location.getLatitude(), location.getLongitude());
+                            // The restaurants around the user are shown once the camera is idle
                             myMap.moveCamera(CameraUpdateFactory.newLatLngZoom(userLocation, 15));
-
-                            // Show nearby restaurants (this will be implemented in the next steps)
-                            showNearbyRestaurants(userLocation);
                         }
                     });
         }
@@ -237,94 +262,141 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
 
 
     /**
-     * Queries Firebase to find and display nearby restaurants on the map based on the user's location.
-     * The restaurants' markers are added to the map, and images are preloaded and cached for faster future loading.
-     *
-     * @param userLocation The current location of the user, represented as a {@link LatLng} object.
+     * Finds and displays the restaurants in the visible area of the map.
+     * The area is covered by geohash tiles, and only the tiles that are not cached yet are
+     * fetched: from the spatial index of the published RestaurantManager if the catalog has been
+     * loaded, otherwise with a single Firebase query over the latitudes of the missing tiles.
+     * The index is built off the main thread with the manager, so a lookup never builds it here.
+     * Panning back over an area therefore reuses the cached tiles. When the map is zoomed out
+     * too far, the restaurants already shown are kept and only their clusters are redrawn.
+     * It is called whenever the camera stops moving.
      */
-    private void showNearbyRestaurants(LatLng userLocation) {
-        // Use the location string as the key to check the cache
-        String locationKey = generateLocationKey(userLocation);
-
-        List<Pair<MarkerOptions, Restaurant>> cachedRestaurants = MapRestaurantCache.getInstance().getCachedRestaurants().get(locationKey);
+    private void showRestaurantsInView() {
+        if (myMap == null) {
+            return;
+        }
+        if (myMap.getCameraPosition().zoom < MIN_TILE_ZOOM) {
+            showClusters();
+            return;
+        }
+        LatLng centre = myMap.getCameraPosition().target;
+        List<String> tiles = Geohash.covering(visibleBounds(), MapRestaurantCache.TILE_PRECISION);
+        RestaurantManager manager = RestaurantManager.getPublished();
+        MapRestaurantCache cache = MapRestaurantCache.getInstance();
+        int lookup = ++tileLookup;
+        Runnable show = () -> {
+            if (lookup == tileLookup) {
+                showRestaurantsNear(centre, cache.getRestaurants(tiles), manager);
+            }
+        };
+        List<String> missingTiles = cache.getMissingTiles(tiles);
 
-        // Check if restaurants near this location have already been cached
-        // Used for loading nearby restaurants in the map for the second time
-        if (cachedRestaurants != null) {
-            for (Pair<MarkerOptions, Restaurant> markerPair : cachedRestaurants) {
-                MarkerOptions markerOptions = markerPair.first;
-                Restaurant restaurant = markerPair.second;
+        // Check if the tiles in view have already been cached
+        if (missingTiles.isEmpty()) {
+            Log.d("MapFragment", "Loaded restaurants from " + tiles.size() + " cached tiles");
+            show.run();
+            return;
+        }
 
-                Marker marker = myMap.addMarker(markerOptions);
-                marker.setTag(restaurant);
+        // Fill the missing tiles from the catalog in memory if it has been loaded
+        if (manager != null) {
+            for (String tile : missingTiles) {
+                List<Restaurant> tileRestaurants = new ArrayList<>();
+                for (Restaurant restaurant : manager.withinBounds(Geohash.bounds(tile))) {
+                    // a restaurant on the edge of two tiles only belongs to one of them
+                    if (Geohash.encode(restaurant.getLatitude(), restaurant.getLongitude(), MapRestaurantCache.TILE_PRECISION).equals(tile)) {
+                        tileRestaurants.add(restaurant);
+                    }
+                }
+                cache.putTile(tile, tileRestaurants);
             }
-            Log.d("MapFragment", "Loaded restaurants from cache for location: " + locationKey);
+            show.run();
             return;
         }
 
-        DatabaseReference restaurantRef = FirebaseUtil.getRestaurantReference();
+        fetchTiles(missingTiles, show);
+    }
 
-        // Set the radius for looking nearby restaurants
-        double radiusInMeters = 2000;
-        double latDelta = radiusInMeters / 111320;  // Calculate the change in latitude to determine the range of nearby latitudes
-        double lngDelta = radiusInMeters / (111320 * Math.cos(Math.toRadians(userLocation.latitude)));  // Calculate the change in longitude to determine the range of nearby longitude
+    /**
+     * Shows the restaurants of the tiles in view.
+     * If only a few are in view and the catalog has been loaded, the nearest ones to the centre are shown as well.
+     * The restaurants are grouped into clusters for every zoom level, which are drawn by {@link #showClusters()}.
+     *
+     * @param centre     The centre of the visible area.
+     * @param candidates The restaurants of the tiles covering the visible area.
+     * @param manager    The manager of the catalog, or null if it has not been loaded.
+     */
+    private void showRestaurantsNear(LatLng centre, List<Restaurant> candidates, @Nullable RestaurantManager manager) {
+        List<Restaurant> shown = new ArrayList<>(candidates);
+        if (shown.size() < NEAREST_COUNT && manager != null) {
+            // Show the nearest restaurants, even if they are out of view
+            for (KdTree.Neighbor<Restaurant> neighbor : manager.nearest(centre.latitude, centre.longitude,
+                    NEAREST_COUNT, RestaurantManager.FILTER_ALL_TYPES)) {
+                if (!shown.contains(neighbor.getItem())) {
+                    shown.add(neighbor.getItem());
+                }
+            }
+        }
+        clusterIndex = new MarkerClusterIndex<>(shown, Restaurant::getLatitude, Restaurant::getLongitude);
+        showClusters();
+        Log.d("MapFragment", "Number of restaurants found: " + shown.size());
+    }
 
-        // Determine the range of latitude and longitude near the current location
-        double northEastLat = userLocation.latitude + latDelta;
-        double northEastLng = userLocation.longitude + lngDelta;
-        double southWestLat = userLocation.latitude - latDelta;
-        double southWestLng = userLocation.longitude - lngDelta;
+    // the visible area of the map
+    private GeoBounds visibleBounds() {
+        LatLngBounds visible = myMap.getProjection().getVisibleRegion().latLngBounds;
+        return new GeoBounds(visible.southwest.latitude, visible.southwest.longitude,
+                visible.northeast.latitude, visible.northeast.longitude);
+    }
+
+    /**
+     * Fetches the restaurants of the missing tiles from Firebase and caches them by tile.
+     * One query reads the latitudes spanned by the missing tiles, and each restaurant is put in
+     * its tile by its geohash. Missing tiles without restaurants are cached as empty.
+     *
+     * @param missingTiles The geohashes of the tiles to fetch.
+     * @param onFetched    Called on the main thread once the tiles are cached.
+     */
+    private void fetchTiles(List<String> missingTiles, Runnable onFetched) {
+        double south = 90;
+        double north = -90;
+        for (String tile : missingTiles) {
+            GeoBounds bounds = Geohash.bounds(tile);
+            south = Math.min(south, bounds.getSouth());
+            north = Math.max(north, bounds.getNorth());
+        }
 
-        // Query restaurants within the latitude and longitude range (first filter by latitude range, then filter by longitude).
+        DatabaseReference restaurantRef = FirebaseUtil.getRestaurantReference();
         restaurantRef.orderByChild("latitude")
-                .startAt(southWestLat).endAt(northEastLat)
+                .startAt(south).endAt(north)
                 .addListenerForSingleValueEvent(new ValueEventListener() {
                     @Override
                     public void onDataChange(@NonNull DataSnapshot dataSnapshot) {
-                        int restaurantCount = 0;
-                        List<Pair<MarkerOptions, Restaurant>> restaurantMarkers = new ArrayList<>(); // Store the currently loaded restaurants
+                        Map<String, List<Restaurant>> tileRestaurants = new HashMap<>();
+                        for (String tile : missingTiles) {
+                            tileRestaurants.put(tile, new ArrayList<>());
+                        }
 
                         for (DataSnapshot snapshot : dataSnapshot.getChildren()) {
                             Restaurant restaurant = snapshot.getValue(Restaurant.class);
-                            double lat = snapshot.child("latitude").getValue(Double.class);
-                            double lng = snapshot.child("longitude").getValue(Double.class);
-                            String name = snapshot.child("name").getValue(String.class);
-
-                            if (lat != 0 && lng != 0 && name != null) {
-
-                                // Further check if the longitude is within the range
-                                if (lng >= southWestLng && lng <= northEastLng) {
-                                    LatLng restaurantLocation = new LatLng(lat, lng);
-                                    // Calculate the distance between the user and the restaurant
-                                    float[] results = new float[1];
-                                    Location.distanceBetween(userLocation.latitude, userLocation.longitude, lat, lng, results);
-                                    float distanceInMeters = results[0];
-
-                                    // Ensure the restaurant is within radius kilometers
-                                    if (distanceInMeters <= radiusInMeters) {
-                                        restaurantCount++;
-                                        Log.d("MapFragment", "Nearby Restaurant: " + name + " at (" + lat + ", " + lng + ")");
-
-                                        // Create MarkerOptions and add it to the cache list
-                                        MarkerOptions markerOptions = new MarkerOptions()
-                                                .position(restaurantLocation)
-                                                .title(name);
-                                        restaurantMarkers.add(new Pair<>(markerOptions, restaurant));
-
-                                        myMap.addMarker(markerOptions);
-                                        Marker marker = myMap.addMarker(markerOptions);
-                                        marker.setTag(restaurant); // Add restaurant information to the map marker
-
-                                        // Preloading restaurant images and caching them
-                                        preloadAndCacheImage(restaurant.getPhoto_url());
-                                    }
+                            if (restaurant != null && restaurant.getLatitude() != 0 && restaurant.getLongitude() != 0
+                                    && restaurant.getName() != null) {
+                                String tile = Geohash.encode(restaurant.getLatitude(), restaurant.getLongitude(),
+                                        MapRestaurantCache.TILE_PRECISION);
+                                List<Restaurant> restaurants = tileRestaurants.get(tile);
+                                if (restaurants != null) {
+                                    restaurants.add(restaurant);
                                 }
                             }
                         }
 
-                        // Cache the currently loaded restaurant data for subsequent loading
-                        MapRestaurantCache.getInstance().getCachedRestaurants().put(locationKey, restaurantMarkers);
-                        Log.d("MapFragment", "Number of restaurants found: " + restaurantCount);
+                        // Cache the fetched tiles for subsequent loading
+                        for (Map.Entry<String, List<Restaurant>> entry : tileRestaurants.entrySet()) {
+                            MapRestaurantCache.getInstance().putTile(entry.getKey(), entry.getValue());
+                        }
+                        if (myMap != null && isAdded()) {
+                            onFetched.run();
+                        }
                     }
 
                     @Override
@@ -334,19 +406,84 @@ public class MapFragment extends Fragment implements OnMapReadyCallback {
                 });
     }
 
+    /**
+     * Shows the clusters in the visible area at the current zoom level.
+     * There is at most about one cluster per cell of the screen, so the number of markers does not grow
+     * with the number of restaurants in view, and a cluster splits into its restaurants as the map zooms in.
+     * The markers are compared by cluster id with those already on the map: markers of clusters that are
+     * still in view are kept, so only the clusters that appeared or disappeared are added or removed.
+     */
+    private void showClusters() {
+        if (myMap == null || clusterIndex == null) {
+            return;
+        }
+        Map<Object, Marker> shown = new HashMap<>();
+        for (MarkerClusterIndex.Cluster<Restaurant> cluster : clusterIndex.getClusters(visibleBounds(), myMap.getCameraPosition().zoom)) {
+            if (shown.containsKey(cluster.getId())) {
+                continue;
+            }
+            Marker marker = markers.remove(cluster.getId());
+            if (marker == null) {
+                marker = cluster.getItem() != null ? addRestaurantMarker(cluster.getItem()) : addClusterMarker(cluster);
+            } else if (cluster.getItem() == null) {
+                // the same cell and count, but the centre may have moved with the restaurants in view
+                LatLng position = new LatLng(cluster.getLatitude(), cluster.getLongitude());
+                if (!position.equals(marker.getPosition())) {
+                    marker.setPosition(position);
+                }
+                marker.setTag(cluster);
+            }
+            if (marker != null) {
+                shown.put(cluster.getId(), marker);
+            }
+        }
+        for (Marker marker : markers.values()) {
+            marker.remove();
+        }
+        markers = shown;
+    }
 
     /**
-     * Generates a unique string key based on the user's location to use for caching or retrieving cached restaurant data.
+     * Adds a marker for a cluster of restaurants to the map.
      *
-     * @param userLocation The user's location represented as a {@link LatLng} object.
-     * @return A string that uniquely represents the location by rounding latitude and longitude.
+     * @param cluster The cluster to show.
+     * @return The marker, or null if it could not be added.
      */
-    private String generateLocationKey(LatLng userLocation) {
-        double roundedLat = Math.round(userLocation.latitude * 10000.0) / 10000.0;
-        double roundedLng = Math.round(userLocation.longitude * 10000.0) / 10000.0;
-        return roundedLat + "," + roundedLng;
+    private Marker addClusterMarker(MarkerClusterIndex.Cluster<Restaurant> cluster) {
+        MarkerOptions markerOptions = new MarkerOptions()
+                .position(new LatLng(cluster.getLatitude(), cluster.getLongitude()))
+                .title(cluster.getCount() + " restaurants")
+                .icon(BitmapDescriptorFactory.defaultMarker(BitmapDescriptorFactory.HUE_ORANGE));
+
+        Marker marker = myMap.addMarker(markerOptions);
+        if (marker != null) {
+            marker.setTag(cluster);
+        }
+        return marker;
     }
 
+    /**
+     * Adds a marker for a restaurant to the map, and preloads the image of the restaurant.
+     *
+     * @param restaurant The restaurant to show.
+     * @return The marker, or null if it could not be added.
+     */
+    private Marker addRestaurantMarker(Restaurant restaurant) {
+        MarkerOptions markerOptions = new MarkerOptions()
+                .position(new LatLng(restaurant.getLatitude(), restaurant.getLongitude()))
+                .title(restaurant.getName());
+
+        Marker marker = myMap.addMarker(markerOptions);
+        if (marker != null) {
+            marker.setTag(restaurant); // Add restaurant information to the map marker
+        }
+
+        // Preloading restaurant images and caching them
+        if (!imageCacheMap.containsKey(restaurant.getPhoto_url())) {
+            preloadAndCacheImage(restaurant.getPhoto_url());
+        }
+        return marker;
+    }
 
     /**
      * Preloads and caches restaurant images to improve future loading times.
@@ -17,6 +17,7 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 
 import com.example.smartcity.R;
+import com.example.smartcity.backend.dataStructure.FacetIndex;
 import com.example.smartcity.frontend.activity.CommentActivity;
 import com.example.smartcity.frontend.adapter.ItemListAdapter;
 import com.example.smartcity.backend.entity.User;
@@ -25,6 +26,8 @@ import com.example.smartcity.backend.entity.Restaurant;
 import com.example.smartcity.backend.observer.LikeRestaurantObserver;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 /**
  * Represents the "Me" page in the application.
@@ -36,8 +39,15 @@ public class MeFragment extends Fragment implements LikeRestaurantObserver {
     private Spinner filter;
     private ArrayList<Restaurant> filterRes;
     private LikeRestaurant likeRes;
-    private String curType;
-    private final String TYPE_ALL = "all";
+    private static final String TYPE_ALL = "all";
+    private String curType = TYPE_ALL;
+    // the filter values behind the spinner labels, which also show the counts
+    private static final String[] TYPES = {TYPE_ALL, "bar", "cafe", "food", "lodging"};
+    private static final String[] TYPE_LABELS = {"All", "Bar", "Cafe", "Food", "Lodging"};
+    private final List<String> spinnerLabels = new ArrayList<>();
+    private ArrayAdapter<String> spinnerAdapter;
+    // the bitmap indexes over the liked restaurants, rebuilt when they change
+    private FacetIndex likeIndex;
     private TextView meUserName;
 
 
@@ -66,6 +76,7 @@ public class MeFragment extends Fragment implements LikeRestaurantObserver {
         });
 
         likeRes = LikeRestaurant.getInstance();
+        likeIndex = new FacetIndex(likeRes);
         // as the default type is "all", so the filterRes is likeRes
         filterRes = new ArrayList<>(likeRes);
 
@@ -75,17 +86,17 @@ public class MeFragment extends Fragment implements LikeRestaurantObserver {
         likeRes.attach(this);
 
         // set the spinner types
-        ArrayAdapter<String> spinnerAdapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_spinner_item, new String[]{"All", "Bar", "Cafe", "Food", "Lodging"});
+        spinnerAdapter = new ArrayAdapter<>(getContext(), android.R.layout.simple_spinner_item, spinnerLabels);
         spinnerAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        updateSpinnerLabels();
         filter.setAdapter(spinnerAdapter);
 
 
         filter.setOnItemSelectedListener(new AdapterView.OnItemSelectedListener() {
             @Override
             public void onItemSelected(AdapterView<?> parentView, View selectedItemView, int position, long id) {
-                // update the filter res list by type
-                String selectedGroup = (String) parentView.getItemAtPosition(position);
-                curType = selectedGroup.toLowerCase();
+                // update the filter res list by type, as the labels also show the counts
+                curType = TYPES[position];
                 filterRestaurantsByType(curType);
             }
 
@@ -118,15 +129,28 @@ public class MeFragment extends Fragment implements LikeRestaurantObserver {
         if (type.equals(TYPE_ALL)) {
             filterRes.addAll(likeRes);
         } else {
-            for (Restaurant restaurant : likeRes) {
-                if (restaurant.getTypes().contains(type)) {
-                    filterRes.add(restaurant);
-                }
+            BitSet ids = likeIndex.filter().type(type).evaluate();
+            for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+                filterRes.add(likeRes.get(id));
             }
         }
         itemListAdapter.notifyDataSetChanged();
     }
 
+    /**
+     * Labels each type in the spinner with the number of liked restaurants of that type,
+     * e.g. "Cafe (3)".
+     *
+     */
+    private void updateSpinnerLabels() {
+        spinnerLabels.clear();
+        spinnerLabels.add(TYPE_LABELS[0] + " (" + likeIndex.size() + ")");
+        for (int i = 1; i < TYPES.length; i++) {
+            spinnerLabels.add(TYPE_LABELS[i] + " (" + likeIndex.typeCount(TYPES[i], null) + ")");
+        }
+        spinnerAdapter.notifyDataSetChanged();
+    }
+
     /**
      * When the state of likeRes changed (e.g. user unlike a restaurant)
      * update the filter restaurant to show the page after removing the
@@ -135,6 +159,9 @@ public class MeFragment extends Fragment implements LikeRestaurantObserver {
      */
     @Override
     public void update() {
+        // the ids of the index are the positions in likeRes, so it is rebuilt on every change
+        likeIndex = new FacetIndex(likeRes);
+        updateSpinnerLabels();
         filterRestaurantsByType(curType);
         itemListAdapter.notifyDataSetChanged();
     }
@@ -4,8 +4,17 @@ import com.example.smartcity.backend.dataStructure.AvlTree;
 import com.example.smartcity.backend.entity.Restaurant;
 import org.junit.Before;
 import org.junit.Test;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 import static org.junit.Assert.*;
 
 public class AvlTreeTest {
@@ -20,6 +29,27 @@ public class AvlTreeTest {
         avlTree.insert(new Restaurant(3, "Restaurant A", 4.5, "123 Main St", "http://example.com/photoA.jpg", 40.7128, -74.0060, Arrays.asList("italian", "pizza"), 2, "$25-$50", 100));
     }
 
+    @Test
+    public void testVersionChangesOnEveryMutation() {
+        long version = avlTree.getVersion();
+        AvlTree<Restaurant> snapshot = avlTree.snapshot();
+        assertEquals(version, snapshot.getVersion());
+
+        avlTree.insert(new Restaurant(4, "Restaurant D", 4.0, "", "", 0, 0, Arrays.asList("food"), 1, "", 1));
+        long afterInsert = avlTree.getVersion();
+        assertNotEquals(version, afterInsert);
+        assertEquals(version, snapshot.getVersion());
+
+        // a duplicate insert changes nothing
+        avlTree.insert(new Restaurant(5, "Restaurant D", 4.0, "", "", 0, 0, Arrays.asList("food"), 1, "", 1));
+        assertEquals(afterInsert, avlTree.getVersion());
+
+        assertTrue(avlTree.delete(avlTree.searchExact("Restaurant D")));
+        assertNotEquals(afterInsert, avlTree.getVersion());
+        // different trees never share a version
+        assertNotEquals(new AvlTree<Restaurant>().getVersion(), new AvlTree<Restaurant>().getVersion());
+    }
+
     @Test
     public void testInsert() {
         avlTree.insert(new Restaurant(4, "Restaurant D", 4.2, "101 Pine St", "http://example.com/photoD.jpg", 40.7128, -74.0060, Arrays.asList("japanese", "sushi"), 2, "$25-$50", 120));
@@ -45,6 +75,22 @@ public class AvlTreeTest {
         assertEquals(3, results.size());
     }
 
+    @Test
+    public void testSearchByPrefix() {
+        avlTree.insert(restaurant(4, "Pizza Hut"));
+        avlTree.insert(restaurant(5, "Pizzeria Roma"));
+        avlTree.insert(restaurant(6, "Pita Palace"));
+
+        List<Restaurant> results = avlTree.searchByPrefix("Pizz");
+        assertEquals(2, results.size());
+        assertEquals("Pizza Hut", results.get(0).getName());
+        assertEquals("Pizzeria Roma", results.get(1).getName());
+
+        assertEquals(3, avlTree.searchByPrefix("Restaurant ").size());
+        assertEquals(1, avlTree.searchByPrefix("Restaurant", 1).size());
+        assertTrue(avlTree.searchByPrefix("Zebra").isEmpty());
+    }
+
     @Test
     public void testToList() {
         List<Restaurant> list = avlTree.toList();
@@ -81,6 +127,344 @@ public class AvlTreeTest {
         assertEquals(2, avlTree.getRoot().getHeight());
     }
 
+    @Test
+    public void testBuildFromSorted() {
+        List<Restaurant> sorted = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sorted.add(restaurant(i, String.format("Restaurant %04d", i)));
+        }
+        avlTree.buildFromSorted(sorted);
+
+        assertEquals(1000, avlTree.countNodes());
+        assertTrue(isBalanced(avlTree.getRoot()));
+        // a perfectly balanced tree of 1000 nodes has height ceil(log2(1001))
+        assertEquals(10, avlTree.getRoot().getHeight());
+        assertEquals(sorted, avlTree.toList());
+        assertNotNull(avlTree.searchExact("Restaurant 0500"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuildFromSortedRejectsUnsortedData() {
+        avlTree.buildFromSorted(Arrays.asList(restaurant(1, "Restaurant B"), restaurant(2, "Restaurant A")));
+    }
+
+    @Test
+    public void testBuildFromUnsortedData() {
+        List<Restaurant> data = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            data.add(restaurant(i, "Restaurant " + i));
+        }
+        data.add(restaurant(999, "Restaurant 42"));
+        Collections.shuffle(data);
+        avlTree.buildFrom(data);
+
+        assertEquals(500, avlTree.countNodes());
+        assertTrue(isBalanced(avlTree.getRoot()));
+        List<Restaurant> list = avlTree.toList();
+        for (int i = 1; i < list.size(); i++) {
+            assertTrue(list.get(i - 1).compareTo(list.get(i)) < 0);
+        }
+
+        // inserting after a bulk build keeps the tree balanced
+        avlTree.insert(restaurant(1000, "Restaurant 1000"));
+        assertEquals(501, avlTree.countNodes());
+        assertTrue(isBalanced(avlTree.getRoot()));
+    }
+
+    @Test
+    public void testSelectAndRank() {
+        List<Restaurant> sorted = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            sorted.add(restaurant(i, String.format("Restaurant %03d", i)));
+        }
+        List<Restaurant> shuffled = new ArrayList<>(sorted);
+        Collections.shuffle(shuffled);
+        avlTree = new AvlTree<>();
+        for (Restaurant restaurant : shuffled) {
+            avlTree.insert(restaurant);
+        }
+
+        assertEquals(100, avlTree.size());
+        assertEquals(100, avlTree.getRoot().getSize());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(sorted.get(i), avlTree.select(i));
+            assertEquals(i, avlTree.rank(sorted.get(i)));
+        }
+        // a missing key ranks at its insertion point
+        assertEquals(51, avlTree.rank(restaurant(0, "Restaurant 050a")));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSelectOutOfRange() {
+        avlTree.select(3);
+    }
+
+    @Test
+    public void testRange() {
+        List<Restaurant> sorted = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            sorted.add(restaurant(i, String.format("Restaurant %02d", i)));
+        }
+        avlTree.buildFromSorted(sorted);
+
+        assertEquals(sorted.subList(12, 24), avlTree.range(12, 12));
+        assertEquals(sorted.subList(48, 50), avlTree.range(48, 12));
+        assertEquals(sorted, avlTree.range(0, 100));
+        assertTrue(avlTree.range(50, 12).isEmpty());
+    }
+
+    @Test
+    public void testIterator() {
+        List<Restaurant> iterated = new ArrayList<>();
+        for (Restaurant restaurant : avlTree) {
+            iterated.add(restaurant);
+        }
+        assertEquals(avlTree.toList(), iterated);
+    }
+
+    @Test
+    public void testIteratorSeek() {
+        Iterator<Restaurant> iterator = avlTree.iterator(restaurant(0, "Restaurant AA"));
+        assertTrue(iterator.hasNext());
+        assertEquals("Restaurant B", iterator.next().getName());
+        assertEquals("Restaurant C", iterator.next().getName());
+        assertFalse(iterator.hasNext());
+
+        AvlTree<Restaurant>.InOrderIterator seekable = avlTree.iterator();
+        seekable.seek(restaurant(0, "Restaurant C"));
+        assertEquals("Restaurant C", seekable.next().getName());
+        seekable.seek(restaurant(0, "Restaurant D"));
+        assertFalse(seekable.hasNext());
+    }
+
+    @Test
+    public void testStream() {
+        List<Restaurant> sorted = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sorted.add(restaurant(i, String.format("Restaurant %04d", i)));
+        }
+        avlTree.buildFromSorted(sorted);
+
+        assertEquals(sorted, avlTree.stream().collect(Collectors.toList()));
+        assertEquals(sorted, avlTree.parallelStream().collect(Collectors.toList()));
+        assertEquals(10, avlTree.stream().filter(r -> r.getName().endsWith("7")).limit(10).count());
+    }
+
+    @Test
+    public void testSpliteratorSplitsEvenly() {
+        List<Restaurant> sorted = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sorted.add(restaurant(i, String.format("Restaurant %04d", i)));
+        }
+        avlTree.buildFromSorted(sorted);
+
+        Spliterator<Restaurant> suffix = avlTree.spliterator();
+        assertEquals(1000, suffix.getExactSizeIfKnown());
+        Spliterator<Restaurant> prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        assertEquals(1000, prefix.estimateSize() + suffix.estimateSize());
+        assertTrue(Math.abs(prefix.estimateSize() - suffix.estimateSize()) <= 2);
+
+        List<Restaurant> visited = new ArrayList<>();
+        prefix.forEachRemaining(visited::add);
+        while (suffix.tryAdvance(visited::add)) {
+            // keep advancing
+        }
+        assertEquals(sorted, visited);
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterInserts() {
+        AvlTree<Restaurant> snapshot = avlTree.snapshot();
+        AvlTree.Node<Restaurant> oldRoot = avlTree.getRoot();
+        avlTree.insert(restaurant(4, "Restaurant D"));
+
+        assertEquals(4, avlTree.size());
+        assertEquals(3, snapshot.size());
+        assertNull(snapshot.searchExact("Restaurant D"));
+        // the old version is still intact
+        assertEquals(3, oldRoot.getSize());
+
+        snapshot.insert(restaurant(5, "Restaurant E"));
+        assertNull(avlTree.searchExact("Restaurant E"));
+        assertNotNull(snapshot.searchExact("Restaurant E"));
+    }
+
+    @Test
+    public void testConcurrentInsertsAndReads() throws InterruptedException {
+        avlTree = new AvlTree<>();
+        int perWriter = 2000;
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            int writer = w;
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    avlTree.insert(restaurant(i, String.format("Restaurant %d-%05d", writer, i)));
+                }
+            });
+            writers[w].start();
+        }
+
+        // every snapshot taken while writing must be a sorted, balanced tree of the right size
+        boolean writing = true;
+        while (writing) {
+            AvlTree<Restaurant> snapshot = avlTree.snapshot();
+            List<Restaurant> list = snapshot.toList();
+            assertEquals(snapshot.size(), list.size());
+            assertTrue(isBalanced(snapshot.getRoot()));
+            writing = false;
+            for (Thread writer : writers) {
+                writing |= writer.isAlive();
+            }
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(perWriter * writers.length, avlTree.size());
+    }
+
+    @Test
+    public void testSnapshotVersionMatchesContents() throws InterruptedException {
+        avlTree = new AvlTree<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                avlTree.insert(restaurant(i, String.format("Restaurant %05d", i)));
+            }
+        });
+        writer.start();
+
+        // a version always stands for the same contents, whenever the snapshot was taken
+        Map<Long, Integer> sizes = new HashMap<>();
+        while (writer.isAlive()) {
+            AvlTree<Restaurant> snapshot = avlTree.snapshot();
+            Integer size = sizes.put(snapshot.getVersion(), snapshot.size());
+            assertTrue(size == null || size == snapshot.size());
+        }
+        writer.join();
+    }
+
+    @Test
+    public void testDelete() {
+        assertTrue(avlTree.delete(restaurant(0, "Restaurant B")));
+        assertFalse(avlTree.delete(restaurant(0, "Restaurant X")));
+        assertEquals(2, avlTree.size());
+        assertNull(avlTree.searchExact("Restaurant B"));
+        assertTrue(isBalanced(avlTree.getRoot()));
+
+        List<Restaurant> sorted = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            sorted.add(restaurant(i, String.format("Restaurant %03d", i)));
+        }
+        avlTree.buildFromSorted(sorted);
+        for (int i = 0; i < 200; i += 2) {
+            assertTrue(avlTree.delete(sorted.get(i)));
+            assertTrue(isBalanced(avlTree.getRoot()));
+        }
+        assertEquals(100, avlTree.size());
+        assertEquals("Restaurant 001", avlTree.select(0).getName());
+    }
+
+    @Test
+    public void testUpdate() {
+        assertTrue(avlTree.update(restaurant(0, "Restaurant B"), r -> withRating(r, r.getName(), 1.5)));
+        assertEquals(1.5, avlTree.searchExact("Restaurant B").getRating(), 0.0);
+
+        // renaming moves the restaurant to its new position
+        assertTrue(avlTree.update(restaurant(0, "Restaurant A"), r -> withRating(r, "Restaurant Z", r.getRating())));
+        assertNull(avlTree.searchExact("Restaurant A"));
+        assertEquals("Restaurant Z", avlTree.select(2).getName());
+
+        // returning null deletes the restaurant
+        assertTrue(avlTree.update(restaurant(0, "Restaurant C"), r -> null));
+        assertEquals(2, avlTree.size());
+
+        assertFalse(avlTree.update(restaurant(0, "Restaurant X"), r -> r));
+    }
+
+    @Test
+    public void testUpdateOntoExistingKey() {
+        long version = avlTree.getVersion();
+        // renaming A to B would drop one of the two restaurants
+        assertFalse(avlTree.update(restaurant(0, "Restaurant A"), r -> withRating(r, "Restaurant B", 0.5)));
+        assertEquals(3, avlTree.size());
+        assertEquals(version, avlTree.getVersion());
+        assertNotNull(avlTree.searchExact("Restaurant A"));
+        assertEquals(4.0, avlTree.searchExact("Restaurant B").getRating(), 0.0);
+
+        // in a batch the renamed restaurant stays where it was
+        avlTree.applyAll(Arrays.asList(AvlTree.Mutation.update(restaurant(0, "Restaurant A"),
+                r -> withRating(r, "Restaurant C", 0.5))));
+        assertEquals(3, avlTree.size());
+        assertNotNull(avlTree.searchExact("Restaurant A"));
+        assertEquals(3.5, avlTree.searchExact("Restaurant C").getRating(), 0.0);
+        assertTrue(isBalanced(avlTree.getRoot()));
+    }
+
+    @Test
+    public void testApplyAllMatchesSequentialMutations() {
+        Random random = new Random(42);
+        TreeMap<String, Double> expected = new TreeMap<>();
+        avlTree = new AvlTree<>();
+        for (int round = 0; round < 30; round++) {
+            List<AvlTree.Mutation<Restaurant>> batch = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                String name = String.format("Restaurant %03d", random.nextInt(300));
+                double rating = random.nextInt(50) / 10.0;
+                switch (random.nextInt(3)) {
+                    case 0:
+                        batch.add(AvlTree.Mutation.insert(withRating(restaurant(0, name), name, rating)));
+                        expected.putIfAbsent(name, rating);
+                        break;
+                    case 1:
+                        batch.add(AvlTree.Mutation.delete(restaurant(0, name)));
+                        expected.remove(name);
+                        break;
+                    default:
+                        batch.add(AvlTree.Mutation.update(restaurant(0, name), r -> withRating(r, r.getName(), rating)));
+                        expected.computeIfPresent(name, (k, v) -> rating);
+                        break;
+                }
+            }
+            avlTree.applyAll(batch);
+
+            assertTrue(isBalanced(avlTree.getRoot()));
+            assertEquals(expected.size(), avlTree.size());
+            List<Restaurant> list = avlTree.toList();
+            int i = 0;
+            for (String name : expected.keySet()) {
+                assertEquals(name, list.get(i).getName());
+                assertEquals(expected.get(name), list.get(i).getRating(), 0.0);
+                i++;
+            }
+        }
+    }
+
+    @Test
+    public void testApplyAllWithRename() {
+        List<AvlTree.Mutation<Restaurant>> batch = new ArrayList<>();
+        batch.add(AvlTree.Mutation.update(restaurant(0, "Restaurant A"), r -> withRating(r, "Restaurant Z", r.getRating())));
+        batch.add(AvlTree.Mutation.insert(restaurant(7, "Restaurant D")));
+        batch.add(AvlTree.Mutation.delete(restaurant(0, "Restaurant B")));
+        avlTree.applyAll(batch);
+
+        List<Restaurant> list = avlTree.toList();
+        assertEquals(3, list.size());
+        assertEquals("Restaurant C", list.get(0).getName());
+        assertEquals("Restaurant D", list.get(1).getName());
+        assertEquals("Restaurant Z", list.get(2).getName());
+        assertTrue(isBalanced(avlTree.getRoot()));
+    }
+
+    private Restaurant withRating(Restaurant restaurant, String name, double rating) {
+        return new Restaurant(restaurant.getId(), name, rating, restaurant.getAddress(), restaurant.getPhoto_url(),
+                restaurant.getLatitude(), restaurant.getLongitude(), restaurant.getTypes(),
+                restaurant.getPrice_level(), restaurant.getEstimated_price(), restaurant.getUser_ratings_total());
+    }
+
+    private Restaurant restaurant(int id, String name) {
+        return new Restaurant(id, name, 4.0, "1 Test St", "http://example.com/photo.jpg", 40.7128, -74.0060, Arrays.asList("food"), 2, "$25-$50", 100);
+    }
+
     private boolean isBalanced(AvlTree.Node<Restaurant> node) {
         if (node == null) return true;
         int leftHeight = node.getLeft() != null ? node.getLeft().getHeight() : 0;
@@ -0,0 +1,121 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.BkTree;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class BkTreeTest {
+
+    private BkTree bkTree;
+
+    @Before
+    public void setUp() {
+        bkTree = new BkTree();
+        for (String word : Arrays.asList("pizza", "pasta", "thai", "house", "hotel", "sushi", "bar")) {
+            bkTree.add(word);
+        }
+    }
+
+    @Test
+    public void testAddIgnoresDuplicates() {
+        bkTree.add("pizza");
+        assertEquals(7, bkTree.size());
+    }
+
+    @Test
+    public void testClosest() {
+        assertEquals("pizza", bkTree.closest("piza", 2));
+        assertEquals("hotel", bkTree.closest("hotel", 2));
+        assertEquals("house", bkTree.closest("hous", 2));
+        assertNull(bkTree.closest("xylophone", 2));
+    }
+
+    @Test
+    public void testNegativeDistanceMatchesNothing() {
+        assertNull(bkTree.closest("pizza", -1));
+        assertTrue(bkTree.search("pizza", -1).isEmpty());
+        assertEquals("pizza", bkTree.closest("piza", Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testClosestPrefersEarlierWordOnTies() {
+        // "hots" is two edits from both "house" and "hotel"
+        assertEquals("house", bkTree.closest("hots", 2));
+    }
+
+    @Test
+    public void testSearch() {
+        List<String> results = bkTree.search("pasza", 2);
+        Collections.sort(results);
+        assertEquals(Arrays.asList("pasta", "pizza"), results);
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(3);
+        List<String> words = new ArrayList<>();
+        bkTree = new BkTree();
+        for (int i = 0; i < 2000; i++) {
+            String word = randomWord(random);
+            if (!words.contains(word)) {
+                words.add(word);
+            }
+            bkTree.add(word);
+        }
+
+        for (int q = 0; q < 300; q++) {
+            String query = randomWord(random);
+            String expected = null;
+            int expectedDistance = 2;
+            List<String> expectedWithin = new ArrayList<>();
+            for (String word : words) {
+                int distance = levenshtein(query, word);
+                if (distance < expectedDistance || (distance == expectedDistance && expected == null)) {
+                    expected = word;
+                    expectedDistance = distance;
+                }
+                if (distance <= 2) {
+                    expectedWithin.add(word);
+                }
+            }
+            assertEquals(expected, bkTree.closest(query, 2));
+
+            List<String> within = bkTree.search(query, 2);
+            Collections.sort(within);
+            Collections.sort(expectedWithin);
+            assertEquals(expectedWithin, within);
+        }
+    }
+
+    private String randomWord(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int length = 3 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(6)));
+        }
+        return builder.toString();
+    }
+
+    private int levenshtein(String a, String b) {
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0) {
+                    dp[i][j] = j;
+                } else if (j == 0) {
+                    dp[i][j] = i;
+                } else {
+                    dp[i][j] = Math.min(dp[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                            Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1));
+                }
+            }
+        }
+        return dp[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.backend.dataStructure.Bm25;
+import com.example.smartcity.backend.dataStructure.TokenDictionary;
+import com.example.smartcity.backend.entity.Restaurant;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import static org.junit.Assert.*;
+
+public class Bm25Test {
+
+    private TokenDictionary dictionary;
+    private Bm25 bm25;
+
+    @Before
+    public void setUp() {
+        AvlTree<Restaurant> avlTree = new AvlTree<>();
+        avlTree.insert(restaurant(1, "Thai House"));
+        avlTree.insert(restaurant(2, "Pizza House"));
+        avlTree.insert(restaurant(3, "Thai Thai Kitchen"));
+        avlTree.insert(restaurant(4, "Sushi Bar"));
+        avlTree.insert(restaurant(5, "Little Pizza House Of Sydney"));
+        dictionary = new TokenDictionary(avlTree);
+        // text scores only
+        bm25 = new Bm25(dictionary, 0, 0);
+    }
+
+    @Test
+    public void testRareTermsWeighMore() {
+        assertTrue(bm25.idf(dictionary.termId("kitchen")) > bm25.idf(dictionary.termId("house")));
+    }
+
+    @Test
+    public void testShortAndRepeatedNamesScoreHigher() {
+        int pizza = dictionary.termId("pizza");
+        // ids follow name order: Little Pizza House Of Sydney, Pizza House, Sushi Bar, Thai House, Thai Thai Kitchen
+        assertTrue(bm25.termScore(pizza, 1, 1) > bm25.termScore(pizza, 0, 1));
+        int thai = dictionary.termId("thai");
+        assertTrue(bm25.termScore(thai, 4, 2) > bm25.termScore(thai, 4, 1));
+        assertArrayEquals(new int[]{1, 2}, dictionary.frequencies(thai));
+    }
+
+    @Test
+    public void testRank() {
+        int[] terms = {dictionary.termId("pizza"), dictionary.termId("house")};
+        int[] candidates = {0, 1, 3};
+        assertArrayEquals(new int[]{1, 0, 3}, bm25.rank(candidates, terms, -1, id -> true, 10));
+        assertArrayEquals(new int[]{0, 1}, bm25.rank(candidates, terms, 0, id -> true, 2));
+        assertArrayEquals(new int[]{0, 3}, bm25.rank(candidates, terms, -1, id -> id != 1, 10));
+    }
+
+    private Restaurant restaurant(int id, String name) {
+        return new Restaurant(id, name, 4.0, "1 Test St", "http://example.com/photo.jpg", 40.7128, -74.0060, Arrays.asList("food"), 2, "$25-$50", 100);
+    }
+}
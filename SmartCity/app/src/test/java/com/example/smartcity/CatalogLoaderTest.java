@@ -0,0 +1,196 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.cache.MapRestaurantCache;
+import com.example.smartcity.backend.dao.CatalogDao;
+import com.example.smartcity.backend.dataStructure.Geohash;
+import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.backend.entity.CatalogLoader;
+import com.example.smartcity.backend.entity.Restaurant;
+import com.example.smartcity.backend.entity.RestaurantManager;
+import com.example.smartcity.backend.entity.SearchCoverage;
+import com.example.smartcity.util.DataCallback;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class CatalogLoaderTest {
+
+    @Test
+    public void testPublishesGrowingSnapshots() {
+        FakeCatalogDao dao = new FakeCatalogDao(catalog(10), -1);
+        RecordingListener listener = new RecordingListener();
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        CatalogLoader loader = new CatalogLoader(dao, tree, 2, Runnable::run, Runnable::run);
+        loader.start(10, listener);
+
+        // indexed after 2, 4 and 8 restaurants, and when the last page arrives
+        assertEquals(Arrays.asList(2, 4, 8, 10), listener.searched);
+        assertEquals("searched 2 / 10", listener.coverages.get(0).toString());
+        assertTrue(listener.coverages.get(3).isComplete());
+        assertEquals(10, tree.size());
+        assertFalse(loader.isLoading());
+        assertEquals(6, dao.requests);
+    }
+
+    @Test
+    public void testPartialSnapshotIsSearchable() {
+        FakeCatalogDao dao = new FakeCatalogDao(catalog(10), 3);
+        RecordingListener listener = new RecordingListener();
+        CatalogLoader loader = new CatalogLoader(dao, new AvlTree<>(), 2, Runnable::run, Runnable::run);
+        loader.start(SearchCoverage.UNKNOWN_TOTAL, listener);
+
+        RestaurantManager manager = listener.managers.get(listener.managers.size() - 1);
+        assertEquals(4, manager.size());
+        assertEquals("searched 4 so far", manager.getCoverage().toString());
+        assertEquals(1, manager.search("Restaurant 3", "Type").size());
+        assertEquals(Arrays.asList("page 3 failed"), listener.errors);
+        assertFalse(loader.isLoading());
+    }
+
+    @Test
+    public void testUnreadableChildDoesNotEndLoading() {
+        FakeCatalogDao dao = new FakeCatalogDao(catalog(10), -1);
+        // the first page is full but one of its children cannot be read
+        dao.unreadable = 1;
+        RecordingListener listener = new RecordingListener();
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        new CatalogLoader(dao, tree, 2, Runnable::run, Runnable::run).start(10, listener);
+        assertEquals(9, tree.size());
+        assertTrue(listener.coverages.get(listener.coverages.size() - 1).isComplete());
+    }
+
+    @Test
+    public void testLoadingUntilLastPageIsInserted() {
+        FakeCatalogDao dao = new FakeCatalogDao(catalog(10), -1);
+        List<Runnable> pending = new ArrayList<>();
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        CatalogLoader loader = new CatalogLoader(dao, tree, 2, pending::add, Runnable::run);
+        loader.start(10, new RecordingListener());
+        // every page has arrived, but none has been inserted yet
+        assertEquals(6, dao.requests);
+        assertTrue(loader.isLoading());
+        for (Runnable task : pending) {
+            task.run();
+        }
+        assertFalse(loader.isLoading());
+        assertEquals(10, tree.size());
+    }
+
+    @Test
+    public void testPublishesAndDropsOnlyChangedTiles() {
+        MapRestaurantCache cache = MapRestaurantCache.getInstance();
+        cache.clear();
+        String changed = Geohash.encode(40.7128, -74.0060, MapRestaurantCache.TILE_PRECISION);
+        String unchanged = Geohash.encode(-35.2809, 149.1300, MapRestaurantCache.TILE_PRECISION);
+        cache.putTile(changed, Collections.emptyList());
+        cache.putTile(unchanged, Collections.emptyList());
+
+        RecordingListener listener = new RecordingListener();
+        new CatalogLoader(new FakeCatalogDao(catalog(4), -1), new AvlTree<>(), 2, Runnable::run, Runnable::run)
+                .start(4, listener);
+        // every restaurant of the catalog is in the changed tile
+        assertNull(cache.getTile(changed));
+        assertNotNull(cache.getTile(unchanged));
+        assertSame(listener.managers.get(listener.managers.size() - 1), RestaurantManager.getPublished());
+        cache.clear();
+    }
+
+    @Test
+    public void testPublishedCoverageIsNotChanged() {
+        RecordingListener listener = new RecordingListener();
+        new CatalogLoader(new FakeCatalogDao(catalog(4), -1), new AvlTree<>(), 2, Runnable::run, Runnable::run)
+                .start(4, listener);
+        // the last page is empty, so the last snapshot has the same restaurants as the one before
+        assertEquals(Arrays.asList(2, 4, 4), listener.searched);
+        RestaurantManager loading = listener.managers.get(1);
+        RestaurantManager complete = listener.managers.get(2);
+        assertNotSame(loading, complete);
+        assertFalse(loading.getCoverage().isComplete());
+        assertTrue(complete.getCoverage().isComplete());
+        assertEquals(1, complete.search("Restaurant 3", "Type").size());
+    }
+
+    @Test
+    public void testCancelStopsLoading() {
+        FakeCatalogDao dao = new FakeCatalogDao(catalog(10), -1);
+        List<Runnable> pending = new ArrayList<>();
+        RecordingListener listener = new RecordingListener();
+        CatalogLoader loader = new CatalogLoader(dao, new AvlTree<>(), 2, pending::add, Runnable::run);
+        loader.start(10, listener);
+        loader.cancel();
+        for (Runnable task : pending) {
+            task.run();
+        }
+        assertTrue(listener.searched.isEmpty());
+    }
+
+    @Test
+    public void testCoverageFormat() {
+        assertEquals("searched 1,200 / 3,503", new SearchCoverage(1200, 3503, false).toString());
+        assertEquals("searched 3,503", SearchCoverage.complete(3503).toString());
+        assertEquals(1300, new SearchCoverage(1300, 1200, false).getTotal());
+    }
+
+    private static List<Restaurant> catalog(int size) {
+        List<Restaurant> restaurants = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            restaurants.add(new Restaurant(id, "Restaurant " + id, 4.0, "1 Test St", "http://example.com/photo.jpg",
+                    40.7128, -74.0060, Arrays.asList("food"), 2, "$25-$50", 100));
+        }
+        return restaurants;
+    }
+
+    // serves the catalog in pages keyed by position, failing at the given page if any
+    private static class FakeCatalogDao implements CatalogDao {
+        private final List<Restaurant> restaurants;
+        private final int failingPage;
+        int requests;
+        // the position of a child that cannot be read, if any
+        int unreadable = -1;
+
+        FakeCatalogDao(List<Restaurant> restaurants, int failingPage) {
+            this.restaurants = restaurants;
+            this.failingPage = failingPage;
+        }
+
+        @Override
+        public void loadPage(String afterKey, int pageSize, DataCallback<Page> callback) {
+            int page = requests++;
+            if (page == failingPage) {
+                callback.onFailure("page " + page + " failed");
+                return;
+            }
+            int from = afterKey == null ? 0 : Integer.parseInt(afterKey) + 1;
+            int to = Math.min(from + pageSize, restaurants.size());
+            List<Restaurant> items = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                if (i != unreadable) {
+                    items.add(restaurants.get(i));
+                }
+            }
+            callback.onSuccess(new Page(items, to == from ? null : String.valueOf(to - 1), to - from));
+        }
+    }
+
+    private static class RecordingListener implements CatalogLoader.Listener {
+        final List<RestaurantManager> managers = new ArrayList<>();
+        final List<SearchCoverage> coverages = new ArrayList<>();
+        final List<Integer> searched = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+
+        @Override
+        public void onSnapshot(RestaurantManager manager, SearchCoverage coverage) {
+            managers.add(manager);
+            coverages.add(coverage);
+            searched.add(coverage.getSearched());
+        }
+
+        @Override
+        public void onFailure(String error) {
+            errors.add(error);
+        }
+    }
+}
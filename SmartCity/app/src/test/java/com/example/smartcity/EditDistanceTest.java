@@ -0,0 +1,93 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.EditDistance;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+
+public class EditDistanceTest {
+
+    private EditDistance editDistance;
+
+    @Before
+    public void setUp() {
+        editDistance = new EditDistance();
+    }
+
+    @Test
+    public void testDistance() {
+        assertEquals(3, editDistance.distance("kitten", "sitting"));
+        assertEquals(3, editDistance.distance("sitting", "kitten"));
+        assertEquals(0, editDistance.distance("pizza", "pizza"));
+        assertEquals(5, editDistance.distance("", "pizza"));
+        assertEquals(2, editDistance.distance("thai", "tahi"));
+        assertEquals(1, editDistance.distance("swiss\u00f4tel", "swissotel"));
+    }
+
+    @Test
+    public void testBoundedDistance() {
+        assertEquals(3, editDistance.boundedDistance("kitten", "sitting", 3));
+        assertEquals(3, editDistance.boundedDistance("kitten", "sitting", 2));
+        assertEquals(1, editDistance.boundedDistance("piza", "pizza", 2));
+        assertEquals(3, editDistance.boundedDistance("a", "abcd", 2));
+        assertEquals(0, editDistance.boundedDistance("", "", 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeThreshold() {
+        // a negative threshold must not report every pair as equal
+        editDistance.boundedDistance("pizza", "sushi", -1);
+    }
+
+    @Test
+    public void testMatchesDynamicProgramming() {
+        Random random = new Random(11);
+        // lengths around the 64 character limit of the bit-parallel algorithm, with some non-ASCII characters
+        String alphabet = "abcde\u00e9 \u00f4";
+        for (int q = 0; q < 2000; q++) {
+            String a = randomString(random, alphabet, random.nextInt(q % 10 == 0 ? 80 : 12));
+            String b = randomString(random, alphabet, random.nextInt(q % 10 == 0 ? 80 : 12));
+            int expected = levenshtein(a, b);
+            assertEquals(a + " / " + b, expected, editDistance.distance(a, b));
+
+            int threshold = random.nextInt(6);
+            assertEquals(a + " / " + b, Math.min(expected, threshold + 1), editDistance.boundedDistance(a, b, threshold));
+        }
+    }
+
+    @Test
+    public void testPatternOfExactly64Characters() {
+        Random random = new Random(5);
+        for (int q = 0; q < 200; q++) {
+            String a = randomString(random, "ab", 64);
+            String b = randomString(random, "ab", 60 + random.nextInt(10));
+            assertEquals(levenshtein(a, b), editDistance.distance(a, b));
+        }
+    }
+
+    private String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    private int levenshtein(String a, String b) {
+        int[][] dp = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                if (i == 0) {
+                    dp[i][j] = j;
+                } else if (j == 0) {
+                    dp[i][j] = i;
+                } else {
+                    dp[i][j] = Math.min(dp[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                            Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1));
+                }
+            }
+        }
+        return dp[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.FacetIndex;
+import com.example.smartcity.backend.entity.Restaurant;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class FacetIndexTest {
+
+    private FacetIndex facetIndex;
+
+    @Before
+    public void setUp() {
+        List<Restaurant> restaurants = Arrays.asList(
+                restaurant(1, "Cheap Cafe", 3.2, Arrays.asList("cafe", "food"), "$10-$25", 8),
+                restaurant(2, "Fine Dining", 4.8, Arrays.asList("food"), "$100+", 2500),
+                restaurant(3, "Corner Bar", 4.1, Arrays.asList("bar"), "$25-$50", 150),
+                restaurant(4, "Mystery Cafe", 4.5, Arrays.asList("cafe"), "Unknown", 40),
+                restaurant(5, "No Estimate", 2.0, Arrays.asList("lodging"), null, 0));
+        facetIndex = new FacetIndex(restaurants);
+    }
+
+    @Test
+    public void testTypeFilter() {
+        assertEquals(ids(0, 3), facetIndex.filter().type("Cafe").evaluate());
+        assertEquals(ids(2), facetIndex.filter().type("bar").evaluate());
+        assertEquals(0, facetIndex.filter().type("museum").count());
+    }
+
+    @Test
+    public void testEmptyFilterMatchesAll() {
+        assertEquals(ids(0, 1, 2, 3, 4), facetIndex.filter().evaluate());
+        assertEquals(5, facetIndex.filter().count());
+    }
+
+    @Test
+    public void testConditionsCombineWithAnd() {
+        assertEquals(ids(3), facetIndex.filter().type("cafe").minRating(4.0).evaluate());
+        assertEquals(ids(1), facetIndex.filter().type("food").price(3, 4).evaluate());
+        assertEquals(ids(1, 2), facetIndex.filter().minRating(4.0).minRatingsTotal(100).evaluate());
+    }
+
+    @Test
+    public void testUnknownPriceIsLastLevel() {
+        assertEquals(ids(3, 4), facetIndex.filter().price(5, 5).evaluate());
+        assertEquals(ids(0, 2), facetIndex.filter().price(1, 2).evaluate());
+    }
+
+    @Test
+    public void testFacetCounts() {
+        Map<String, Integer> types = facetIndex.typeCounts(null);
+        assertEquals(Integer.valueOf(2), types.get("cafe"));
+        assertEquals(Integer.valueOf(2), types.get("food"));
+        assertEquals(Integer.valueOf(1), types.get("lodging"));
+        assertArrayEquals(new int[]{0, 1, 1, 0, 1, 2}, facetIndex.priceCounts(null));
+        assertArrayEquals(new int[]{0, 0, 1, 1, 3}, facetIndex.ratingCounts(null));
+
+        BitSet cafes = facetIndex.filter().type("cafe").evaluate();
+        assertEquals(1, facetIndex.typeCount("food", cafes));
+        assertArrayEquals(new int[]{0, 1, 0, 0, 0, 1}, facetIndex.priceCounts(cafes));
+    }
+
+    @Test
+    public void testBands() {
+        assertEquals(0, FacetIndex.popularityBand(0));
+        assertEquals(1, FacetIndex.popularityBand(10));
+        assertEquals(2, FacetIndex.popularityBand(150));
+        assertEquals(FacetIndex.POPULARITY_BANDS - 1, FacetIndex.popularityBand(1000000));
+        assertEquals(4, FacetIndex.ratingBand(5.0));
+        assertEquals(3, FacetIndex.ratingBand(3.9));
+        assertArrayEquals(new int[]{2, 1, 1, 1, 0}, facetIndex.popularityCounts(null));
+    }
+
+    private static BitSet ids(int... ids) {
+        BitSet bits = new BitSet();
+        for (int id : ids) {
+            bits.set(id);
+        }
+        return bits;
+    }
+
+    private Restaurant restaurant(int id, String name, double rating, List<String> types, String price, int ratingsTotal) {
+        return new Restaurant(id, name, rating, "1 Test St", "http://example.com/photo.jpg",
+                40.7128, -74.0060, types, 2, price, ratingsTotal);
+    }
+}
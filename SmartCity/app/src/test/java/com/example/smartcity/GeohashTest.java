@@ -0,0 +1,67 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.GeoBounds;
+import com.example.smartcity.backend.dataStructure.Geohash;
+import org.junit.Test;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class GeohashTest {
+
+    @Test
+    public void testEncode() {
+        // the well-known example location in Jutland
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+        assertEquals("r3dp", Geohash.encode(-35.2809, 149.1300, 4));
+        assertEquals("u4pru", Geohash.encode(57.64911, 10.40744, 5));
+    }
+
+    @Test
+    public void testBoundsHoldTheLocation() {
+        Random random = new Random(23);
+        for (int i = 0; i < 1000; i++) {
+            double lat = -90 + 180 * random.nextDouble();
+            double lng = -180 + 360 * random.nextDouble();
+            GeoBounds bounds = Geohash.bounds(Geohash.encode(lat, lng, 6));
+            assertTrue(bounds.contains(lat, lng));
+            assertEquals(360 / Math.pow(2, 15), bounds.getEast() - bounds.getWest(), 1e-12);
+            assertEquals(180 / Math.pow(2, 15), bounds.getNorth() - bounds.getSouth(), 1e-12);
+        }
+    }
+
+    @Test
+    public void testCoveringHoldsEveryPointOfTheArea() {
+        Random random = new Random(24);
+        GeoBounds area = GeoBounds.around(-35.2809, 149.1300, 2000);
+        List<String> tiles = Geohash.covering(area, 6);
+        assertEquals(tiles.size(), new HashSet<>(tiles).size());
+        for (int i = 0; i < 1000; i++) {
+            double lat = area.getSouth() + (area.getNorth() - area.getSouth()) * random.nextDouble();
+            double lng = area.getWest() + (area.getEast() - area.getWest()) * random.nextDouble();
+            assertTrue(tiles.contains(Geohash.encode(lat, lng, 6)));
+        }
+        // a small movement needs the same tiles, or only a few new ones
+        List<String> moved = Geohash.covering(GeoBounds.around(-35.2810, 149.1301, 2000), 6);
+        int reused = 0;
+        for (String tile : moved) {
+            if (tiles.contains(tile)) {
+                reused++;
+            }
+        }
+        assertTrue(reused >= moved.size() - 7);
+    }
+
+    @Test
+    public void testCoveringAcrossAntimeridian() {
+        List<String> tiles = Geohash.covering(new GeoBounds(-1, 179.9, 1, -179.9), 4);
+        assertTrue(tiles.contains(Geohash.encode(0, 179.95, 4)));
+        assertTrue(tiles.contains(Geohash.encode(0, -179.95, 4)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidGeohash() {
+        Geohash.bounds("abc");
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.backend.dataStructure.InvertedIndex;
+import com.example.smartcity.backend.dataStructure.PostingLists;
+import com.example.smartcity.backend.entity.Restaurant;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import static org.junit.Assert.*;
+
+public class InvertedIndexTest {
+
+    private AvlTree<Restaurant> avlTree;
+    private InvertedIndex index;
+
+    @Before
+    public void setUp() {
+        avlTree = new AvlTree<>();
+        avlTree.insert(restaurant(1, "Thai House"));
+        avlTree.insert(restaurant(2, "Pizza House"));
+        avlTree.insert(restaurant(3, "Thai Thai Kitchen"));
+        avlTree.insert(restaurant(4, "Sushi Bar"));
+        index = new InvertedIndex(avlTree);
+    }
+
+    @Test
+    public void testPostings() {
+        assertEquals(4, index.size());
+        // ids follow name order: Pizza House, Sushi Bar, Thai House, Thai Thai Kitchen
+        assertArrayEquals(new int[]{0, 2}, index.postings("house"));
+        assertArrayEquals(new int[]{2, 3}, index.postings("Thai"));
+        assertArrayEquals(new int[0], index.postings("burger"));
+        assertEquals("Sushi Bar", index.get(1).getName());
+    }
+
+    @Test
+    public void testIdOf() {
+        assertEquals(3, index.idOf(avlTree.searchExact("Thai Thai Kitchen")));
+        assertEquals(-1, index.idOf(restaurant(5, "Zebra Cafe")));
+    }
+
+    @Test
+    public void testIndexIsNotAffectedByLaterInserts() {
+        avlTree.insert(restaurant(5, "Burger House"));
+        assertEquals(4, index.size());
+        assertArrayEquals(new int[]{0, 2}, index.postings("house"));
+    }
+
+    @Test
+    public void testToRestaurants() {
+        List<Restaurant> restaurants = index.toRestaurants(index.postings("thai"));
+        assertEquals(2, restaurants.size());
+        assertEquals("Thai House", restaurants.get(0).getName());
+        assertEquals("Thai Thai Kitchen", restaurants.get(1).getName());
+    }
+
+    @Test
+    public void testUnionAndIntersect() {
+        int[] a = {1, 3, 5, 7};
+        int[] b = {2, 3, 7, 9};
+        assertArrayEquals(new int[]{1, 2, 3, 5, 7, 9}, PostingLists.union(a, b));
+        assertArrayEquals(new int[]{3, 7}, PostingLists.intersect(a, b));
+        assertArrayEquals(a, PostingLists.union(a, PostingLists.EMPTY));
+        assertArrayEquals(new int[0], PostingLists.intersect(a, PostingLists.EMPTY));
+    }
+
+    @Test
+    public void testGallopingIntersectMatchesMerge() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            int[] small = randomPostings(random, 1 + random.nextInt(20), 5000);
+            int[] large = randomPostings(random, 500 + random.nextInt(2000), 5000);
+            TreeSet<Integer> expected = new TreeSet<>();
+            for (int id : small) {
+                if (Arrays.binarySearch(large, id) >= 0) {
+                    expected.add(id);
+                }
+            }
+            int[] result = PostingLists.intersect(small, large);
+            assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), result);
+            assertArrayEquals(result, PostingLists.intersect(large, small));
+        }
+    }
+
+    @Test
+    public void testIntersectAllAndUnionAll() {
+        List<int[]> lists = Arrays.asList(new int[]{1, 3, 5, 7, 9}, new int[]{3, 4, 5, 9}, new int[]{5, 9, 11});
+        assertArrayEquals(new int[]{5, 9}, PostingLists.intersectAll(lists));
+        assertArrayEquals(new int[]{1, 3, 4, 5, 7, 9, 11}, PostingLists.unionAll(lists));
+        assertArrayEquals(new int[0], PostingLists.intersectAll(Arrays.asList(new int[]{1}, new int[0], new int[]{1})));
+        assertArrayEquals(new int[0], PostingLists.unionAll(new ArrayList<>()));
+    }
+
+    private int[] randomPostings(Random random, int count, int bound) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        while (ids.size() < count) {
+            ids.add(random.nextInt(bound));
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private Restaurant restaurant(int id, String name) {
+        return new Restaurant(id, name, 4.0, "1 Test St", "http://example.com/photo.jpg", 40.7128, -74.0060, Arrays.asList("food"), 2, "$25-$50", 100);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.GeoBounds;
+import com.example.smartcity.backend.dataStructure.KdTree;
+import com.example.smartcity.backend.entity.Restaurant;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+public class KdTreeTest {
+
+    @Test
+    public void testWithinRadiusNearestFirst() {
+        List<Restaurant> restaurants = Arrays.asList(
+                restaurant(1, -35.2809, 149.1300),
+                restaurant(2, -35.2820, 149.1290),
+                restaurant(3, -35.3000, 149.1300),
+                restaurant(4, -33.8688, 151.2093));
+        KdTree<Restaurant> tree = KdTree.forRestaurants(restaurants);
+        assertEquals(4, tree.size());
+        // 2 is about 150 m away, 3 about 2.1 km away and 4 is in Sydney
+        assertEquals(Arrays.asList(1, 2), ids(tree.withinRadius(-35.2809, 149.1300, 1000)));
+        assertEquals(Arrays.asList(2, 1, 3), ids(tree.withinRadius(-35.2820, 149.1290, 3000)));
+    }
+
+    @Test
+    public void testWithinBounds() {
+        List<Restaurant> restaurants = Arrays.asList(
+                restaurant(1, 10, 10), restaurant(2, 20, 20), restaurant(3, -10, 179.5), restaurant(4, -10, -179.5));
+        KdTree<Restaurant> tree = KdTree.forRestaurants(restaurants);
+        assertEquals(set(1, 2), new HashSet<>(ids(tree.withinBounds(new GeoBounds(0, 0, 30, 30)))));
+        assertEquals(set(1), new HashSet<>(ids(tree.withinBounds(new GeoBounds(5, 5, 15, 15)))));
+        // crosses the antimeridian
+        assertEquals(set(3, 4), new HashSet<>(ids(tree.withinBounds(new GeoBounds(-20, 179, 0, -179)))));
+        assertEquals(set(3, 4), new HashSet<>(ids(tree.withinRadius(-10, 180, 100000))));
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(21);
+        List<Restaurant> restaurants = new ArrayList<>();
+        for (int id = 0; id < 3000; id++) {
+            restaurants.add(restaurant(id, -34 + random.nextDouble(), 150.5 + random.nextDouble()));
+        }
+        KdTree<Restaurant> tree = KdTree.forRestaurants(restaurants);
+        for (int query = 0; query < 50; query++) {
+            double lat = -34 + random.nextDouble();
+            double lng = 150.5 + random.nextDouble();
+            double meters = 500 + random.nextInt(5000);
+            Set<Integer> expected = new HashSet<>();
+            for (Restaurant restaurant : restaurants) {
+                if (GeoBounds.distanceMeters(lat, lng, restaurant.getLatitude(), restaurant.getLongitude()) <= meters) {
+                    expected.add(restaurant.getId());
+                }
+            }
+            List<Restaurant> found = tree.withinRadius(lat, lng, meters);
+            assertEquals(expected, new HashSet<>(ids(found)));
+            for (int i = 1; i < found.size(); i++) {
+                assertTrue(distance(lat, lng, found.get(i - 1)) <= distance(lat, lng, found.get(i)));
+            }
+        }
+    }
+
+    @Test
+    public void testNearestMatchesBruteForce() {
+        Random random = new Random(22);
+        List<Restaurant> restaurants = new ArrayList<>();
+        for (int id = 0; id < 2000; id++) {
+            restaurants.add(restaurant(id, -34 + random.nextDouble(), 150.5 + random.nextDouble()));
+        }
+        KdTree<Restaurant> tree = KdTree.forRestaurants(restaurants);
+        for (int query = 0; query < 50; query++) {
+            double lat = -34.5 + 2 * random.nextDouble();
+            double lng = 150 + 2 * random.nextDouble();
+            List<Restaurant> expected = new ArrayList<>();
+            for (Restaurant restaurant : restaurants) {
+                if (restaurant.getId() % 3 == 0) {
+                    expected.add(restaurant);
+                }
+            }
+            expected.sort((a, b) -> Double.compare(distance(lat, lng, a), distance(lat, lng, b)));
+            List<KdTree.Neighbor<Restaurant>> found = tree.nearest(lat, lng, 20, Double.POSITIVE_INFINITY,
+                    restaurant -> restaurant.getId() % 3 == 0);
+            assertEquals(20, found.size());
+            for (int i = 0; i < found.size(); i++) {
+                assertEquals(distance(lat, lng, expected.get(i)), found.get(i).getDistanceMeters(), 1e-6);
+                assertEquals(distance(lat, lng, found.get(i).getItem()), found.get(i).getDistanceMeters(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testNearestLimits() {
+        List<Restaurant> restaurants = Arrays.asList(
+                restaurant(1, -35.2809, 149.1300), restaurant(2, -35.3000, 149.1300), restaurant(3, -33.8688, 151.2093));
+        KdTree<Restaurant> tree = KdTree.forRestaurants(restaurants);
+        assertEquals(Arrays.asList(1, 2), neighborIds(tree.nearest(-35.28, 149.13, 2)));
+        assertEquals(Arrays.asList(1, 2, 3), neighborIds(tree.nearest(-35.28, 149.13, 10)));
+        assertEquals(Arrays.asList(1), neighborIds(tree.nearest(-35.28, 149.13, 10, 1000, r -> true)));
+        assertTrue(tree.nearest(-35.28, 149.13, 0).isEmpty());
+    }
+
+    @Test
+    public void testDistance() {
+        // Canberra to Sydney is about 248 km
+        double meters = GeoBounds.distanceMeters(-35.2809, 149.1300, -33.8688, 151.2093);
+        assertEquals(248000, meters, 3000);
+        assertEquals(0, GeoBounds.distanceMeters(1, 2, 1, 2), 0);
+        assertTrue(KdTree.forRestaurants(new ArrayList<>()).withinRadius(0, 0, 1000).isEmpty());
+    }
+
+    private static double distance(double lat, double lng, Restaurant restaurant) {
+        return GeoBounds.distanceMeters(lat, lng, restaurant.getLatitude(), restaurant.getLongitude());
+    }
+
+    private static List<Integer> ids(List<Restaurant> restaurants) {
+        List<Integer> ids = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            ids.add(restaurant.getId());
+        }
+        return ids;
+    }
+
+    private static List<Integer> neighborIds(List<KdTree.Neighbor<Restaurant>> neighbors) {
+        List<Integer> ids = new ArrayList<>();
+        for (KdTree.Neighbor<Restaurant> neighbor : neighbors) {
+            ids.add(neighbor.getItem().getId());
+        }
+        return ids;
+    }
+
+    private static Set<Integer> set(Integer... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    private Restaurant restaurant(int id, double latitude, double longitude) {
+        return new Restaurant(id, "Restaurant " + id, 4.0, "1 Test St", "http://example.com/photo.jpg",
+                latitude, longitude, Arrays.asList("food"), 2, "$25-$50", 100);
+    }
+}
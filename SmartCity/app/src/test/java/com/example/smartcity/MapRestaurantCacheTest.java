@@ -0,0 +1,133 @@
+package com.example.smartcity;
+
+import android.content.ComponentCallbacks2;
+
+import com.example.smartcity.backend.cache.MapRestaurantCache;
+import com.example.smartcity.backend.entity.Restaurant;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.*;
+
+public class MapRestaurantCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void testOnlyMissingTilesAreFetched() {
+        MapRestaurantCache cache = new MapRestaurantCache(10, Long.MAX_VALUE, 1000, now::get);
+        cache.putTile("r3dp00", Arrays.asList(restaurant(1), restaurant(2)));
+        cache.putTile("r3dp01", Collections.<Restaurant>emptyList());
+        assertEquals(Arrays.asList("r3dp02"), cache.getMissingTiles(Arrays.asList("r3dp00", "r3dp01", "r3dp02")));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(Arrays.asList(1, 2), ids(cache.getRestaurants(Arrays.asList("r3dp00", "r3dp01", "r3dp02"))));
+        assertTrue(cache.getTile("r3dp01").isEmpty());
+        assertNull(cache.getTile("r3dp02"));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedTiles() {
+        MapRestaurantCache cache = new MapRestaurantCache(2, Long.MAX_VALUE, 1000, now::get);
+        cache.putTile("a", Arrays.asList(restaurant(1)));
+        cache.putTile("b", Arrays.asList(restaurant(2)));
+        cache.getMissingTiles(Arrays.asList("a"));
+        cache.putTile("c", Arrays.asList(restaurant(3)));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(Arrays.asList("b"), cache.getMissingTiles(Arrays.asList("a", "b", "c")));
+        assertEquals(Arrays.asList(1, 3), ids(cache.getRestaurants(Arrays.asList("a", "b", "c"))));
+    }
+
+    @Test
+    public void testByteBudget() {
+        List<Restaurant> many = new ArrayList<>();
+        for (int id = 0; id < 100; id++) {
+            many.add(restaurant(id));
+        }
+        MapRestaurantCache cache = new MapRestaurantCache(100, 48000, 1000, now::get);
+        cache.putTile("a", many);
+        // each restaurant holds its strings and types, about 460 bytes
+        assertTrue(cache.getByteCount() > 45000);
+        assertTrue(cache.getByteCount() <= 48000);
+        cache.putTile("b", many.subList(0, 10));
+        // a holds about 46 KB, so both tiles do not fit
+        assertNull(cache.getTile("a"));
+        assertEquals(10, cache.getTile("b").size());
+        cache.clear();
+        assertEquals(0, cache.getByteCount());
+    }
+
+    @Test
+    public void testLongerStringsCostMore() {
+        MapRestaurantCache cache = new MapRestaurantCache(10, Long.MAX_VALUE, 1000, now::get);
+        cache.putTile("a", Arrays.asList(restaurant(1)));
+        long bytes = cache.getByteCount();
+        Restaurant restaurant = restaurant(1);
+        restaurant.setName(restaurant.getName() + " With A Much Longer Name");
+        cache.putTile("a", Arrays.asList(restaurant));
+        assertEquals(bytes + 2 * " With A Much Longer Name".length(), cache.getByteCount());
+    }
+
+    @Test
+    public void testExpiredTilesAreFetchedAgain() {
+        MapRestaurantCache cache = new MapRestaurantCache(10, Long.MAX_VALUE, 1000, now::get);
+        cache.putTile("a", Arrays.asList(restaurant(1)));
+        now.set(1000);
+        assertTrue(cache.getMissingTiles(Arrays.asList("a")).isEmpty());
+        now.set(1001);
+        assertEquals(Arrays.asList("a"), cache.getMissingTiles(Arrays.asList("a")));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getByteCount());
+    }
+
+    @Test
+    public void testTilesWithSameIdsAreIndependent() {
+        MapRestaurantCache cache = new MapRestaurantCache(10, Long.MAX_VALUE, 1000, now::get);
+        Restaurant first = restaurant(7);
+        Restaurant second = new Restaurant(7, "Another Restaurant", 4.0, "2 Test St", "http://example.com/photo.jpg",
+                40.7200, -74.0000, Arrays.asList("food"), 2, "$25-$50", 100);
+        cache.putTile("b", Arrays.asList(second));
+        long bytes = cache.getByteCount();
+        cache.putTile("a", Arrays.asList(first));
+        // neither restaurant replaces the other, and dropping a tile leaves the other one whole
+        assertSame(first, cache.getTile("a").get(0));
+        assertSame(second, cache.getTile("b").get(0));
+        cache.invalidate(Arrays.asList("a"));
+        assertEquals(Arrays.asList(second), cache.getTile("b"));
+        assertEquals(bytes, cache.getByteCount());
+    }
+
+    @Test
+    public void testTrimMemory() {
+        MapRestaurantCache cache = new MapRestaurantCache(10, Long.MAX_VALUE, 1000, now::get);
+        for (int i = 0; i < 8; i++) {
+            cache.putTile("t" + i, Arrays.asList(restaurant(i)));
+        }
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(8, cache.size());
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(4, cache.size());
+        // the most recently stored tiles are kept
+        assertNotNull(cache.getTile("t7"));
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(0, cache.size());
+        assertEquals(8, cache.getEvictionCount());
+    }
+
+    private static List<Integer> ids(List<Restaurant> restaurants) {
+        List<Integer> ids = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            ids.add(restaurant.getId());
+        }
+        return ids;
+    }
+
+    private Restaurant restaurant(int id) {
+        return new Restaurant(id, "Restaurant " + id, 4.0, "1 Test St", "http://example.com/photo.jpg",
+                40.7128, -74.0060, Arrays.asList("food"), 2, "$25-$50", 100);
+    }
+}
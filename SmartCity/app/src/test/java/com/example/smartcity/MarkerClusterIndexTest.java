@@ -0,0 +1,139 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.GeoBounds;
+import com.example.smartcity.backend.dataStructure.MarkerClusterIndex;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MarkerClusterIndexTest {
+
+    private static final GeoBounds WORLD = new GeoBounds(-85, -180, 85, 180);
+    private static final GeoBounds SYDNEY_CBD = new GeoBounds(-33.89, 151.19, -33.85, 151.23);
+
+    private static MarkerClusterIndex<double[]> index(List<double[]> points) {
+        return new MarkerClusterIndex<>(points, p -> p[0], p -> p[1]);
+    }
+
+    // random points within the Sydney CBD
+    private static List<double[]> cbd(int n) {
+        Random random = new Random(42);
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            points.add(new double[]{-33.89 + random.nextDouble() * 0.04, 151.19 + random.nextDouble() * 0.04});
+        }
+        return points;
+    }
+
+    private static int total(List<MarkerClusterIndex.Cluster<double[]>> clusters) {
+        int count = 0;
+        for (MarkerClusterIndex.Cluster<double[]> cluster : clusters) {
+            count += cluster.getCount();
+        }
+        return count;
+    }
+
+    @Test
+    public void testEveryZoomCoversAllItems() {
+        MarkerClusterIndex<double[]> index = index(cbd(2000));
+        for (int zoom = MarkerClusterIndex.MIN_ZOOM; zoom <= MarkerClusterIndex.MAX_ZOOM + 3; zoom++) {
+            assertEquals(2000, total(index.getClusters(WORLD, zoom)));
+        }
+    }
+
+    @Test
+    public void testZoomedOutIsOneCluster() {
+        List<MarkerClusterIndex.Cluster<double[]>> clusters = index(cbd(500)).getClusters(WORLD, 3);
+        assertEquals(1, clusters.size());
+        MarkerClusterIndex.Cluster<double[]> cluster = clusters.get(0);
+        assertEquals(500, cluster.getCount());
+        assertNull(cluster.getItem());
+        assertTrue(SYDNEY_CBD.contains(cluster.getLatitude(), cluster.getLongitude()));
+        assertTrue(cluster.getExpansionZoom() > 3);
+    }
+
+    @Test
+    public void testMarkersPerFrameAreBounded() {
+        // a screen of about 1080 x 1920 pixels holds 17 x 30 cells
+        for (int n : new int[]{1000, 10000}) {
+            MarkerClusterIndex<double[]> index = index(cbd(n));
+            for (int zoom = 12; zoom <= 15; zoom++) {
+                int clusters = index.getClusters(SYDNEY_CBD, zoom).size();
+                int cells = (int) Math.ceil(0.04 / 360 * 256 * (1 << zoom) / MarkerClusterIndex.CELL_PIXELS * 1.2) + 1;
+                assertTrue(clusters <= cells * cells);
+            }
+        }
+    }
+
+    @Test
+    public void testClusterSplitsAtExpansionZoom() {
+        MarkerClusterIndex<double[]> index = index(cbd(300));
+        for (int zoom = MarkerClusterIndex.MIN_ZOOM; zoom <= MarkerClusterIndex.MAX_ZOOM; zoom++) {
+            for (MarkerClusterIndex.Cluster<double[]> cluster : index.getClusters(WORLD, zoom)) {
+                if (cluster.getItem() != null) {
+                    assertEquals(1, cluster.getCount());
+                    continue;
+                }
+                // zooming in shows more markers in the cluster's area
+                int expansion = cluster.getExpansionZoom();
+                assertTrue(expansion > zoom);
+                assertTrue(index.getClusters(WORLD, expansion).size() > index.getClusters(WORLD, expansion - 1).size());
+            }
+        }
+    }
+
+    @Test
+    public void testMaxZoomShowsEveryItem() {
+        List<double[]> points = cbd(100);
+        List<MarkerClusterIndex.Cluster<double[]>> clusters =
+                index(points).getClusters(WORLD, MarkerClusterIndex.MAX_ZOOM + 1);
+        assertEquals(100, clusters.size());
+        Set<double[]> items = new HashSet<>();
+        for (MarkerClusterIndex.Cluster<double[]> cluster : clusters) {
+            items.add(cluster.getItem());
+            assertEquals(cluster.getItem()[0], cluster.getLatitude(), 1e-9);
+            assertEquals(cluster.getItem()[1], cluster.getLongitude(), 1e-9);
+        }
+        assertEquals(100, items.size());
+    }
+
+    @Test
+    public void testOnlyClustersInView() {
+        List<double[]> points = cbd(200);
+        points.add(new double[]{-37.81, 144.96});
+        MarkerClusterIndex<double[]> index = index(points);
+        assertEquals(200, total(index.getClusters(SYDNEY_CBD, 14)));
+        assertEquals(201, total(index.getClusters(WORLD, 14)));
+        assertEquals(0, index(new ArrayList<>()).getClusters(WORLD, 10).size());
+    }
+
+    @Test
+    public void testIdsAreStable() {
+        List<double[]> points = cbd(500);
+        MarkerClusterIndex<double[]> first = index(points);
+        MarkerClusterIndex<double[]> rebuilt = index(new ArrayList<>(points));
+        for (int zoom = 10; zoom <= MarkerClusterIndex.MAX_ZOOM + 1; zoom++) {
+            Set<Object> ids = ids(first.getClusters(SYDNEY_CBD, zoom));
+            // ids are unique within a view, and the same for an index built from the same items
+            assertEquals(first.getClusters(SYDNEY_CBD, zoom).size(), ids.size());
+            assertEquals(ids, ids(rebuilt.getClusters(SYDNEY_CBD, zoom)));
+            // a smaller view shows some of the same clusters
+            GeoBounds half = new GeoBounds(-33.89, 151.19, -33.87, 151.23);
+            assertTrue(ids.containsAll(ids(first.getClusters(half, zoom))));
+        }
+    }
+
+    private static Set<Object> ids(List<MarkerClusterIndex.Cluster<double[]>> clusters) {
+        Set<Object> ids = new HashSet<>();
+        for (MarkerClusterIndex.Cluster<double[]> cluster : clusters) {
+            ids.add(cluster.getId());
+        }
+        return ids;
+    }
+}
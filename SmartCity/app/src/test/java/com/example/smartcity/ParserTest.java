@@ -22,4 +22,18 @@ public class ParserTest {
         assertEquals("test", result.get(3));
         assertEquals("input", result.get(4));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testParseLeavesDistantTokensUnchanged() {
+        List<String> validTokens = Arrays.asList("pizza", "Pasta", "house");
+        Parser parser = new Parser(validTokens, 1);
+        List<String> result = parser.parse(Arrays.asList("piza", "PASTA", "xylophone", "huose"));
+
+        assertEquals(4, result.size());
+        assertEquals("pizza", result.get(0));
+        assertEquals("Pasta", result.get(1));
+        assertEquals("xylophone", result.get(2));
+        // a transposition is two edits, more than the maximum distance of one
+        assertEquals("huose", result.get(3));
+    }
+}
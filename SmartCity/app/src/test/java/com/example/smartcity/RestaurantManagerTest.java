@@ -0,0 +1,275 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.cache.SearchCache;
+import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.backend.dataStructure.GeoBounds;
+import com.example.smartcity.backend.dataStructure.KdTree;
+import com.example.smartcity.backend.entity.Restaurant;
+import com.example.smartcity.backend.entity.RestaurantManager;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class RestaurantManagerTest {
+
+    private AvlTree<Restaurant> avlTree;
+    private RestaurantManager manager;
+
+    @Before
+    public void setUp() {
+        avlTree = new AvlTree<>();
+        avlTree.insert(restaurant(1, "Thai House", Arrays.asList("food", "restaurant")));
+        avlTree.insert(restaurant(2, "Pizza House", Arrays.asList("food", "restaurant")));
+        avlTree.insert(restaurant(3, "Hotel Sydney", Arrays.asList("lodging", "bar")));
+        avlTree.insert(restaurant(4, "Mamak", Arrays.asList("food")));
+        avlTree.insert(restaurant(5, "Pizzeria Roma", Arrays.asList("food", "cafe")));
+        manager = new RestaurantManager(avlTree, Arrays.asList("Thai", "House", "Pizza", "Hotel", "Sydney", "Mamak", "Pizzeria", "Roma"));
+    }
+
+    @Test
+    public void testSearchWord() {
+        assertEquals(Arrays.asList("Pizza House", "Thai House"), names(manager.search("house", "Type")));
+    }
+
+    @Test
+    public void testSearchExactName() {
+        assertEquals(Arrays.asList("Mamak"), names(manager.search("Mamak", "Type")));
+    }
+
+    @Test
+    public void testSearchFragment() {
+        assertEquals(Arrays.asList("Hotel Sydney"), names(manager.search("otel", "Type")));
+        assertEquals(Arrays.asList("Pizza House", "Pizzeria Roma"), names(manager.search("izz", "Type")));
+    }
+
+    @Test
+    public void testSearchPrefix() {
+        assertEquals(Arrays.asList("Pizza House", "Pizzeria Roma"), names(manager.search("Pizz*", "Type")));
+    }
+
+    @Test
+    public void testSearchCorrectsMisspelledTokens() {
+        assertEquals(Arrays.asList("Thai House"), names(manager.search("Tahi", "Type")));
+    }
+
+    @Test
+    public void testSearchWithDictionaryTokens() {
+        RestaurantManager dictionaryManager = new RestaurantManager(avlTree);
+        assertEquals(Arrays.asList("Thai House"), names(dictionaryManager.search("Tahi", "Type")));
+        assertEquals(Arrays.asList("Pizzeria Roma"), names(dictionaryManager.search("Pizeria", "Type")));
+    }
+
+    @Test
+    public void testSearchWithoutDuplicates() {
+        assertEquals(Arrays.asList("Pizza House", "Thai House"), names(manager.search("house House", "Type")));
+    }
+
+    @Test
+    public void testSearchWithFilter() {
+        assertEquals(Arrays.asList("Pizzeria Roma"), names(manager.search("Pizz*", "Cafe")));
+    }
+
+    @Test
+    public void testSearchRanksByRelevance() {
+        // both words match Thai House, only one matches Pizza House
+        assertEquals(Arrays.asList("Thai House", "Pizza House"), names(manager.search("house OR thai", "Type")));
+        assertEquals("Pizza House", manager.search("Pizza House", "Type").get(0).getName());
+    }
+
+    @Test
+    public void testSearchWordsAreAnded() {
+        assertEquals(Arrays.asList("Thai House"), names(manager.search("house thai", "Type")));
+        assertEquals(Arrays.asList("Thai House"), names(manager.search("thai hous", "Type")));
+        assertEquals(0, manager.search("thai roma", "Type").size());
+    }
+
+    @Test
+    public void testSearchOr() {
+        // the shorter name scores higher
+        assertEquals(Arrays.asList("Mamak", "Hotel Sydney"), names(manager.search("mamak | sydney", "Type")));
+        // AND binds tighter than OR
+        assertEquals(Arrays.asList("Thai House", "Mamak"), names(manager.search("thai house OR mamak", "Type")));
+    }
+
+    @Test
+    public void testSearchPhrase() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(restaurant(1, "House of Thai", Arrays.asList("food")));
+        tree.insert(restaurant(2, "Thai House", Arrays.asList("food")));
+        tree.insert(restaurant(3, "Thai-House Express", Arrays.asList("food")));
+        RestaurantManager phraseManager = new RestaurantManager(tree);
+        assertEquals(3, phraseManager.search("thai house", "Type").size());
+        assertEquals(Arrays.asList("Thai House", "Thai-House Express"), names(phraseManager.search("\"thai house\"", "Type")));
+        assertEquals(Arrays.asList("Thai House", "Thai-House Express"), names(phraseManager.search("thai-house", "Type")));
+        assertEquals(Arrays.asList("House of Thai"), names(phraseManager.search("\"house of\"", "Type")));
+    }
+
+    @Test
+    public void testSearchLimit() {
+        assertEquals(Arrays.asList("Pizza House"), names(manager.search("house", "Type", 1)));
+        assertEquals(0, manager.search("house", "Type", 0).size());
+    }
+
+    @Test
+    public void testSearchBoostsRatingAndPopularity() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(new Restaurant(1, "Corner Cafe", 3.0, "", "", 0, 0, Arrays.asList("cafe"), 1, "", 10));
+        tree.insert(new Restaurant(2, "Garden Cafe", 4.8, "", "", 0, 0, Arrays.asList("cafe"), 1, "", 900));
+        tree.insert(new Restaurant(3, "Harbour Cafe", 4.8, "", "", 0, 0, Arrays.asList("cafe"), 1, "", 20));
+        RestaurantManager rankedManager = new RestaurantManager(tree);
+        assertEquals(Arrays.asList("Garden Cafe", "Harbour Cafe", "Corner Cafe"), names(rankedManager.search("cafe", "Type")));
+    }
+
+    @Test
+    public void testSearchSortsResults() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(new Restaurant(1, "Corner Cafe", 3.0, "", "", 0, 0, Arrays.asList("cafe"), 3, "$50-$100", 10));
+        tree.insert(new Restaurant(2, "Garden Cafe", 4.8, "", "", 0, 0, Arrays.asList("cafe"), 1, "$10-$25", 900));
+        tree.insert(new Restaurant(3, "Harbour Cafe", 4.1, "", "", 0, 0, Arrays.asList("cafe"), 2, "$25-$50", 20));
+        RestaurantManager sortedManager = new RestaurantManager(tree);
+        assertEquals(Arrays.asList("Corner Cafe", "Harbour Cafe", "Garden Cafe"),
+                names(sortedManager.search("cafe", "Type", "Rating: Low to High", 10)));
+        assertEquals(Arrays.asList("Garden Cafe", "Harbour Cafe", "Corner Cafe"),
+                names(sortedManager.search("cafe", "Type", "Price: Low to High", 10)));
+        assertEquals(Arrays.asList("Garden Cafe", "Harbour Cafe", "Corner Cafe"),
+                names(sortedManager.search("cafe", "Type", "Popularity: High to Low", 10)));
+    }
+
+    @Test
+    public void testSortedSearchSelectsFromAllMatches() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        for (int i = 1; i <= 5; i++) {
+            tree.insert(new Restaurant(i, "Cafe " + i, 5.0, "", "", 0, 0, Arrays.asList("cafe"), 3, "$50-$100", 900));
+        }
+        tree.insert(new Restaurant(6, "Old Corner Street Cafe", 1.0, "", "", 0, 0, Arrays.asList("cafe"), 1, "$10-$25", 1));
+        tree.insert(new Restaurant(7, "Cafe 7", 4.0, "", "", 0, 0, Arrays.asList("cafe"), 2, "$25-$50", 900));
+        RestaurantManager sortedManager = new RestaurantManager(tree);
+
+        // the cheap cafe is the least relevant, so it is cut off in relevance order
+        assertFalse(names(sortedManager.search("cafe", "Type", 3)).contains("Old Corner Street Cafe"));
+        List<String> cheapest = names(sortedManager.search("cafe", "Type", "Price: Low to High", 3));
+        assertEquals(3, cheapest.size());
+        assertEquals("Old Corner Street Cafe", cheapest.get(0));
+        assertEquals("Cafe 7", cheapest.get(1));
+        assertEquals(Arrays.asList("Old Corner Street Cafe"),
+                names(sortedManager.search("cafe", "Type", "Rating: Low to High", 1)));
+        // the same results as sorting every match and keeping the first ones
+        assertEquals(names(sortedManager.search("cafe", "Type", "Price: High to Low", 100)).subList(0, 4),
+                names(sortedManager.search("cafe", "Type", "Price: High to Low", 4)));
+    }
+
+    @Test
+    public void testSearchSortsUnknownPriceLast() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(new Restaurant(1, "Corner Cafe", 3.0, "", "", 0, 0, Arrays.asList("cafe"), 3, "Unknown", 10));
+        tree.insert(new Restaurant(2, "Garden Cafe", 4.8, "", "", 0, 0, Arrays.asList("cafe"), 1, "$10-$25", 900));
+        tree.insert(new Restaurant(3, "Harbour Cafe", 4.1, "", "", 0, 0, Arrays.asList("cafe"), 2, "$50-$100", 20));
+        RestaurantManager sortedManager = new RestaurantManager(tree);
+        assertEquals(Arrays.asList("Garden Cafe", "Harbour Cafe", "Corner Cafe"),
+                names(sortedManager.search("cafe", "Type", "Price: Low to High", 10)));
+        assertEquals(Arrays.asList("Harbour Cafe", "Garden Cafe", "Corner Cafe"),
+                names(sortedManager.search("cafe", "Type", "Price: High to Low", 10)));
+    }
+
+    @Test
+    public void testNearestWithFilter() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(new Restaurant(1, "Corner Cafe", 3.0, "", "", -35.2809, 149.1300, Arrays.asList("cafe"), 1, "", 10));
+        tree.insert(new Restaurant(2, "Corner Bar", 4.0, "", "", -35.2810, 149.1301, Arrays.asList("bar"), 1, "", 10));
+        tree.insert(new Restaurant(3, "Far Cafe", 4.0, "", "", -35.3000, 149.1300, Arrays.asList("cafe"), 1, "", 10));
+        tree.insert(new Restaurant(4, "Nowhere Cafe", 4.0, "", "", 0, 0, Arrays.asList("cafe"), 1, "", 10));
+        RestaurantManager nearbyManager = new RestaurantManager(tree);
+        List<KdTree.Neighbor<Restaurant>> cafes = nearbyManager.nearest(-35.2810, 149.1301, 5, "Cafe");
+        assertEquals(2, cafes.size());
+        assertEquals("Corner Cafe", cafes.get(0).getItem().getName());
+        assertEquals("Far Cafe", cafes.get(1).getItem().getName());
+        assertTrue(cafes.get(0).getDistanceMeters() < 20);
+        assertEquals("Corner Bar", nearbyManager.nearest(-35.2810, 149.1301, 1, "Type").get(0).getItem().getName());
+    }
+
+    @Test
+    public void testSearchNearest() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(new Restaurant(1, "Corner Cafe", 3.0, "", "", -35.2809, 149.1300, Arrays.asList("cafe"), 1, "", 10));
+        tree.insert(new Restaurant(2, "Corner Bar", 4.0, "", "", -35.2810, 149.1301, Arrays.asList("bar"), 1, "", 10));
+        tree.insert(new Restaurant(3, "Garden Cafe", 5.0, "", "", -35.3000, 149.1300, Arrays.asList("cafe"), 1, "", 900));
+        tree.insert(new Restaurant(4, "Harbour Cafe", 4.0, "", "", -35.2900, 149.1300, Arrays.asList("cafe"), 1, "", 10));
+        RestaurantManager nearbyManager = new RestaurantManager(tree);
+
+        // matches of the query, nearest first rather than most relevant first
+        List<KdTree.Neighbor<Restaurant>> cafes = nearbyManager.searchNearest("cafe", "Type", -35.2810, 149.1301, 10);
+        assertEquals(Arrays.asList("Corner Cafe", "Harbour Cafe", "Garden Cafe"), neighborNames(cafes));
+        assertEquals(Arrays.asList("Corner Cafe", "Harbour Cafe"),
+                neighborNames(nearbyManager.searchNearest("cafe", "Type", -35.2810, 149.1301, 2)));
+        assertEquals(Arrays.asList("Corner Bar"),
+                neighborNames(nearbyManager.searchNearest("corner", "Bar", -35.3000, 149.1300, 10)));
+        assertTrue(nearbyManager.searchNearest("sushi", "Type", -35.2810, 149.1301, 10).isEmpty());
+    }
+
+    @Test
+    public void testWithinBounds() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(new Restaurant(1, "Corner Cafe", 3.0, "", "", -35.2809, 149.1300, Arrays.asList("cafe"), 1, "", 10));
+        tree.insert(new Restaurant(2, "Far Cafe", 4.0, "", "", -35.3500, 149.1300, Arrays.asList("cafe"), 1, "", 10));
+        tree.insert(new Restaurant(3, "Nowhere Cafe", 4.0, "", "", 0, 0, Arrays.asList("cafe"), 1, "", 10));
+        RestaurantManager boundsManager = new RestaurantManager(tree);
+        assertEquals(Arrays.asList("Corner Cafe"),
+                names(boundsManager.withinBounds(GeoBounds.around(-35.2810, 149.1301, 1000))));
+        assertEquals(0, boundsManager.withinBounds(GeoBounds.around(0, 0, 1000)).size());
+    }
+
+    @Test
+    public void testVersionOfSearchedSnapshot() {
+        // a manager can be reused while its version is the one of the tree
+        assertEquals(avlTree.getVersion(), manager.getVersion());
+        avlTree.insert(restaurant(6, "Sushi Bar", Arrays.asList("food")));
+        assertNotEquals(avlTree.getVersion(), manager.getVersion());
+    }
+
+    @Test
+    public void testSearchUsesCache() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(restaurant(1, "Thai House", Arrays.asList("food")));
+        tree.insert(restaurant(2, "Pizza House", Arrays.asList("food")));
+        RestaurantManager cachedManager = new RestaurantManager(tree);
+        SearchCache cache = SearchCache.getInstance();
+
+        long hits = cache.getHitCount();
+        List<Restaurant> first = cachedManager.search("House", "Type");
+        // the same normalized tokens hit the cache
+        List<Restaurant> second = cachedManager.search("  house  ", "Type");
+        assertEquals(first, second);
+        assertEquals(hits + 1, cache.getHitCount());
+
+        // a different filter or sort option is another search
+        cachedManager.search("house", "Bar");
+        assertEquals(hits + 1, cache.getHitCount());
+
+        // a manager over a changed tree does not see the old results
+        tree.insert(restaurant(3, "Burger House", Arrays.asList("food")));
+        assertEquals(3, new RestaurantManager(tree).search("house", "Type").size());
+    }
+
+    private List<String> neighborNames(List<KdTree.Neighbor<Restaurant>> neighbors) {
+        List<String> names = new ArrayList<>();
+        for (KdTree.Neighbor<Restaurant> neighbor : neighbors) {
+            names.add(neighbor.getItem().getName());
+        }
+        return names;
+    }
+
+    private List<String> names(List<Restaurant> restaurants) {
+        List<String> names = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            names.add(restaurant.getName());
+        }
+        return names;
+    }
+
+    private Restaurant restaurant(int id, String name, List<String> types) {
+        return new Restaurant(id, name, 4.0, "1 Test St", "http://example.com/photo.jpg", 40.7128, -74.0060, types, 2, "$25-$50", 100);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.cache.SearchCache;
+import com.example.smartcity.backend.entity.Restaurant;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class SearchCacheTest {
+
+    private SearchCache cache;
+    private List<Restaurant> results;
+
+    @Before
+    public void setUp() {
+        cache = new SearchCache(2);
+        results = Collections.singletonList(new Restaurant(1, "Thai House", 4.0, "1 Test St", "http://example.com/photo.jpg", 40.7128, -74.0060, Arrays.asList("food"), 2, "$25-$50", 100));
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        String key = SearchCache.key(Arrays.asList("thai", "house"), "Type", "Sort By", 100);
+        assertNull(cache.get(key, 1));
+        cache.put(key, 1, results);
+        assertEquals(results, cache.get(key, 1));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testKeysDifferByFilterAndSort() {
+        assertNotEquals(SearchCache.key(Arrays.asList("thai"), "Type", "Sort By", 100),
+                SearchCache.key(Arrays.asList("thai"), "Bar", "Sort By", 100));
+        assertNotEquals(SearchCache.key(Arrays.asList("thai"), "Type", "Sort By", 100),
+                SearchCache.key(Arrays.asList("thai"), "Type", "Rating: High to Low", 100));
+        assertNotEquals(SearchCache.key(Arrays.asList("thai", "house"), "Type", "Sort By", 100),
+                SearchCache.key(Arrays.asList("thai house"), "Type", "Sort By", 100));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        cache.put("a", 1, results);
+        cache.put("b", 1, results);
+        // touching a makes b the least recently used
+        assertNotNull(cache.get("a", 1));
+        cache.put("c", 1, results);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b", 1));
+        assertNotNull(cache.get("a", 1));
+        assertNotNull(cache.get("c", 1));
+    }
+
+    @Test
+    public void testVersionsAreSeparate() {
+        cache.put("a", 1, results);
+        assertNull(cache.get("a", 2));
+        cache.put("a", 2, Collections.emptyList());
+        // a lookup with another version does not drop the entries of the first one
+        assertEquals(results, cache.get("a", 1));
+        assertEquals(0, cache.get("a", 2).size());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testCachedResultsAreCopies() {
+        cache.put("a", 1, results);
+        cache.get("a", 1).clear();
+        assertEquals(1, cache.get("a", 1).size());
+    }
+}
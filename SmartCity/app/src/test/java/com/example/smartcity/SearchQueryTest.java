@@ -0,0 +1,58 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.SearchQuery;
+import com.example.smartcity.backend.dataStructure.Tokenizer;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class SearchQueryTest {
+
+    private final Tokenizer tokenizer = new Tokenizer();
+
+    @Test
+    public void testWordsAreAnded() {
+        SearchQuery query = SearchQuery.parse("Thai  HOUSE", tokenizer);
+        assertEquals(1, query.getGroups().size());
+        assertEquals(2, query.getGroups().get(0).size());
+        assertEquals("thai house", query.toString());
+    }
+
+    @Test
+    public void testOr() {
+        SearchQuery query = SearchQuery.parse("thai house OR pizza | sushi", tokenizer);
+        assertEquals(3, query.getGroups().size());
+        assertEquals("thai house OR pizza OR sushi", query.toString());
+        // a lower-case or is a word
+        assertEquals("thai or pizza", SearchQuery.parse("thai or pizza", tokenizer).toString());
+        assertEquals("pizza", SearchQuery.parse("OR pizza OR", tokenizer).toString());
+    }
+
+    @Test
+    public void testPhrase() {
+        SearchQuery query = SearchQuery.parse("\"Thai House\" sydney", tokenizer);
+        List<SearchQuery.Clause> group = query.getGroups().get(0);
+        assertEquals(SearchQuery.Kind.PHRASE, group.get(0).getKind());
+        assertEquals(Arrays.asList("thai", "house"), group.get(0).getWords());
+        assertEquals(SearchQuery.Kind.TERM, group.get(1).getKind());
+        assertEquals("\"thai house\" sydney", query.toString());
+        assertEquals("\"thai style\"", SearchQuery.parse("Thai-Style", tokenizer).toString());
+        // an unterminated quote runs to the end
+        assertEquals("\"thai house\"", SearchQuery.parse("\"thai house", tokenizer).toString());
+    }
+
+    @Test
+    public void testPrefix() {
+        List<SearchQuery.Clause> group = SearchQuery.parse("Pizz* roma", tokenizer).getGroups().get(0);
+        assertEquals(SearchQuery.Kind.PREFIX, group.get(0).getKind());
+        assertEquals("Pizz", group.get(0).getWords().get(0));
+        assertEquals("Pizz* roma", SearchQuery.parse("Pizz*   Roma", tokenizer).toString());
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(SearchQuery.parse("  !! ", tokenizer).isEmpty());
+        assertTrue(SearchQuery.parse("\"\"", tokenizer).isEmpty());
+    }
+}
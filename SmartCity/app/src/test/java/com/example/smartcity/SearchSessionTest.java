@@ -0,0 +1,150 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.backend.entity.Restaurant;
+import com.example.smartcity.backend.entity.RestaurantManager;
+import com.example.smartcity.backend.entity.SearchSession;
+import com.example.smartcity.util.DataCallback;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.*;
+
+public class SearchSessionTest {
+
+    private RestaurantManager manager;
+    private SearchSession session;
+
+    @Before
+    public void setUp() {
+        AvlTree<Restaurant> avlTree = new AvlTree<>();
+        avlTree.insert(restaurant(1, "Thai House", Arrays.asList("food")));
+        avlTree.insert(restaurant(2, "Pizza House", Arrays.asList("food")));
+        avlTree.insert(restaurant(3, "Pizzeria Roma", Arrays.asList("food", "cafe")));
+        avlTree.insert(restaurant(4, "Pita Pit", Arrays.asList("food")));
+        avlTree.insert(restaurant(5, "Hotel Sydney", Arrays.asList("lodging")));
+        manager = new RestaurantManager(avlTree);
+        // deliver on the session thread
+        session = manager.newSearchSession(Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+    }
+
+    @Test
+    public void testLastWordIsAPrefix() {
+        assertEquals(Arrays.asList("Pita Pit", "Pizza House", "Pizzeria Roma"), names(session.search("pi", "Type", 10)));
+        assertEquals(Arrays.asList("Pizza House", "Pizzeria Roma"), names(session.search("piz", "Type", 10)));
+        assertEquals(Arrays.asList("Pizza House"), names(session.search("pizz", "Type", 10).subList(0, 1)));
+    }
+
+    @Test
+    public void testNarrowingMatchesFreshSearch() {
+        String[] keystrokes = {"h", "ho", "hou", "hous", "house", "house ", "house t", "house th"};
+        for (String query : keystrokes) {
+            List<String> narrowed = names(session.search(query, "Type", 10));
+            SearchSession fresh = manager.newSearchSession(Runnable::run);
+            assertEquals(query, names(fresh.search(query, "Type", 10)), narrowed);
+            fresh.close();
+        }
+        assertEquals(Arrays.asList("Thai House"), names(session.search("house th", "Type", 10)));
+    }
+
+    @Test
+    public void testCompleteWordsMustMatchWholeWords() {
+        assertEquals(Arrays.asList("Hotel Sydney"), names(session.search("Hot", "Type", 10)));
+        assertEquals(0, session.search("Hot ", "Type", 10).size());
+    }
+
+    @Test
+    public void testIgnorableCharDoesNotNarrow() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(restaurant(1, "McDonald's", Arrays.asList("food")));
+        tree.insert(restaurant(2, "Donald Cafe", Arrays.asList("food")));
+        SearchSession typing = new RestaurantManager(tree).newSearchSession(Runnable::run);
+        assertEquals(Arrays.asList("McDonald's"), names(typing.search("mcdonald", "Type", 10)));
+        // the apostrophe ends the word for now, so it must match a whole word
+        assertEquals(0, typing.search("mcdonald'", "Type", 10).size());
+        assertEquals(Arrays.asList("McDonald's"), names(typing.search("mcdonald's", "Type", 10)));
+        typing.close();
+    }
+
+    @Test
+    public void testBackspaceSearchesAgain() {
+        session.search("pizz", "Type", 10);
+        assertEquals(Arrays.asList("Pita Pit", "Pizza House", "Pizzeria Roma"), names(session.search("pi", "Type", 10)));
+        assertEquals(0, session.search("", "Type", 10).size());
+    }
+
+    @Test
+    public void testFilter() {
+        assertEquals(Arrays.asList("Pizzeria Roma"), names(session.search("piz", "Cafe", 10)));
+    }
+
+    @Test
+    public void testSortOptionMatchesSearch() {
+        AvlTree<Restaurant> tree = new AvlTree<>();
+        tree.insert(new Restaurant(1, "Pizza House", 4.0, "", "", 0, 0, Arrays.asList("food"), 3, "$50-$100", 10));
+        tree.insert(new Restaurant(2, "Pizza Express", 4.0, "", "", 0, 0, Arrays.asList("food"), 1, "$10-$25", 10));
+        tree.insert(new Restaurant(3, "Pizzeria Roma", 4.0, "", "", 0, 0, Arrays.asList("food"), 2, "$25-$50", 10));
+        RestaurantManager pricedManager = new RestaurantManager(tree);
+        SearchSession pricedSession = pricedManager.newSearchSession(Runnable::run);
+        String sortBy = "Price: Low to High";
+        assertEquals(Arrays.asList("Pizza Express", "Pizzeria Roma", "Pizza House"),
+                names(pricedSession.search("piz", "Type", sortBy, 10)));
+        // narrowed candidates are sorted the same way
+        assertEquals(names(pricedManager.search("pizza", "Type", sortBy, 10)),
+                names(pricedSession.search("pizza", "Type", sortBy, 10)));
+        assertEquals(Arrays.asList("Pizza Express"), names(pricedSession.search("pizza", "Type", sortBy, 1)));
+        pricedSession.close();
+    }
+
+    @Test
+    public void testUpdateDeliversOnlyTheLatestGeneration() throws InterruptedException {
+        session.setDebounceMillis(50);
+        CountDownLatch delivered = new CountDownLatch(1);
+        AtomicInteger deliveries = new AtomicInteger();
+        AtomicReference<List<Restaurant>> latest = new AtomicReference<>();
+        DataCallback<List<Restaurant>> callback = new DataCallback<List<Restaurant>>() {
+            @Override
+            public void onSuccess(List<Restaurant> result) {
+                deliveries.incrementAndGet();
+                latest.set(result);
+                delivered.countDown();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                fail(error);
+            }
+        };
+        for (String query : new String[]{"p", "pi", "piz", "pizz", "pizze"}) {
+            session.update(query, "Type", 10, callback);
+        }
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(1, deliveries.get());
+        assertEquals(Arrays.asList("Pizzeria Roma"), names(latest.get()));
+    }
+
+    private List<String> names(List<Restaurant> restaurants) {
+        List<String> names = new ArrayList<>();
+        for (Restaurant restaurant : restaurants) {
+            names.add(restaurant.getName());
+        }
+        return names;
+    }
+
+    private Restaurant restaurant(int id, String name, List<String> types) {
+        return new Restaurant(id, name, 4.0, "1 Test St", "http://example.com/photo.jpg", 40.7128, -74.0060, types, 2, "$25-$50", 100);
+    }
+}
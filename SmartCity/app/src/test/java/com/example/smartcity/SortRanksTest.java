@@ -0,0 +1,78 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.SortRanks;
+import com.example.smartcity.backend.entity.Restaurant;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class SortRanksTest {
+
+    private SortRanks sortRanks;
+
+    @Before
+    public void setUp() {
+        sortRanks = new SortRanks(Arrays.asList(
+                restaurant(0, 4.5, "Unknown", 40),
+                restaurant(1, 3.2, "$10-$25", 8),
+                restaurant(2, 4.8, "$100+", 2500),
+                restaurant(3, 4.5, "$25-$50", 150),
+                restaurant(4, 2.0, null, 0)));
+    }
+
+    @Test
+    public void testPriceOrdersKeepUnknownLast() {
+        int[] ids = {0, 1, 2, 3, 4};
+        assertArrayEquals(new int[]{1, 3, 2, 0, 4}, sortRanks.sort(ids, SortRanks.Order.PRICE_LOW_TO_HIGH));
+        assertArrayEquals(new int[]{2, 3, 1, 0, 4}, sortRanks.sort(ids, SortRanks.Order.PRICE_HIGH_TO_LOW));
+    }
+
+    @Test
+    public void testRatingAndPopularityOrders() {
+        int[] ids = {0, 1, 2, 3, 4};
+        assertArrayEquals(new int[]{2, 0, 3, 1, 4}, sortRanks.sort(ids, SortRanks.Order.RATING_HIGH_TO_LOW));
+        assertArrayEquals(new int[]{4, 1, 0, 3, 2}, sortRanks.sort(ids, SortRanks.Order.RATING_LOW_TO_HIGH));
+        assertArrayEquals(new int[]{2, 3, 0, 1, 4}, sortRanks.sort(ids, SortRanks.Order.POPULARITY));
+    }
+
+    @Test
+    public void testSortIsStable() {
+        // 0 and 3 have the same rating, so they keep the given order
+        assertArrayEquals(new int[]{2, 3, 0}, sortRanks.sort(new int[]{3, 0, 2}, SortRanks.Order.RATING_HIGH_TO_LOW));
+        int[] ids = {3, 0};
+        sortRanks.sort(ids, SortRanks.Order.PRICE_LOW_TO_HIGH);
+        assertArrayEquals(new int[]{3, 0}, ids);
+    }
+
+    @Test
+    public void testMatchesComparatorSortOnManyKeys() {
+        List<Restaurant> restaurants = new ArrayList<>();
+        Random random = new Random(7);
+        for (int id = 0; id < 2000; id++) {
+            restaurants.add(restaurant(id, random.nextInt(51) / 10.0, "$10-$25", random.nextInt(100000)));
+        }
+        SortRanks ranks = new SortRanks(restaurants);
+        List<Integer> expected = new ArrayList<>();
+        int[] ids = new int[restaurants.size()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = ids.length - 1 - id;
+            expected.add(ids[id]);
+        }
+        Collections.sort(expected, (a, b) -> Integer.compare(
+                restaurants.get(b).getUser_ratings_total(), restaurants.get(a).getUser_ratings_total()));
+        int[] sorted = ranks.sort(ids, SortRanks.Order.POPULARITY);
+        for (int i = 0; i < sorted.length; i++) {
+            assertEquals((int) expected.get(i), sorted[i]);
+        }
+    }
+
+    private Restaurant restaurant(int id, double rating, String price, int ratingsTotal) {
+        return new Restaurant(id, "Restaurant " + id, rating, "1 Test St", "http://example.com/photo.jpg",
+                40.7128, -74.0060, Arrays.asList("food"), 2, price, ratingsTotal);
+    }
+}
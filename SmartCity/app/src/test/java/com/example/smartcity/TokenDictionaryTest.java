@@ -0,0 +1,80 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.backend.dataStructure.Parser;
+import com.example.smartcity.backend.dataStructure.TokenDictionary;
+import com.example.smartcity.backend.entity.Restaurant;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.*;
+
+public class TokenDictionaryTest {
+
+    private AvlTree<Restaurant> avlTree;
+    private TokenDictionary dictionary;
+
+    @Before
+    public void setUp() {
+        avlTree = new AvlTree<>();
+        avlTree.insert(restaurant(1, "Thai House"));
+        avlTree.insert(restaurant(2, "Pizza HOUSE"));
+        avlTree.insert(restaurant(3, "Thai Thai Kitchen"));
+        avlTree.insert(restaurant(4, "Sushi Bar"));
+        dictionary = new TokenDictionary(avlTree);
+    }
+
+    @Test
+    public void testTermsAreNormalizedAndUnique() {
+        // names are visited in order: Pizza HOUSE, Sushi Bar, Thai House, Thai Thai Kitchen
+        assertEquals(Arrays.asList("pizza", "house", "sushi", "bar", "thai", "kitchen"), dictionary.terms());
+        assertEquals(6, dictionary.termCount());
+        assertEquals(1, dictionary.termId("House"));
+        assertEquals(-1, dictionary.termId("burger"));
+        assertEquals("house", dictionary.term(1));
+    }
+
+    @Test
+    public void testDocumentFrequenciesAndPostings() {
+        assertEquals(2, dictionary.documentFrequency("house"));
+        // repeated in one name, counted once
+        assertEquals(2, dictionary.documentFrequency("thai"));
+        assertEquals(0, dictionary.documentFrequency("burger"));
+        assertArrayEquals(new int[]{2, 3}, dictionary.postings(dictionary.termId("thai")));
+        assertEquals(3, dictionary.documentLength(3));
+        assertEquals(4, dictionary.documentCount());
+        assertEquals("Sushi Bar", dictionary.getRestaurant(1).getName());
+    }
+
+    @Test
+    public void testSortedAndFrequencyViews() {
+        assertEquals(Arrays.asList("bar", "house", "kitchen", "pizza", "sushi", "thai"), dictionary.sortedTerms());
+        assertEquals(Arrays.asList("house", "thai", "bar", "kitchen", "pizza", "sushi"), dictionary.termsByFrequency());
+    }
+
+    @Test
+    public void testDictionaryIsNotAffectedByLaterInserts() {
+        avlTree.insert(restaurant(5, "Burger House"));
+        assertEquals(4, dictionary.documentCount());
+        assertEquals(2, dictionary.documentFrequency("house"));
+    }
+
+    @Test
+    public void testEmptyTree() {
+        TokenDictionary empty = new TokenDictionary(new AvlTree<>());
+        assertEquals(0, empty.termCount());
+        assertEquals(0, empty.documentCount());
+    }
+
+    @Test
+    public void testParserUsesDictionary() {
+        Parser parser = new Parser(dictionary);
+        assertEquals(Arrays.asList("house", "kitchen"), parser.parse(Arrays.asList("hous", "Kitchn")));
+        assertEquals(Collections.singletonList("xyzzy"), parser.parse(Collections.singletonList("xyzzy")));
+    }
+
+    private Restaurant restaurant(int id, String name) {
+        return new Restaurant(id, name, 4.0, "1 Test St", "http://example.com/photo.jpg", 40.7128, -74.0060, Arrays.asList("food"), 2, "$25-$50", 100);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.EditDistance;
+import com.example.smartcity.backend.dataStructure.Parser;
+import com.example.smartcity.backend.dataStructure.TokenTrie;
+import com.example.smartcity.backend.dataStructure.Tokenizer;
+import com.example.smartcity.backend.entity.Restaurant;
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+public class TokenTrieTest {
+
+    private static final String DATA_SET = "src/main/assets/RES_dataSet.json";
+
+    private TokenTrie tokenTrie;
+
+    @Before
+    public void setUp() {
+        tokenTrie = new TokenTrie();
+        for (String word : Arrays.asList("pizza", "pasta", "thai", "house", "hotel", "sushi", "bar")) {
+            tokenTrie.add(word);
+        }
+    }
+
+    @Test
+    public void testContains() {
+        assertTrue(tokenTrie.contains("pizza"));
+        assertFalse(tokenTrie.contains("pizz"));
+        tokenTrie.add("pizza");
+        assertEquals(7, tokenTrie.size());
+    }
+
+    @Test
+    public void testSearchIsRanked() {
+        List<TokenTrie.Match> matches = tokenTrie.search("pasza", 2);
+        assertEquals(2, matches.size());
+        assertEquals("pasta", matches.get(0).getWord());
+        assertEquals(1, matches.get(0).getDistance());
+        assertEquals("pizza", matches.get(1).getWord());
+        assertEquals(2, matches.get(1).getDistance());
+    }
+
+    @Test
+    public void testClosest() {
+        assertEquals("hotel", tokenTrie.closest("hotl", 2));
+        // "hots" is two edits from both "house" and "hotel", the earlier word wins
+        assertEquals("house", tokenTrie.closest("hots", 2));
+        assertNull(tokenTrie.closest("xylophone", 2));
+    }
+
+    @Test
+    public void testStrategiesMatchLinearScanOnDataSetVocabulary() throws IOException {
+        List<String> vocabulary = loadVocabulary();
+        assertFalse(vocabulary.isEmpty());
+
+        // misspell real tokens with one or two random edits
+        Random random = new Random(1);
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            queries.add(misspell(vocabulary.get(random.nextInt(vocabulary.size())), random));
+        }
+
+        Parser bkParser = new Parser(vocabulary);
+        Parser trieParser = new Parser(vocabulary);
+        trieParser.setStrategy(Parser.Strategy.TRIE_AUTOMATON);
+
+        List<String> expected = new ArrayList<>();
+        for (String query : queries) {
+            expected.add(closestByLinearScan(vocabulary, query));
+        }
+        assertEquals(expected, bkParser.parse(queries));
+        assertEquals(expected, trieParser.parse(queries));
+    }
+
+    // the earliest valid token at the smallest distance, comparing the query with every valid token
+    private String closestByLinearScan(List<String> vocabulary, String query) {
+        String normalizedQuery = Tokenizer.normalize(query);
+        if (normalizedQuery.isEmpty()) {
+            return query;
+        }
+        EditDistance editDistance = new EditDistance();
+        String closest = query;
+        int closestDistance = Parser.DEFAULT_MAX_DISTANCE + 1;
+        Set<String> seen = new HashSet<>();
+        for (String word : vocabulary) {
+            String normalizedWord = Tokenizer.normalize(word);
+            if (normalizedWord.isEmpty() || !seen.add(normalizedWord)) {
+                continue;
+            }
+            int distance = editDistance.distance(normalizedQuery, normalizedWord);
+            if (distance < closestDistance) {
+                closest = word;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    private List<String> loadVocabulary() throws IOException {
+        Restaurant[] restaurants;
+        try (Reader reader = new FileReader(DATA_SET)) {
+            restaurants = new Gson().fromJson(reader, Restaurant[].class);
+        }
+        Set<String> vocabulary = new LinkedHashSet<>();
+        Tokenizer tokenizer = new Tokenizer();
+        for (Restaurant restaurant : restaurants) {
+            vocabulary.addAll(tokenizer.tokenize(restaurant.getName()));
+        }
+        vocabulary.remove("");
+        return new ArrayList<>(vocabulary);
+    }
+
+    private String misspell(String word, Random random) {
+        StringBuilder builder = new StringBuilder(word.toLowerCase());
+        int edits = 1 + random.nextInt(2);
+        for (int i = 0; i < edits && builder.length() > 1; i++) {
+            int position = random.nextInt(builder.length());
+            switch (random.nextInt(3)) {
+                case 0:
+                    builder.deleteCharAt(position);
+                    break;
+                case 1:
+                    builder.insert(position, (char) ('a' + random.nextInt(26)));
+                    break;
+                default:
+                    builder.setCharAt(position, (char) ('a' + random.nextInt(26)));
+                    break;
+            }
+        }
+        return builder.toString();
+    }
+}
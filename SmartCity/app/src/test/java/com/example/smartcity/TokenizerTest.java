@@ -2,6 +2,8 @@ package com.example.smartcity;
 
 import com.example.smartcity.backend.dataStructure.Tokenizer;
 import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import static org.junit.Assert.assertEquals;
 
@@ -20,4 +22,41 @@ public class TokenizerTest {
         assertEquals("test", tokens.get(3));
         assertEquals("query", tokens.get(4));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testTokenizeCollapsesWhitespace() {
+        Tokenizer tokenizer = new Tokenizer();
+        assertEquals(Arrays.asList("Thai", "House"), tokenizer.tokenize("  Thai \t House  "));
+        assertEquals(0, tokenizer.tokenize("   ").size());
+    }
+
+    @Test
+    public void testNormalizedTokens() {
+        Tokenizer tokenizer = new Tokenizer();
+        assertEquals(Arrays.asList("swissotel", "sydney"), tokenizer.normalizedTokens("Swiss\u00f4tel, SYDNEY!"));
+        assertEquals(Arrays.asList("mcdonalds", "thai", "style"), tokenizer.normalizedTokens("McDonald's Thai-Style"));
+        assertEquals(Arrays.asList("cafe", "creme"), tokenizer.normalizedTokens("Cafe\u0301 Cr\u00c8me"));
+    }
+
+    @Test
+    public void testSinkReceivesSpans() {
+        Tokenizer tokenizer = new Tokenizer();
+        List<String> spans = new ArrayList<>();
+        String text = "  Le Caf\u00e9 (Bar)";
+        tokenizer.tokenize(text, (buffer, length, start, end) ->
+                spans.add(new String(buffer, 0, length) + "@" + start + "-" + end));
+        assertEquals(Arrays.asList("le@2-4", "cafe@5-9", "bar@11-14"), spans);
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("swissotel", Tokenizer.normalize("Swiss\u00f4tel"));
+        assertEquals("pizza", Tokenizer.normalize("pizza"));
+        assertEquals("", Tokenizer.normalize("!!"));
+        assertEquals("mcdonalds", Tokenizer.normalize("McDonald's"));
+        // punctuation separates words, as in tokenize
+        assertEquals("fish chips", Tokenizer.normalize("fish&chips"));
+        assertEquals(String.join(" ", new Tokenizer().normalizedTokens(" Fish & Chips! ")), Tokenizer.normalize(" Fish & Chips! "));
+        assertEquals("hotel sydney", Tokenizer.fold("H\u00f4tel Sydney"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.TopKHeap;
+import org.junit.Test;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class TopKHeapTest {
+
+    @Test
+    public void testKeepsBestScores() {
+        TopKHeap heap = new TopKHeap(3);
+        heap.offer(0, 1.0);
+        heap.offer(1, 5.0);
+        heap.offer(2, 3.0);
+        heap.offer(3, 4.0);
+        heap.offer(4, 0.5);
+        assertEquals(3, heap.size());
+        assertArrayEquals(new int[]{1, 3, 2}, heap.drain());
+        assertEquals(0, heap.size());
+    }
+
+    @Test
+    public void testTiesPreferLowerIds() {
+        TopKHeap heap = new TopKHeap(2);
+        heap.offer(7, 1.0);
+        heap.offer(3, 1.0);
+        heap.offer(5, 1.0);
+        assertArrayEquals(new int[]{3, 5}, heap.drain());
+    }
+
+    @Test
+    public void testZeroCapacity() {
+        TopKHeap heap = new TopKHeap(0);
+        heap.offer(1, 1.0);
+        assertArrayEquals(new int[0], heap.drain());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCapacity() {
+        new TopKHeap(-1);
+    }
+
+    @Test
+    public void testMatchesFullSort() {
+        Random random = new Random(42);
+        double[] scores = new double[5000];
+        TopKHeap heap = new TopKHeap(50);
+        for (int id = 0; id < scores.length; id++) {
+            scores[id] = random.nextInt(1000);
+            heap.offer(id, scores[id]);
+        }
+        int[] top = heap.drain();
+        assertEquals(50, top.length);
+        for (int i = 1; i < top.length; i++) {
+            boolean ordered = scores[top[i - 1]] > scores[top[i]]
+                    || (scores[top[i - 1]] == scores[top[i]] && top[i - 1] < top[i]);
+            assertTrue(ordered);
+        }
+        // nothing left out scores above the worst kept
+        int better = 0;
+        for (double score : scores) {
+            if (score > scores[top[top.length - 1]]) {
+                better++;
+            }
+        }
+        assertTrue(better < 50);
+    }
+}
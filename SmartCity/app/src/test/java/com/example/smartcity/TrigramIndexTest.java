@@ -0,0 +1,111 @@
+package com.example.smartcity;
+
+import com.example.smartcity.backend.dataStructure.AvlTree;
+import com.example.smartcity.backend.dataStructure.IntList;
+import com.example.smartcity.backend.dataStructure.Tokenizer;
+import com.example.smartcity.backend.dataStructure.TrigramIndex;
+import com.example.smartcity.backend.entity.Restaurant;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class TrigramIndexTest {
+
+    private AvlTree<Restaurant> avlTree;
+    private TrigramIndex index;
+
+    @Before
+    public void setUp() {
+        avlTree = new AvlTree<>();
+        avlTree.insert(restaurant(1, "Hotel Sydney"));
+        avlTree.insert(restaurant(2, "Pizza Hut"));
+        avlTree.insert(restaurant(3, "Motel Cafe"));
+        avlTree.insert(restaurant(4, "Pizzeria Roma"));
+        index = new TrigramIndex(avlTree);
+    }
+
+    @Test
+    public void testSearch() {
+        // ids follow name order: Hotel Sydney, Motel Cafe, Pizza Hut, Pizzeria Roma
+        assertArrayEquals(new int[]{0, 1}, index.search("otel"));
+        assertArrayEquals(new int[]{2}, index.search("izza"));
+        assertArrayEquals(new int[]{2, 3}, index.search("PIZZ"));
+        assertArrayEquals(new int[0], index.search("sushi"));
+    }
+
+    @Test
+    public void testCandidatesAreVerified() {
+        avlTree.insert(restaurant(5, "Bar Arena"));
+        index = new TrigramIndex(avlTree);
+        // "Bar Arena" has both grams of "bare" ("bar" and "are") but not the fragment itself
+        assertArrayEquals(new int[0], index.search("bare"));
+        assertArrayEquals(new int[]{0}, index.search("r are"));
+    }
+
+    @Test
+    public void testPunctuationIsNormalized() {
+        avlTree.insert(restaurant(5, "McDonald's"));
+        avlTree.insert(restaurant(6, "Fish&Chips Co."));
+        index = new TrigramIndex(avlTree);
+        // ids follow name order: Fish&Chips Co., Hotel Sydney, McDonald's, Motel Cafe, ...
+        assertArrayEquals(new int[]{2}, index.search("mcdonalds"));
+        assertArrayEquals(new int[]{2}, index.search("McDonald's"));
+        assertArrayEquals(new int[]{2}, index.search("donald"));
+        assertArrayEquals(new int[]{0}, index.search("fish chips"));
+        assertArrayEquals(new int[]{0}, index.search("fish&chips"));
+    }
+
+    @Test
+    public void testShortFragment() {
+        assertArrayEquals(new int[]{2, 3}, index.search("pi"));
+        assertArrayEquals(new int[0], index.search(""));
+    }
+
+    @Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(7);
+        String alphabet = "abcde ";
+        avlTree = new AvlTree<>();
+        for (int i = 0; i < 300; i++) {
+            avlTree.insert(restaurant(i, randomString(random, alphabet, 12) + i));
+        }
+        index = new TrigramIndex(avlTree);
+        List<Restaurant> restaurants = avlTree.toList();
+
+        for (int q = 0; q < 200; q++) {
+            String fragment = Tokenizer.normalize(randomString(random, alphabet, 2 + random.nextInt(4)));
+            if (fragment.isEmpty()) {
+                continue;
+            }
+            IntList expected = new IntList();
+            for (int id = 0; id < restaurants.size(); id++) {
+                if (Tokenizer.normalize(restaurants.get(id).getName()).contains(fragment)) {
+                    expected.add(id);
+                }
+            }
+            assertArrayEquals(expected.toArray(), index.search(fragment));
+        }
+    }
+
+    @Test
+    public void testMemoryBytes() {
+        assertEquals(4, index.size());
+        assertTrue(index.gramCount() > 0);
+        assertTrue(index.memoryBytes() > index.gramCount() * 8L);
+    }
+
+    private String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    private Restaurant restaurant(int id, String name) {
+        return new Restaurant(id, name, 4.0, "1 Test St", "http://example.com/photo.jpg", 40.7128, -74.0060, Arrays.asList("food"), 2, "$25-$50", 100);
+    }
+}